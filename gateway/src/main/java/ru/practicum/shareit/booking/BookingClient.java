@@ -3,14 +3,18 @@ package ru.practicum.shareit.booking;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingState;
 import ru.practicum.shareit.client.BaseClient;
 
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -26,21 +30,45 @@ public class BookingClient extends BaseClient {
         );
     }
 
-    public ResponseEntity<Object> createBooking(Long userId, BookingDto bookingDto) {
-        return post("", userId, bookingDto);
+    public ResponseEntity<Object> createBooking(Long userId, BookingDto bookingDto, String idempotencyKey) {
+        return post("", userId, null, bookingDto, idempotencyKey);
     }
 
-    public ResponseEntity<Object> patchBooking(Long userId, Long bookingId, Boolean approved) {
+    public ResponseEntity<Object> createBookings(Long userId, List<BookingDto> bookingDtos, String idempotencyKey) {
+        return post("/batch", userId, null, bookingDtos, idempotencyKey);
+    }
+
+    public ResponseEntity<Object> patchBooking(Long userId, Long bookingId, Boolean approved, String ifMatch) {
         Map<String, Object> parameters = Map.of(
                 "approved", approved
         );
-        return patch("/" + bookingId + "?approved={approved}", userId, parameters, null);
+        return patch("/" + bookingId + "?approved={approved}", userId, parameters, null, ifMatch);
+    }
+
+    public ResponseEntity<Object> decideBookings(Long userId, List<BookingDecisionDto> decisions) {
+        return patch("/owner/decisions", userId, decisions);
     }
 
     public ResponseEntity<Object> getBooking(Long userId, Long bookingId) {
         return get("/" + bookingId, userId);
     }
 
+    public void exportBookerBookings(Long userId, HttpServletResponse response) {
+        relay("/export", userId, MediaType.APPLICATION_NDJSON, response);
+    }
+
+    public void exportOwnerBookings(Long userId, HttpServletResponse response) {
+        relay("/owner/export", userId, MediaType.APPLICATION_NDJSON, response);
+    }
+
+    public ResponseEntity<Object> countBookerBookings(Long userId) {
+        return get("/counts", userId);
+    }
+
+    public ResponseEntity<Object> countOwnerBookings(Long userId) {
+        return get("/owner/counts", userId);
+    }
+
     public ResponseEntity<Object> getBookingOwnerByStatus(Long userId, BookingState state, Integer from, Integer size) {
         Map<String, Object> parameters = Map.of(
                 "state", state.name(),
@@ -58,4 +86,22 @@ public class BookingClient extends BaseClient {
         );
         return get("/owner?state={state}&from={from}&size={size}", userId, parameters);
     }
+
+    public ResponseEntity<Object> getBookingOwnerByStatusAfter(Long userId, BookingState state, String after, Integer size) {
+        Map<String, Object> parameters = Map.of(
+                "state", state.name(),
+                "after", after,
+                "size", size
+        );
+        return get("?state={state}&after={after}&size={size}", userId, parameters);
+    }
+
+    public ResponseEntity<Object> getBookingItemsByStatusAfter(Long userId, BookingState state, String after, Integer size) {
+        Map<String, Object> parameters = Map.of(
+                "state", state.name(),
+                "after", after,
+                "size", size
+        );
+        return get("/owner?state={state}&after={after}&size={size}", userId, parameters);
+    }
 }
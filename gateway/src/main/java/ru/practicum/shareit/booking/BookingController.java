@@ -2,18 +2,23 @@ package ru.practicum.shareit.booking;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingState;
+import ru.practicum.shareit.client.BaseClient;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -22,21 +27,46 @@ import java.util.Map;
 @RequestMapping("/bookings")
 @Validated
 public class BookingController {
+    private static final int MAX_BATCH_SIZE = 500;
+
     private final BookingClient bookingClient;
 
     @PostMapping
     public ResponseEntity<Object> createBooking(@Valid @RequestBody BookingDto bookingDto,
-                                                @RequestHeader("X-Sharer-User-Id") Long userId) {
+                                                @RequestHeader("X-Sharer-User-Id") Long userId,
+                                                @RequestHeader(value = BaseClient.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
         log.info("Create booking={}, of user={}", bookingDto, userId);
-        return bookingClient.createBooking(userId, bookingDto);
+        return bookingClient.createBooking(userId, bookingDto, idempotencyKey);
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<Object> createBookings(@RequestBody List<@Valid BookingDto> bookingDtos,
+                                                 @RequestHeader("X-Sharer-User-Id") Long userId,
+                                                 @RequestHeader(value = BaseClient.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        if (bookingDtos.isEmpty() || bookingDtos.size() > MAX_BATCH_SIZE) {
+            return batchSizeError();
+        }
+        log.info("Create {} bookings, of user={}", bookingDtos.size(), userId);
+        return bookingClient.createBookings(userId, bookingDtos, idempotencyKey);
     }
 
     @PatchMapping("/{bookingId}")
     public ResponseEntity<?> patchBooking(@RequestHeader("X-Sharer-User-Id") Long userId,
                                           @PathVariable Long bookingId,
-                                          @NotNull @RequestParam Boolean approved) {
-        log.info("Patch booking={}, of user={}, with flag={}", bookingId, userId, approved);
-        return bookingClient.patchBooking(userId, bookingId, approved);
+                                          @NotNull @RequestParam Boolean approved,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("Patch booking={}, of user={}, with flag={}, if match={}", bookingId, userId, approved, ifMatch);
+        return bookingClient.patchBooking(userId, bookingId, approved, ifMatch);
+    }
+
+    @PatchMapping("/owner/decisions")
+    public ResponseEntity<Object> decideBookings(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                 @RequestBody List<@NotNull @Valid BookingDecisionDto> decisions) {
+        if (decisions.isEmpty() || decisions.size() > MAX_BATCH_SIZE) {
+            return batchSizeError();
+        }
+        log.info("Decide {} bookings, of owner={}", decisions.size(), userId);
+        return bookingClient.decideBookings(userId, decisions);
     }
 
     @GetMapping("/{bookingId}")
@@ -46,11 +76,36 @@ public class BookingController {
         return bookingClient.getBooking(userId, bookingId);
     }
 
+    @GetMapping("/export")
+    public void exportBookerBookings(@RequestHeader("X-Sharer-User-Id") Long userId, HttpServletResponse response) {
+        log.info("Export bookings, of booker={}", userId);
+        bookingClient.exportBookerBookings(userId, response);
+    }
+
+    @GetMapping("/owner/export")
+    public void exportOwnerBookings(@RequestHeader("X-Sharer-User-Id") Long userId, HttpServletResponse response) {
+        log.info("Export bookings, of owner={}", userId);
+        bookingClient.exportOwnerBookings(userId, response);
+    }
+
+    @GetMapping("/counts")
+    public ResponseEntity<Object> countBookerBookings(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("Count bookings, of booker={}", userId);
+        return bookingClient.countBookerBookings(userId);
+    }
+
+    @GetMapping("/owner/counts")
+    public ResponseEntity<Object> countOwnerBookings(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("Count bookings, of owner={}", userId);
+        return bookingClient.countOwnerBookings(userId);
+    }
+
     @GetMapping()
     public ResponseEntity<Object> getBookingOwnerByStatus(@RequestHeader("X-Sharer-User-Id") Long userId,
                                                           @RequestParam(name = "state", defaultValue = "ALL") String stateParam,
                                                           @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                                          @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+                                                          @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                                          @RequestParam(name = "after", required = false) String after) {
         BookingState state = BookingState.from(stateParam).orElse(null);
         if (state == null) {
             String message = "Unknown state: " + stateParam;
@@ -58,6 +113,10 @@ public class BookingController {
             answer.put("error", message);
             return new ResponseEntity<Object>(answer, HttpStatus.BAD_REQUEST);
         }
+        if (after != null) {
+            log.info("Get page after={}, size={}, with state={}, bookings of user={}", after, size, stateParam, userId);
+            return bookingClient.getBookingOwnerByStatusAfter(userId, state, after, size);
+        }
         log.info("Get pages from={}, size={}, with state={}, bookings of user={}", from, size, stateParam, userId);
         return bookingClient.getBookingOwnerByStatus(userId, state, from, size);
     }
@@ -66,7 +125,8 @@ public class BookingController {
     public ResponseEntity<Object> getBookingItemsByStatus(@RequestHeader("X-Sharer-User-Id") Long userId,
                                                           @RequestParam(name = "state", defaultValue = "ALL") String stateParam,
                                                           @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                                          @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+                                                          @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                                          @RequestParam(name = "after", required = false) String after) {
         BookingState state = BookingState.from(stateParam).orElse(null);
         if (state == null) {
             String message = "Unknown state: " + stateParam;
@@ -74,7 +134,18 @@ public class BookingController {
             answer.put("error", message);
             return new ResponseEntity<Object>(answer, HttpStatus.BAD_REQUEST);
         }
+        if (after != null) {
+            log.info("Get page after={}, size={}, with state={}, bookings of user={}", after, size, stateParam, userId);
+            return bookingClient.getBookingItemsByStatusAfter(userId, state, after, size);
+        }
         log.info("Get pages from={}, size={}, with state={}, bookings of user={}", from, size, stateParam, userId);
         return bookingClient.getBookingItemsByStatus(userId, state, from, size);
     }
+
+    private ResponseEntity<Object> batchSizeError() {
+        String message = "Batch size must be from 1 to " + MAX_BATCH_SIZE + ".";
+        Map<String, String> answer = new HashMap<>();
+        answer.put("error", message);
+        return new ResponseEntity<Object>(answer, HttpStatus.BAD_REQUEST);
+    }
 }
@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 
 import javax.validation.constraints.Future;
 import javax.validation.constraints.FutureOrPresent;
+import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Data
@@ -19,6 +20,7 @@ public class BookingDto {
     private LocalDateTime start;
     @Future
     private LocalDateTime end;
+    @NotNull
     @JsonProperty("itemId")
     private Long item;
 }
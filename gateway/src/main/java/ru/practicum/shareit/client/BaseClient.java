@@ -3,14 +3,20 @@ package ru.practicum.shareit.client;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.*;
 import org.springframework.lang.Nullable;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
 
 @Slf4j
 public class BaseClient {
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     protected RestTemplate rest;
 
     public BaseClient(RestTemplate rest) {
@@ -27,7 +33,7 @@ public class BaseClient {
 
     protected ResponseEntity<Object> get(String path, Long userId,
                                          @Nullable Map<String, Object> parameters) {
-        return makeAndSendRequest(HttpMethod.GET, path, userId, parameters, null);
+        return makeAndSendRequest(HttpMethod.GET, path, userId, parameters, null, null, null);
     }
 
     protected <T> ResponseEntity<Object> post(String path, T body) {
@@ -40,7 +46,12 @@ public class BaseClient {
 
     protected <T> ResponseEntity<Object> post(String path, Long userId,
                                               @Nullable Map<String, Object> parameters, T body) {
-        return makeAndSendRequest(HttpMethod.POST, path, userId, parameters, body);
+        return post(path, userId, parameters, body, null);
+    }
+
+    protected <T> ResponseEntity<Object> post(String path, Long userId, @Nullable Map<String, Object> parameters,
+                                              T body, @Nullable String idempotencyKey) {
+        return makeAndSendRequest(HttpMethod.POST, path, userId, parameters, body, null, idempotencyKey);
     }
 
     protected <T> ResponseEntity<Object> put(String path, long userId, T body) {
@@ -49,7 +60,7 @@ public class BaseClient {
 
     protected <T> ResponseEntity<Object> put(String path, long userId,
                                              @Nullable Map<String, Object> parameters, T body) {
-        return makeAndSendRequest(HttpMethod.PUT, path, userId, parameters, body);
+        return makeAndSendRequest(HttpMethod.PUT, path, userId, parameters, body, null, null);
     }
 
     protected <T> ResponseEntity<Object> patch(String path, T body) {
@@ -66,7 +77,12 @@ public class BaseClient {
 
     protected <T> ResponseEntity<Object> patch(String path, Long userId,
                                                @Nullable Map<String, Object> parameters, @Nullable T body) {
-        return makeAndSendRequest(HttpMethod.PATCH, path, userId, parameters, body);
+        return patch(path, userId, parameters, body, null);
+    }
+
+    protected <T> ResponseEntity<Object> patch(String path, Long userId, @Nullable Map<String, Object> parameters,
+                                               @Nullable T body, @Nullable String ifMatch) {
+        return makeAndSendRequest(HttpMethod.PATCH, path, userId, parameters, body, ifMatch, null);
     }
 
     protected ResponseEntity<Object> delete(String path) {
@@ -78,12 +94,40 @@ public class BaseClient {
     }
 
     protected ResponseEntity<Object> delete(String path, Long userId, @Nullable Map<String, Object> parameters) {
-        return makeAndSendRequest(HttpMethod.DELETE, path, userId, parameters, null);
+        return makeAndSendRequest(HttpMethod.DELETE, path, userId, parameters, null, null, null);
+    }
+
+    /**
+     * Copies the server response to the servlet response as it arrives, so long bodies are never held in memory.
+     */
+    protected void relay(String path, Long userId, MediaType accept, HttpServletResponse response) {
+        HttpHeaders headers = defaultHeaders(userId, null, null);
+        headers.setAccept(List.of(accept));
+        log.info("Relaying request with path={}", path);
+        try {
+            rest.execute(path, HttpMethod.GET, request -> request.getHeaders().putAll(headers), serverResponse -> {
+                response.setStatus(serverResponse.getRawStatusCode());
+                MediaType contentType = serverResponse.getHeaders().getContentType();
+                if (contentType != null) {
+                    response.setContentType(contentType.toString());
+                }
+                StreamUtils.copy(serverResponse.getBody(), response.getOutputStream());
+                return null;
+            });
+        } catch (HttpStatusCodeException e) {
+            response.setStatus(e.getRawStatusCode());
+            try {
+                StreamUtils.copy(e.getResponseBodyAsByteArray(), response.getOutputStream());
+            } catch (IOException ioException) {
+                throw new UncheckedIOException(ioException);
+            }
+        }
     }
 
     private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, Long userId,
-                                                          @Nullable Map<String, Object> parameters, @Nullable T body) {
-        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId));
+                                                          @Nullable Map<String, Object> parameters, @Nullable T body,
+                                                          @Nullable String ifMatch, @Nullable String idempotencyKey) {
+        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId, ifMatch, idempotencyKey));
 
         ResponseEntity<Object> shareitServerResponse;
         log.info("Sending request with path={}", path);
@@ -102,13 +146,19 @@ public class BaseClient {
         return prepareGatewayResponse(shareitServerResponse);
     }
 
-    private HttpHeaders defaultHeaders(Long userId) {
+    private HttpHeaders defaultHeaders(Long userId, String ifMatch, String idempotencyKey) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.setAccept(List.of(MediaType.APPLICATION_JSON));
         if (userId != null) {
             headers.set("X-Sharer-User-Id", String.valueOf(userId));
         }
+        if (ifMatch != null) {
+            headers.setIfMatch(ifMatch);
+        }
+        if (idempotencyKey != null) {
+            headers.set(IDEMPOTENCY_KEY, idempotencyKey);
+        }
         return headers;
     }
 
@@ -0,0 +1,37 @@
+package ru.practicum.shareit.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import javax.validation.ConstraintViolationException;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Requests that fail validation are answered here with 400 and are not sent to the server.
+ */
+@RestControllerAdvice
+public class ErrorHandler {
+    @ExceptionHandler
+    public ResponseEntity<?> invalidBodyHandler(final MethodArgumentNotValidException e) {
+        String message = e.getBindingResult().getFieldErrors().stream()
+                .map(error -> error.getField() + " " + error.getDefaultMessage())
+                .collect(Collectors.joining(", "));
+        return new ResponseEntity<>(Map.of("error", message), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Violations of constraints on parameters, including the elements of list bodies.
+     */
+    @ExceptionHandler
+    public ResponseEntity<?> invalidParameterHandler(final ConstraintViolationException e) {
+        String message = e.getConstraintViolations().stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+        return new ResponseEntity<>(Map.of("error", message), HttpStatus.BAD_REQUEST);
+    }
+}
@@ -9,7 +9,11 @@ import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemSearchMode;
 
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.HashMap;
 import java.util.Map;
 
 @Service
@@ -25,12 +29,12 @@ public class ItemClient extends BaseClient {
         );
     }
 
-    public ResponseEntity<Object> createItem(Long userId, ItemDto itemDto) {
-        return post("", userId, itemDto);
+    public ResponseEntity<Object> createItem(Long userId, ItemDto itemDto, String idempotencyKey) {
+        return post("", userId, null, itemDto, idempotencyKey);
     }
 
-    public ResponseEntity<Object> patchItem(Long userId, Long itemId, ItemDto itemDto) {
-        return patch("/" + itemId, userId, itemDto);
+    public ResponseEntity<Object> patchItem(Long userId, Long itemId, ItemDto itemDto, String ifMatch) {
+        return patch("/" + itemId, userId, null, itemDto, ifMatch);
     }
 
     public ResponseEntity<Object> deleteItem(Long userId, Long itemId) {
@@ -49,16 +53,62 @@ public class ItemClient extends BaseClient {
         return get("?from={from}&size={size}", userId, parameters);
     }
 
-    public ResponseEntity<Object> searchItems(Long userId, String text, Integer from, Integer size) {
-        Map<String, Object> parameters = Map.of(
+    public ResponseEntity<Object> searchItems(Long userId, String text, ItemSearchMode mode, Integer from,
+                                              Integer size) {
+        Map<String, Object> parameters = new HashMap<>(Map.of(
                 "text", text,
                 "from", from,
                 "size", size
+        ));
+        return get(withMode("/search?text={text}&from={from}&size={size}", mode, parameters), userId, parameters);
+    }
+
+    public ResponseEntity<Object> getItemsOfUserAfter(Long userId, String after, Integer size) {
+        Map<String, Object> parameters = Map.of(
+                "after", after,
+                "size", size
+        );
+        return get("?after={after}&size={size}", userId, parameters);
+    }
+
+    public ResponseEntity<Object> searchItemsAfter(Long userId, String text, ItemSearchMode mode, String after,
+                                                   Integer size) {
+        Map<String, Object> parameters = new HashMap<>(Map.of(
+                "text", text,
+                "after", after,
+                "size", size
+        ));
+        return get(withMode("/search?text={text}&after={after}&size={size}", mode, parameters), userId, parameters);
+    }
+
+    public ResponseEntity<Object> getFreeWindows(Long userId, Long itemId, LocalDateTime from, LocalDateTime to) {
+        Map<String, Object> parameters = Map.of(
+                "from", from,
+                "to", to
+        );
+        return get("/" + itemId + "/availability?from={from}&to={to}", userId, parameters);
+    }
+
+    public ResponseEntity<Object> getCalendar(Long userId, Long itemId, YearMonth month) {
+        if (month == null) {
+            return get("/" + itemId + "/calendar", userId);
+        }
+        Map<String, Object> parameters = Map.of(
+                "month", month
         );
-        return get("/search?text={text}&from={from}&size={size}", userId, parameters);
+        return get("/" + itemId + "/calendar?month={month}", userId, parameters);
+    }
+
+    public ResponseEntity<Object> addCommentToItem(Long userId, Long itemId, CommentDto commentDto,
+                                                   String idempotencyKey) {
+        return post("/" + itemId + "/comment", userId, null, commentDto, idempotencyKey);
     }
 
-    public ResponseEntity<Object> addCommentToItem(Long userId, Long itemId, CommentDto commentDto) {
-        return post("/" + itemId + "/comment", userId, commentDto);
+    private String withMode(String path, ItemSearchMode mode, Map<String, Object> parameters) {
+        if (mode == null) {
+            return path;
+        }
+        parameters.put("mode", mode.name());
+        return path + "&mode={mode}";
     }
 }
@@ -2,16 +2,25 @@ package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemSearchMode;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/items")
@@ -23,17 +32,19 @@ public class ItemContoller {
 
     @PostMapping
     public ResponseEntity<Object> createItem(@RequestHeader("X-Sharer-User-Id") long userId,
-                                             @Valid @RequestBody ItemDto itemDto) {
+                                             @Valid @RequestBody ItemDto itemDto,
+                                             @RequestHeader(value = BaseClient.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
         log.info("Create item={}, of user={}", itemDto, userId);
-        return itemClient.createItem(userId, itemDto);
+        return itemClient.createItem(userId, itemDto, idempotencyKey);
     }
 
     @PatchMapping("/{itemId}")
     public ResponseEntity<Object> patchItem(@RequestHeader("X-Sharer-User-Id") long userId,
-                                            @Valid @RequestBody ItemDto itemDto,
-                                            @PathVariable Long itemId) {
-        log.info("Patch itemId={}, {}, of user={}", itemId, itemDto, userId);
-        return itemClient.patchItem(userId, itemId, itemDto);
+                                            @RequestBody ItemDto itemDto,
+                                            @PathVariable Long itemId,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("Patch itemId={}, {}, of user={}, if match={}", itemId, itemDto, userId, ifMatch);
+        return itemClient.patchItem(userId, itemId, itemDto, ifMatch);
     }
 
     @DeleteMapping("/{itemId}")
@@ -52,7 +63,11 @@ public class ItemContoller {
     @GetMapping
     public ResponseEntity<Object> getItemsOfUser(@RequestHeader("X-Sharer-User-Id") Long userId,
                                                  @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                                 @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+                                                 @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                                 @RequestParam(name = "after", required = false) String after) {
+        if (after != null) {
+            return itemClient.getItemsOfUserAfter(userId, after, size);
+        }
         return itemClient.getItemsOfUser(userId, from, size);
     }
 
@@ -60,14 +75,49 @@ public class ItemContoller {
     public ResponseEntity<Object> searchItems(@RequestParam @NotNull String text,
                                               @RequestHeader("X-Sharer-User-Id") Long userId,
                                               @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                              @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
-        return itemClient.searchItems(userId, text, from, size);
+                                              @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                              @RequestParam(name = "after", required = false) String after,
+                                              @RequestParam(name = "mode", required = false) String modeParam) {
+        ItemSearchMode mode = null;
+        if (modeParam != null) {
+            mode = ItemSearchMode.from(modeParam).orElse(null);
+            if (mode == null) {
+                Map<String, String> answer = new HashMap<>();
+                answer.put("error", "Unknown search mode: " + modeParam);
+                return new ResponseEntity<Object>(answer, HttpStatus.BAD_REQUEST);
+            }
+        }
+        if (after != null) {
+            return itemClient.searchItemsAfter(userId, text, mode, after, size);
+        }
+        return itemClient.searchItems(userId, text, mode, from, size);
+    }
+
+    @GetMapping("/{itemId}/availability")
+    public ResponseEntity<Object> getFreeWindows(@PathVariable Long itemId,
+                                                 @RequestHeader("X-Sharer-User-Id") Long userId,
+                                                 @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                 LocalDateTime from,
+                                                 @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                 LocalDateTime to) {
+        log.info("Get free windows of itemId={} from={} to={}", itemId, from, to);
+        return itemClient.getFreeWindows(userId, itemId, from, to);
+    }
+
+    @GetMapping("/{itemId}/calendar")
+    public ResponseEntity<Object> getCalendar(@PathVariable Long itemId,
+                                              @RequestHeader("X-Sharer-User-Id") Long userId,
+                                              @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM")
+                                              YearMonth month) {
+        log.info("Get calendar of itemId={} month={}", itemId, month);
+        return itemClient.getCalendar(userId, itemId, month);
     }
 
     @PostMapping("/{itemId}/comment")
     public ResponseEntity<Object> addCommentToItem(@PathVariable Long itemId,
                                                    @RequestHeader("X-Sharer-User-Id") Long userId,
-                                                   @Valid @RequestBody CommentDto commentDto) {
-        return itemClient.addCommentToItem(userId, itemId, commentDto);
+                                                   @Valid @RequestBody CommentDto commentDto,
+                                                   @RequestHeader(value = BaseClient.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return itemClient.addCommentToItem(userId, itemId, commentDto, idempotencyKey);
     }
 }
@@ -21,7 +21,7 @@ public class ItemDto {
     private String name;
     @NotBlank
     private String description;
-    @NotBlank
+    @NotNull
     private Boolean available;
     private Long requestId;
     private Set<CommentDto> comments;
@@ -0,0 +1,21 @@
+package ru.practicum.shareit.item.dto;
+
+import java.util.Optional;
+
+public enum ItemSearchMode {
+    // Полнотекстовый поиск по словам
+    FULLTEXT,
+    // Поиск по фрагментам слов
+    TRIGRAM,
+    // Поиск по индексу в памяти сервера
+    INDEX;
+
+    public static Optional<ItemSearchMode> from(String stringMode) {
+        for (ItemSearchMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(stringMode)) {
+                return Optional.of(mode);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -27,8 +27,8 @@ public class RequestClient extends BaseClient {
         );
     }
 
-    public ResponseEntity<Object> createRequest(Long userId, RequestDto requestDto) {
-        return post("", userId, requestDto);
+    public ResponseEntity<Object> createRequest(Long userId, RequestDto requestDto, String idempotencyKey) {
+        return post("", userId, null, requestDto, idempotencyKey);
     }
 
     public ResponseEntity<Object> getRequests(Long userId) {
@@ -43,6 +43,14 @@ public class RequestClient extends BaseClient {
         return get("/all?from={from}&size={size}", userId, parameters);
     }
 
+    public ResponseEntity<Object> getRequestsPageAfter(Long userId, String after, Integer size) {
+        Map<String, Object> parameters = Map.of(
+                "after", after,
+                "size", size
+        );
+        return get("/all?after={after}&size={size}", userId, parameters);
+    }
+
     public ResponseEntity<Object> getRequest(Long userId, Long requestId) {
         return get("/" + requestId, userId);
     }
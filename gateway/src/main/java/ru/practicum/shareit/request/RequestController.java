@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.request.dto.RequestDto;
 
 import javax.validation.Valid;
@@ -21,9 +22,10 @@ public class RequestController {
 
     @PostMapping
     public ResponseEntity<Object> createRequest(@RequestHeader("X-Sharer-User-Id") long userId,
-                                                @Valid @RequestBody RequestDto requestDto) {
+                                                @Valid @RequestBody RequestDto requestDto,
+                                                @RequestHeader(value = BaseClient.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
         log.info("Create item request={} of user={}", requestDto, userId);
-        return requestClient.createRequest(userId, requestDto);
+        return requestClient.createRequest(userId, requestDto, idempotencyKey);
     }
 
     @GetMapping
@@ -35,7 +37,12 @@ public class RequestController {
     @GetMapping("/all")
     public ResponseEntity<Object> getRequestsPage(@RequestHeader("X-Sharer-User-Id") long userId,
                                                   @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                                  @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+                                                  @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                                  @RequestParam(name = "after", required = false) String after) {
+        if (after != null) {
+            log.info("Get requests page after={}, {}, of user={}", after, size, userId);
+            return requestClient.getRequestsPageAfter(userId, after, size);
+        }
         log.info("Get requests page={}, {}, of user={}", from, size, userId);
         return requestClient.getRequestsPage(userId, from, size);
     }
@@ -32,7 +32,7 @@ public class UserController {
     @PatchMapping("/{userId}")
     public ResponseEntity<Object> patchUser(
             @PathVariable Long userId,
-            @Valid @RequestBody UserDto userDto) {
+            @RequestBody UserDto userDto) {
         log.info("Patching userId={} user {}", userId, userDto);
         return userClient.patchUser(userId, userDto);
     }
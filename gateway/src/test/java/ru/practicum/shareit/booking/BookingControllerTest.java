@@ -9,16 +9,21 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingState;
 
+import javax.servlet.http.HttpServletResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -40,8 +45,8 @@ public class BookingControllerTest {
 
     @BeforeEach
     void setUp() {
-        start = LocalDateTime.now();
-        end = LocalDateTime.now();
+        start = LocalDateTime.now().plusHours(1);
+        end = LocalDateTime.now().plusDays(1);
         bookingDto = BookingDto.builder()
                 .start(start)
                 .end(end)
@@ -51,10 +56,11 @@ public class BookingControllerTest {
 
     @Test
     void createBooking() throws Exception {
-        when(bookingClient.createBooking(anyLong(), any(BookingDto.class)))
+        when(bookingClient.createBooking(anyLong(), any(BookingDto.class), eq("key-1")))
                 .thenReturn(ResponseEntity.ok(bookingDto));
         mvc.perform(post("/bookings")
                         .header("X-Sharer-User-Id", 1L)
+                        .header("Idempotency-Key", "key-1")
                         .content(mapper.writeValueAsString(bookingDto))
                         .characterEncoding(StandardCharsets.UTF_8)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -65,13 +71,112 @@ public class BookingControllerTest {
                 .andExpect(jsonPath("$.itemId", is(bookingDto.getItem().intValue())));
 
         verify(bookingClient, times(1))
-                .createBooking(anyLong(), any(BookingDto.class));
+                .createBooking(anyLong(), any(BookingDto.class), eq("key-1"));
+    }
+
+    @Test
+    void createBookings() throws Exception {
+        when(bookingClient.createBookings(anyLong(), anyList(), isNull()))
+                .thenReturn(ResponseEntity.ok(List.of(bookingDto)));
+        mvc.perform(post("/bookings/batch")
+                        .header("X-Sharer-User-Id", 1L)
+                        .content(mapper.writeValueAsString(List.of(bookingDto)))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        mvc.perform(post("/bookings/batch")
+                        .header("X-Sharer-User-Id", 1L)
+                        .content(mapper.writeValueAsString(List.of()))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", is("Batch size must be from 1 to 500.")));
+
+        verify(bookingClient, times(1))
+                .createBookings(anyLong(), anyList(), isNull());
+    }
+
+    @Test
+    void rejectInvalidBookingsOfBatch() throws Exception {
+        BookingDto withoutItem = BookingDto.builder().start(start).end(end).build();
+        BookingDto endInPast = BookingDto.builder().start(start).end(LocalDateTime.now().minusDays(1)).item(1L).build();
+
+        mvc.perform(post("/bookings/batch")
+                        .header("X-Sharer-User-Id", 1L)
+                        .content(mapper.writeValueAsString(List.of(bookingDto, withoutItem, endInPast)))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", is("createBookings.bookingDtos[1].item must not be null, " +
+                        "createBookings.bookingDtos[2].end must be a future date")));
+
+        mvc.perform(post("/bookings")
+                        .header("X-Sharer-User-Id", 1L)
+                        .content(mapper.writeValueAsString(withoutItem))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", is("item must not be null")));
+
+        verify(bookingClient, never())
+                .createBookings(anyLong(), anyList(), any());
+        verify(bookingClient, never())
+                .createBooking(anyLong(), any(BookingDto.class), any());
+    }
+
+    @Test
+    void decideBookings() throws Exception {
+        List<BookingDecisionDto> decisions = List.of(new BookingDecisionDto(1L, true));
+        when(bookingClient.decideBookings(anyLong(), anyList()))
+                .thenReturn(ResponseEntity.ok(decisions));
+        mvc.perform(patch("/bookings/owner/decisions")
+                        .header("X-Sharer-User-Id", 1L)
+                        .content(mapper.writeValueAsString(decisions))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        mvc.perform(patch("/bookings/owner/decisions")
+                        .header("X-Sharer-User-Id", 1L)
+                        .content(mapper.writeValueAsString(Collections.nCopies(501, decisions.get(0))))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", is("Batch size must be from 1 to 500.")));
+
+        verify(bookingClient, times(1))
+                .decideBookings(anyLong(), anyList());
+    }
+
+    @Test
+    void rejectInvalidDecisions() throws Exception {
+        mvc.perform(patch("/bookings/owner/decisions")
+                        .header("X-Sharer-User-Id", 1L)
+                        .content("[{\"bookingId\":1,\"approved\":true},{\"approved\":true},null]")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", is("decideBookings.decisions[1].bookingId must not be null, " +
+                        "decideBookings.decisions[2].<list element> must not be null")));
+
+        verify(bookingClient, never())
+                .decideBookings(anyLong(), anyList());
     }
 
     @Test
     void patchBooking() throws Exception {
         bookingDto.setItem(2L);
-        when(bookingClient.patchBooking(anyLong(), anyLong(), anyBoolean()))
+        when(bookingClient.patchBooking(anyLong(), anyLong(), anyBoolean(), any()))
                 .thenReturn(ResponseEntity.ok(bookingDto));
         mvc.perform(patch("/bookings/{bookingId}", 1L)
                         .header("X-Sharer-User-Id", 1L)
@@ -86,7 +191,7 @@ public class BookingControllerTest {
                 .andExpect(jsonPath("$.itemId", is(bookingDto.getItem().intValue())));
 
         verify(bookingClient, times(1))
-                .patchBooking(anyLong(), anyLong(), anyBoolean());
+                .patchBooking(anyLong(), anyLong(), anyBoolean(), isNull());
     }
 
     @Test
@@ -107,6 +212,57 @@ public class BookingControllerTest {
                 .getBooking(anyLong(), anyLong());
     }
 
+    @Test
+    void exportBookerBookings() throws Exception {
+        mvc.perform(get("/bookings/export")
+                        .header("X-Sharer-User-Id", 1L))
+                .andExpect(status().isOk());
+
+        verify(bookingClient, times(1))
+                .exportBookerBookings(eq(1L), any(HttpServletResponse.class));
+    }
+
+    @Test
+    void exportOwnerBookings() throws Exception {
+        mvc.perform(get("/bookings/owner/export")
+                        .header("X-Sharer-User-Id", 1L))
+                .andExpect(status().isOk());
+
+        verify(bookingClient, times(1))
+                .exportOwnerBookings(eq(1L), any(HttpServletResponse.class));
+    }
+
+    @Test
+    void countBookerBookings() throws Exception {
+        when(bookingClient.countBookerBookings(anyLong()))
+                .thenReturn(ResponseEntity.ok(Map.of("ALL", 2, "WAITING", 1)));
+        mvc.perform(get("/bookings/counts")
+                        .header("X-Sharer-User-Id", 1L)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ALL", is(2)))
+                .andExpect(jsonPath("$.WAITING", is(1)));
+
+        verify(bookingClient, times(1))
+                .countBookerBookings(1L);
+        verify(bookingClient, never())
+                .getBooking(anyLong(), anyLong());
+    }
+
+    @Test
+    void countOwnerBookings() throws Exception {
+        when(bookingClient.countOwnerBookings(anyLong()))
+                .thenReturn(ResponseEntity.ok(Map.of("ALL", 3)));
+        mvc.perform(get("/bookings/owner/counts")
+                        .header("X-Sharer-User-Id", 1L)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ALL", is(3)));
+
+        verify(bookingClient, times(1))
+                .countOwnerBookings(1L);
+    }
+
     @Test
     void getBookingOwnerByStatus() throws Exception {
         List<BookingDto> bookingDtos = List.of(bookingDto);
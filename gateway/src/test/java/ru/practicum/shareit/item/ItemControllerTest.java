@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
@@ -14,6 +15,7 @@ import ru.practicum.shareit.item.dto.ItemDto;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
 
 import static org.hamcrest.Matchers.hasSize;
@@ -55,7 +57,7 @@ public class ItemControllerTest {
 
     @Test
     void createItem() throws Exception {
-        when(itemClient.createItem(anyLong(), any(ItemDto.class)))
+        when(itemClient.createItem(anyLong(), any(ItemDto.class), isNull()))
                 .thenReturn(ResponseEntity.ok(itemDto));
         mvc.perform(post("/items")
                         .header("X-Sharer-User-Id", 1L)
@@ -70,16 +72,17 @@ public class ItemControllerTest {
                 .andExpect(jsonPath("$.available", is(itemDto.getAvailable())));
 
         verify(itemClient, times(1))
-                .createItem(anyLong(), any(ItemDto.class));
+                .createItem(anyLong(), any(ItemDto.class), isNull());
     }
 
     @Test
     void patchItem() throws Exception {
         itemDto.setAvailable(false);
-        when(itemClient.patchItem(anyLong(), anyLong(), any(ItemDto.class)))
+        when(itemClient.patchItem(anyLong(), anyLong(), any(ItemDto.class), any()))
                 .thenReturn(ResponseEntity.ok(itemDto));
         mvc.perform(patch("/items/{itemId}", itemDto.getId())
                         .header("X-Sharer-User-Id", 1L)
+                        .header(HttpHeaders.IF_MATCH, "\"4\"")
                         .content(mapper.writeValueAsString(itemDto))
                         .characterEncoding(StandardCharsets.UTF_8)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -91,7 +94,7 @@ public class ItemControllerTest {
                 .andExpect(jsonPath("$.available", is(itemDto.getAvailable())));
 
         verify(itemClient, times(1))
-                .patchItem(anyLong(), anyLong(), any(ItemDto.class));
+                .patchItem(anyLong(), anyLong(), any(ItemDto.class), eq("\"4\""));
     }
 
     @Test
@@ -150,7 +153,7 @@ public class ItemControllerTest {
     @Test
     void searchItems() throws Exception {
         List<ItemDto> itemDtos = List.of(itemDto);
-        when(itemClient.searchItems(anyLong(), anyString(), anyInt(), anyInt()))
+        when(itemClient.searchItems(anyLong(), anyString(), any(), anyInt(), anyInt()))
                 .thenReturn(ResponseEntity.ok(itemDtos));
         mvc.perform(get("/items/search")
                         .header("X-Sharer-User-Id", 1L)
@@ -164,12 +167,12 @@ public class ItemControllerTest {
                 .andExpect(jsonPath("$", hasSize(1)));
 
         verify(itemClient, times(1))
-                .searchItems(anyLong(), anyString(), anyInt(), anyInt());
+                .searchItems(anyLong(), anyString(), any(), anyInt(), anyInt());
     }
 
     @Test
     void addCommentToItem() throws Exception {
-        when(itemClient.addCommentToItem(anyLong(), anyLong(), any(CommentDto.class)))
+        when(itemClient.addCommentToItem(anyLong(), anyLong(), any(CommentDto.class), isNull()))
                 .thenReturn(ResponseEntity.ok(commentDto));
         mvc.perform(post("/items/{itemId}/comment", itemDto.getId())
                         .header("X-Sharer-User-Id", 1L)
@@ -184,6 +187,25 @@ public class ItemControllerTest {
                 .andExpect(jsonPath("$.created").exists());
 
         verify(itemClient, times(1))
-                .addCommentToItem(anyLong(), anyLong(), any(CommentDto.class));
+                .addCommentToItem(anyLong(), anyLong(), any(CommentDto.class), isNull());
+    }
+
+    @Test
+    void getCalendar() throws Exception {
+        when(itemClient.getCalendar(anyLong(), anyLong(), any()))
+                .thenReturn(ResponseEntity.ok(List.of()));
+        mvc.perform(get("/items/{itemId}/calendar", itemDto.getId())
+                        .header("X-Sharer-User-Id", 1L)
+                        .param("month", "2031-01")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        mvc.perform(get("/items/{itemId}/calendar", itemDto.getId())
+                        .header("X-Sharer-User-Id", 1L)
+                        .param("month", "2031-13")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verify(itemClient, times(1))
+                .getCalendar(1L, itemDto.getId(), YearMonth.of(2031, 1));
     }
 }
@@ -45,7 +45,7 @@ public class RequestControllerTest {
 
     @Test
     void createRequest() throws Exception {
-        when(requestController.createRequest(anyLong(), any(RequestDto.class)))
+        when(requestController.createRequest(anyLong(), any(RequestDto.class), isNull()))
                 .thenReturn(ResponseEntity.ok(requestDto));
         mvc.perform(post("/requests")
                         .header("X-Sharer-User-Id", 1L)
@@ -58,7 +58,7 @@ public class RequestControllerTest {
                 .andExpect(jsonPath("$.description", is(requestDto.getDescription())));
 
         verify(requestController, times(1))
-                .createRequest(anyLong(), any(RequestDto.class));
+                .createRequest(anyLong(), any(RequestDto.class), isNull());
     }
 
     @Test
@@ -85,7 +85,7 @@ public class RequestControllerTest {
     @Test
     void getRequestsPage() throws Exception {
         Set<RequestDto> requestDtos = Set.of(requestDto);
-        when(requestController.getRequestsPage(anyLong(), anyInt(), anyInt()))
+        when(requestController.getRequestsPage(anyLong(), anyInt(), anyInt(), any()))
                 .thenReturn(ResponseEntity.ok(requestDtos));
         mvc.perform(get("/requests/all")
                         .header("X-Sharer-User-Id", 1L)
@@ -102,7 +102,7 @@ public class RequestControllerTest {
                         is(requestDtos.stream().findFirst().get().getDescription())));
 
         verify(requestController, times(1))
-                .getRequestsPage(anyLong(), anyInt(), anyInt());
+                .getRequestsPage(anyLong(), anyInt(), anyInt(), any());
     }
 
     @Test
@@ -1,39 +1,141 @@
 package ru.practicum.shareit;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.datasource.ReplicaRoutingDataSource;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidatorException;
 import ru.practicum.shareit.item.ItemMapper;
 import ru.practicum.shareit.item.ItemRepository;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.ItemRequest;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepository;
 
+import javax.persistence.EntityManagerFactory;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * Users and items found once are remembered as existing for a while. Later lookups of them return a lazy reference
+ * that is only loaded if its fields are read, so a request that just checks the id or links to it skips the select.
+ * The same evictions keep the second-level cache of the l2cache profile in step with rows the base removes or
+ * changes behind Hibernate's back. Lookups answered by a lagging replica are not remembered, the row may already be
+ * gone from the primary.
+ */
 @Service
-@RequiredArgsConstructor
 public class CommonService {
+    public static final String CACHE_GETS = "shareit.cache.gets";
+    public static final String CACHE_EVICTIONS = "shareit.cache.evictions";
+    public static final String CACHE_SIZE = "shareit.cache.size";
+    public static final String ITEM_COMMENTS = Item.class.getName() + ".comments";
+
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
+    private final Cache secondLevelCache;
+    private final EntityCacheProperties properties;
+    private final TtlCache<Long, Boolean> knownUsers;
+    private final TtlCache<Long, Boolean> knownItems;
+
+    public CommonService(UserRepository userRepository, ItemRepository itemRepository,
+                         EntityManagerFactory entityManagerFactory, EntityCacheProperties properties,
+                         MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.itemRepository = itemRepository;
+        this.secondLevelCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        this.properties = properties;
+        this.knownUsers = new TtlCache<>(properties.getTtl(), properties.getMaxSize());
+        this.knownItems = new TtlCache<>(properties.getTtl(), properties.getMaxSize());
+        bindMetrics("users", knownUsers, meterRegistry);
+        bindMetrics("items", knownItems, meterRegistry);
+    }
 
     public Item getInDbItem(Long itemId) {
-        return itemRepository.findById(itemId).orElseThrow(() -> new NotFoundException("Item not found in base."));
+        if (properties.isEnabled() && knownItems.get(itemId) != null) {
+            return itemRepository.getReferenceById(itemId);
+        }
+        Item item = itemRepository.findById(itemId).orElseThrow(() -> new NotFoundException("Item not found in base."));
+        if (properties.isEnabled() && !ReplicaRoutingDataSource.isReplicaTransaction()) {
+            knownItems.put(itemId, Boolean.TRUE);
+        }
+        return item;
+    }
+
+    public Map<Long, Item> getInDbItems(Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return Map.of();
+        }
+        return itemRepository.findAllByIdIn(itemIds).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
     }
 
     public User getInDBUser(Long userId) {
-        return userRepository.findById(userId).orElseThrow(() -> new NotFoundException("User not found in base."));
+        if (properties.isEnabled() && knownUsers.get(userId) != null) {
+            return userRepository.getReferenceById(userId);
+        }
+        User user = userRepository.findById(userId).orElseThrow(() -> new NotFoundException("User not found in base."));
+        if (properties.isEnabled() && !ReplicaRoutingDataSource.isReplicaTransaction()) {
+            knownUsers.put(userId, Boolean.TRUE);
+        }
+        return user;
+    }
+
+    public void evictUser(Long userId) {
+        afterCommit(() -> knownUsers.invalidate(userId));
+    }
+
+    /**
+     * Forgets the item and its cached comments, which the base deletes together with it.
+     */
+    public void evictItem(Long itemId) {
+        afterCommit(() -> {
+            knownItems.invalidate(itemId);
+            secondLevelCache.evictCollectionData(ITEM_COMMENTS, itemId);
+        });
     }
 
-    public Set<ItemDto> getItemsByRequest(Long requestId) {
-        return itemRepository.findAllByRequest_Id(requestId).stream()
-                .map(ItemMapper::toItemDto).collect(Collectors.toSet());
+    /**
+     * Comments are added on the owning side, so Hibernate does not drop the cached comments of the item by itself.
+     */
+    public void evictItemComments(Long itemId) {
+        afterCommit(() -> secondLevelCache.evictCollectionData(ITEM_COMMENTS, itemId));
+    }
+
+    /**
+     * Forgets every item, for changes like deleting a user that remove items without naming them. The requests and
+     * comments of the user go in the same cascade.
+     */
+    public void evictItems() {
+        afterCommit(() -> {
+            knownItems.invalidateAll();
+            secondLevelCache.evictEntityData(Item.class);
+            secondLevelCache.evictEntityData(ItemRequest.class);
+            secondLevelCache.evictEntityData(Comment.class);
+            secondLevelCache.evictCollectionData(ITEM_COMMENTS);
+        });
+    }
+
+    public Map<Long, Set<ItemDto>> getItemsByRequests(Collection<Long> requestIds) {
+        if (requestIds.isEmpty()) {
+            return Map.of();
+        }
+        return itemRepository.findDistinctByRequest_IdIn(requestIds).stream()
+                .collect(Collectors.groupingBy(i -> i.getRequest().getId(),
+                        Collectors.mapping(ItemMapper::toItemDto, Collectors.toSet())));
     }
 
     public Pageable getPagination(Integer from, Integer size, String sortField) {
@@ -46,4 +148,45 @@ public class CommonService {
             return PageRequest.of(from / size, size);
         }
     }
+
+    public Pageable getSeekPagination(Integer size) {
+        if (size <= 0) {
+            throw new ValidatorException("Bad request with pagination parameters.");
+        }
+        return PageRequest.of(0, size);
+    }
+
+    /**
+     * Runs the eviction now and once more after the current transaction commits, so a lookup that raced with the
+     * change cannot keep a deleted entity known.
+     */
+    private static void afterCommit(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+        eviction.run();
+    }
+
+    private static void bindMetrics(String name, TtlCache<?, ?> cache, MeterRegistry meterRegistry) {
+        FunctionCounter.builder(CACHE_GETS, cache, TtlCache::hitCount)
+                .tag("cache", name).tag("result", "hit")
+                .description("Lookups answered by the cache")
+                .register(meterRegistry);
+        FunctionCounter.builder(CACHE_GETS, cache, TtlCache::missCount)
+                .tag("cache", name).tag("result", "miss")
+                .description("Lookups that went to the base")
+                .register(meterRegistry);
+        FunctionCounter.builder(CACHE_EVICTIONS, cache, TtlCache::evictionCount)
+                .tag("cache", name)
+                .description("Entries dropped on expiry or to stay in the size bound")
+                .register(meterRegistry);
+        Gauge.builder(CACHE_SIZE, cache, TtlCache::size)
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
 }
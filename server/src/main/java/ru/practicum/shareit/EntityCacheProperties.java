@@ -0,0 +1,21 @@
+package ru.practicum.shareit;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shareit.entity-cache")
+public class EntityCacheProperties {
+    private boolean enabled = true;
+    /**
+     * How long a user or item found in the base is trusted to exist without asking the base again.
+     */
+    private Duration ttl = Duration.ofMinutes(5);
+    private int maxSize = 10000;
+}
@@ -0,0 +1,39 @@
+package ru.practicum.shareit;
+
+import ru.practicum.shareit.exception.ValidatorException;
+
+/**
+ * Strong entity tag carrying the optimistic lock version of a booking or an item, e.g. "3".
+ */
+public class EntityTag {
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+
+    private EntityTag() {
+    }
+
+    public static String of(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Version expected by an If-Match header, or null when the header is absent or matches any version.
+     */
+    public static Long parse(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals(ANY)) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith(WEAK_PREFIX)) {
+            tag = tag.substring(WEAK_PREFIX.length());
+        }
+        if (tag.length() > 1 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.valueOf(tag);
+        } catch (NumberFormatException e) {
+            throw new ValidatorException("Bad request. Malformed If-Match header.");
+        }
+    }
+}
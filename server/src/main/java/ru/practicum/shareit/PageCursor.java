@@ -0,0 +1,85 @@
+package ru.practicum.shareit;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import ru.practicum.shareit.exception.ValidatorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+/**
+ * Opaque keyset pagination token: the sort key and the id of the last row a client has seen.
+ * Lists ordered by (key desc, id desc) continue strictly below it, lists ordered by id asc strictly above the id
+ * and lists ordered by (rank desc, id asc) below the rank or above the id within an equal rank.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class PageCursor {
+    public static final String HEADER = "X-Next-Cursor";
+    private static final LocalDateTime OPEN_KEY = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime key;
+    private final Long id;
+    private final Float rank;
+
+    /**
+     * Cursor positioned before the first row, so the offset path can run through the same seek queries.
+     */
+    public static PageCursor first() {
+        return new PageCursor(OPEN_KEY, Long.MAX_VALUE, null);
+    }
+
+    public static PageCursor of(LocalDateTime key, Long id) {
+        return new PageCursor(key, id, null);
+    }
+
+    public static PageCursor ofId(Long id) {
+        return new PageCursor(null, id, null);
+    }
+
+    public static PageCursor ofRank(Float rank, Long id) {
+        return new PageCursor(null, id, rank);
+    }
+
+    public static PageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(Pattern.quote(SEPARATOR), -1);
+            if (parts.length < 2 || parts.length > 3) {
+                throw new ValidatorException("Bad request. Cursor is not valid.");
+            }
+            return new PageCursor(parts[0].isEmpty() ? null : LocalDateTime.parse(parts[0]), Long.valueOf(parts[1]),
+                    (parts.length == 3) ? Float.valueOf(parts[2]) : null);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ValidatorException("Bad request. Cursor is not valid.");
+        }
+    }
+
+    public String encode() {
+        String raw = (key != null ? key.toString() : "") + SEPARATOR + id + (rank != null ? SEPARATOR + rank : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getRequiredKey() {
+        if (key == null) {
+            throw new ValidatorException("Bad request. Cursor is not valid.");
+        }
+        return key;
+    }
+
+    public Float getRequiredRank() {
+        if (rank == null) {
+            throw new ValidatorException("Bad request. Cursor is not valid.");
+        }
+        return rank;
+    }
+}
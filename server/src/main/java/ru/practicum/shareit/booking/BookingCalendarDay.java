@@ -0,0 +1,11 @@
+package ru.practicum.shareit.booking;
+
+import java.time.LocalDate;
+
+public interface BookingCalendarDay {
+    LocalDate getDay();
+
+    Integer getBookings();
+
+    Long getOccupiedMinutes();
+}
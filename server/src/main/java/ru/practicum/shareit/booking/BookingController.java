@@ -2,9 +2,19 @@ package ru.practicum.shareit.booking;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.EntityTag;
+import ru.practicum.shareit.PageCursor;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
 import ru.practicum.shareit.booking.dto.BookingDtoIn;
+import ru.practicum.shareit.booking.dto.BookingDtoOut;
+
+import java.util.List;
+import java.util.function.Function;
 
 @RestController
 @RequiredArgsConstructor
@@ -18,32 +28,89 @@ public class BookingController {
         return ResponseEntity.ok(bookingService.createBooking(bookingDtoIn, userId));
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<?> createBookings(@RequestBody List<BookingDtoIn> bookingDtoIns,
+                                            @RequestHeader("X-Sharer-User-Id") Long userId) {
+        return ResponseEntity.ok(bookingService.createBookings(bookingDtoIns, userId));
+    }
+
+    @PatchMapping("/owner/decisions")
+    public ResponseEntity<?> decideBookings(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                            @RequestBody List<BookingDecisionDto> decisions) {
+        return ResponseEntity.ok(bookingService.decideBookings(userId, decisions));
+    }
+
     @PatchMapping("/{bookingId}")
     public ResponseEntity<?> patchBooking(@RequestHeader("X-Sharer-User-Id") Long userId,
                                           @PathVariable Long bookingId,
-                                          @RequestParam(name = "approved") Boolean approved) {
-        return ResponseEntity.ok(bookingService.patchBooking(userId, bookingId, approved));
+                                          @RequestParam(name = "approved") Boolean approved,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        BookingDtoOut booking = bookingService.patchBooking(userId, bookingId, approved, EntityTag.parse(ifMatch));
+        return ResponseEntity.ok().eTag(EntityTag.of(booking.getVersion())).body(booking);
     }
 
     @GetMapping("/{bookingId}")
     public ResponseEntity<?> getBooking(@RequestHeader("X-Sharer-User-Id") Long userId,
                                         @PathVariable Long bookingId) {
-        return ResponseEntity.ok(bookingService.getBooking(userId, bookingId));
+        BookingDtoOut booking = bookingService.getBooking(userId, bookingId);
+        return ResponseEntity.ok().eTag(EntityTag.of(booking.getVersion())).body(booking);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBookerBookings(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> bookingService.exportBookerBookings(userId, out));
+    }
+
+    @GetMapping("/owner/export")
+    public ResponseEntity<StreamingResponseBody> exportOwnerBookings(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> bookingService.exportOwnerBookings(userId, out));
+    }
+
+    @GetMapping("/counts")
+    public ResponseEntity<?> countBookerBookings(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        return ResponseEntity.ok(bookingService.countBookerBookings(userId));
+    }
+
+    @GetMapping("/owner/counts")
+    public ResponseEntity<?> countOwnerBookings(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        return ResponseEntity.ok(bookingService.countOwnerBookings(userId));
     }
 
     @GetMapping()
     public ResponseEntity<?> getBookingOwnerByStatus(@RequestHeader("X-Sharer-User-Id") Long userId,
                                                      @RequestParam(defaultValue = "ALL") BookingState state,
                                                      @RequestParam(defaultValue = "0") Integer from,
-                                                     @RequestParam(defaultValue = "10") Integer size) {
-        return ResponseEntity.ok(bookingService.getBookingOwnerByStatus(userId, state, from, size));
+                                                     @RequestParam(defaultValue = "10") Integer size,
+                                                     @RequestParam(required = false) String after) {
+        List<BookingDtoOut> bookings = (after != null)
+                ? bookingService.getBookingOwnerByStatusAfter(userId, state, PageCursor.decode(after), size)
+                : bookingService.getBookingOwnerByStatus(userId, state, from, size);
+        return withNextCursor(bookings, size, b -> PageCursor.of(b.getStart(), b.getId()));
     }
 
     @GetMapping("/owner")
     public ResponseEntity<?> getBookingItemsByStatus(@RequestHeader("X-Sharer-User-Id") Long userId,
                                                      @RequestParam(defaultValue = "ALL") BookingState state,
                                                      @RequestParam(defaultValue = "0") Integer from,
-                                                     @RequestParam(defaultValue = "10") Integer size) {
-        return ResponseEntity.ok(bookingService.getBookingItemsByStatus(userId, state, from, size));
+                                                     @RequestParam(defaultValue = "10") Integer size,
+                                                     @RequestParam(required = false) String after) {
+        List<BookingDtoOut> bookings = (after != null)
+                ? bookingService.getBookingItemsByStatusAfter(userId, state, PageCursor.decode(after), size)
+                : bookingService.getBookingItemsByStatus(userId, state, from, size);
+        return withNextCursor(bookings, size, b -> PageCursor.of(b.getEnd(), b.getId()));
+    }
+
+    private ResponseEntity<?> withNextCursor(List<BookingDtoOut> bookings, Integer size,
+                                             Function<BookingDtoOut, PageCursor> cursor) {
+        if (bookings == null || bookings.size() < size) {
+            return ResponseEntity.ok(bookings);
+        }
+        return ResponseEntity.ok()
+                .header(PageCursor.HEADER, cursor.apply(bookings.get(bookings.size() - 1)).encode())
+                .body(bookings);
     }
 }
@@ -0,0 +1,42 @@
+package ru.practicum.shareit.booking;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * Number of bookings of one status a user has as booker or as owner of the booked items.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "booking_counters")
+@IdClass(BookingCounter.Key.class)
+public class BookingCounter {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    @Id
+    @Enumerated(EnumType.STRING)
+    private Role role;
+    @Id
+    @Enumerated(EnumType.STRING)
+    private BookingStatus status;
+    private Long count;
+
+    public enum Role {
+        BOOKER, OWNER
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private Role role;
+        private BookingStatus status;
+    }
+}
@@ -0,0 +1,10 @@
+package ru.practicum.shareit.booking;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface BookingCounterRepository extends JpaRepository<BookingCounter, BookingCounter.Key>,
+        BookingCounterRepositoryCustom {
+    List<BookingCounter> findAllByUserIdAndRole(Long userId, BookingCounter.Role role);
+}
@@ -0,0 +1,25 @@
+package ru.practicum.shareit.booking;
+
+public interface BookingCounterRepositoryCustom {
+    /**
+     * Adds the delta to the counter in one statement, creating it on the first booking of the user.
+     */
+    void add(Long userId, String role, String status, long delta);
+
+    /**
+     * Takes the bookings the database is about to delete with the user out of the counters of the other side: the
+     * owners of the items the user booked and the bookers of the user's items. The user's own counters go with the
+     * user.
+     *
+     * @return number of counters updated
+     */
+    int subtractBookingsOfUser(Long userId);
+
+    /**
+     * Takes the bookings the database is about to delete with the item out of the counters of their bookers and of
+     * the owner.
+     *
+     * @return number of counters updated
+     */
+    int subtractBookingsOfItem(Long itemId);
+}
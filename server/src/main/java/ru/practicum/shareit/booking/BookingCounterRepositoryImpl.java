@@ -0,0 +1,63 @@
+package ru.practicum.shareit.booking;
+
+import org.hibernate.query.NativeQuery;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Native statements on the counters. Hibernate does not know which tables a native statement writes and drops the whole
+ * second-level cache after it, so the statement names booking_counters as the only table it touches.
+ */
+public class BookingCounterRepositoryImpl implements BookingCounterRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void add(Long userId, String role, String status, long delta) {
+        entityManager.createNativeQuery("insert into booking_counters (user_id, role, status, count) " +
+                        "values (:userId, :role, :status, :delta) " +
+                        "on conflict (user_id, role, status) do update " +
+                        "set count = booking_counters.count + excluded.count")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(BookingCounter.class)
+                .setParameter("userId", userId)
+                .setParameter("role", role)
+                .setParameter("status", status)
+                .setParameter("delta", delta)
+                .executeUpdate();
+    }
+
+    @Override
+    public int subtractBookingsOfUser(Long userId) {
+        return subtract("select b.booker_id as user_id, 'BOOKER' as role, b.status, count(*) as count " +
+                "from bookings b join items i on i.id = b.item_id " +
+                "where i.owner_id = :userId and b.booker_id <> :userId group by b.booker_id, b.status " +
+                "union all select i.owner_id, 'OWNER', b.status, count(*) " +
+                "from bookings b join items i on i.id = b.item_id " +
+                "where b.booker_id = :userId and i.owner_id <> :userId group by i.owner_id, b.status",
+                "userId", userId);
+    }
+
+    @Override
+    public int subtractBookingsOfItem(Long itemId) {
+        return subtract("select b.booker_id as user_id, 'BOOKER' as role, b.status, count(*) as count " +
+                "from bookings b where b.item_id = :itemId group by b.booker_id, b.status " +
+                "union all select i.owner_id, 'OWNER', b.status, count(*) " +
+                "from bookings b join items i on i.id = b.item_id " +
+                "where b.item_id = :itemId group by i.owner_id, b.status", "itemId", itemId);
+    }
+
+    /**
+     * Subtracts the counts per user, role and status, the same way the partition job does for an archived month.
+     */
+    private int subtract(String doomed, String parameter, Long id) {
+        return entityManager.createNativeQuery("update booking_counters c set count = c.count - doomed.count " +
+                        "from (" + doomed + ") doomed " +
+                        "where c.user_id = doomed.user_id and c.role = doomed.role and c.status = doomed.status")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(BookingCounter.class)
+                .setParameter(parameter, id)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,58 @@
+package ru.practicum.shareit.booking;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Moves waiting bookings nobody decided on before their start to EXPIRED, one bounded chunk per transaction.
+ */
+@Slf4j
+@Component
+public class BookingExpiryJob {
+    public static final String EXPIRED_ROWS = "shareit.bookings.expiry.rows";
+    public static final String RUN_DURATION = "shareit.bookings.expiry.duration";
+
+    private final BookingRepository bookingRepository;
+    private final BookingExpiryProperties properties;
+    private final DistributionSummary expiredRows;
+    private final Timer runDuration;
+
+    public BookingExpiryJob(BookingRepository bookingRepository, BookingExpiryProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.bookingRepository = bookingRepository;
+        this.properties = properties;
+        this.expiredRows = DistributionSummary.builder(EXPIRED_ROWS)
+                .description("Waiting bookings expired by one run")
+                .register(meterRegistry);
+        this.runDuration = Timer.builder(RUN_DURATION)
+                .description("Duration of one expiry run")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.booking.expiry.delay:60000}",
+            initialDelayString = "${shareit.booking.expiry.delay:60000}")
+    public void expireWaitingBookings() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        runDuration.record(() -> {
+            LocalDateTime deadline = LocalDateTime.now().minus(properties.getGrace());
+            int total = 0;
+            int expired;
+            do {
+                expired = bookingRepository.expireWaiting(deadline, properties.getChunkSize());
+                total += expired;
+            } while (expired == properties.getChunkSize());
+            expiredRows.record(total);
+            if (total > 0) {
+                log.info("Expired {} waiting bookings started before {}", total, deadline);
+            }
+        });
+    }
+}
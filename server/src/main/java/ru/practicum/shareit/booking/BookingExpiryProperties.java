@@ -0,0 +1,21 @@
+package ru.practicum.shareit.booking;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shareit.booking.expiry")
+public class BookingExpiryProperties {
+    private boolean enabled = true;
+    /**
+     * How long after its start a waiting booking can still be approved.
+     */
+    private Duration grace = Duration.ofHours(1);
+    private int chunkSize = 500;
+}
@@ -5,6 +5,9 @@ import ru.practicum.shareit.booking.dto.BookingDtoIn;
 import ru.practicum.shareit.booking.dto.BookingDtoOut;
 import ru.practicum.shareit.booking.dto.BookingShortDto;
 import ru.practicum.shareit.item.ItemMapper;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.UserDto;
 import ru.practicum.shareit.user.UserMapper;
 
 @Component
@@ -24,6 +27,39 @@ public class BookingMapper {
                 .item(ItemMapper.toItemDto(booking.getItem()))
                 .booker(UserMapper.toUserDto(booking.getBooker()))
                 .status(booking.getStatus())
+                .version(booking.getVersion())
+                .build();
+    }
+
+    /**
+     * Same shape as a booking list row, the item's comments are not read.
+     */
+    public static BookingDtoOut toBookingSummaryDtoOut(Booking booking) {
+        Item item = booking.getItem();
+        return toBookingDtoOut(new BookingRow(booking.getId(), booking.getStart(), booking.getEnd(),
+                booking.getStatus(), item.getId(), item.getName(), item.getDescription(), item.getAvailable(),
+                item.getRequest() != null ? item.getRequest().getId() : null, booking.getBooker().getId(),
+                booking.getBooker().getName(), booking.getBooker().getEmail()));
+    }
+
+    public static BookingDtoOut toBookingDtoOut(BookingRow row) {
+        return BookingDtoOut.builder()
+                .id(row.getId())
+                .start(row.getStart())
+                .end(row.getEnd())
+                .item(ItemDto.builder()
+                        .id(row.getItemId())
+                        .name(row.getItemName())
+                        .description(row.getItemDescription())
+                        .available(row.getItemAvailable())
+                        .requestId(row.getItemRequestId())
+                        .build())
+                .booker(UserDto.builder()
+                        .id(row.getBookerId())
+                        .name(row.getBookerName())
+                        .email(row.getBookerEmail())
+                        .build())
+                .status(row.getStatus())
                 .build();
     }
 
@@ -33,4 +69,11 @@ public class BookingMapper {
                 .bookerId(booking.getBooker().getId())
                 .build();
     }
+
+    public static BookingShortDto bookingShortDto(ItemBookingSummary summary) {
+        return BookingShortDto.builder()
+                .id(summary.getId())
+                .bookerId(summary.getBookerId())
+                .build();
+    }
 }
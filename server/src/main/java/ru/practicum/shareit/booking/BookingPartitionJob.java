@@ -0,0 +1,114 @@
+package ru.practicum.shareit.booking;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps monthly range partitions of bookings ready ahead of time and optionally detaches the old ones.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingPartitionJob {
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'bookings_y'yyyy'm'MM");
+    private static final String PARTITION_PATTERN = "bookings_y\\d{4}m\\d{2}";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BookingPartitionProperties properties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${shareit.booking.partitions.cron:0 0 3 * * *}")
+    public void maintainPartitions() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        YearMonth current = YearMonth.now();
+        Set<YearMonth> attached = findAttachedPartitions();
+        for (int i = 0; i <= properties.getMonthsAhead(); i++) {
+            YearMonth month = current.plusMonths(i);
+            if (!attached.contains(month)) {
+                createPartition(month);
+            }
+        }
+        if (properties.isArchiveEnabled()) {
+            YearMonth horizon = current.minusMonths(properties.getArchiveAfterMonths());
+            attached.stream()
+                    .filter(month -> !month.isAfter(horizon))
+                    .sorted()
+                    .forEach(this::detachPartition);
+        }
+    }
+
+    public static String partitionName(YearMonth month) {
+        return PARTITION_NAME.format(month);
+    }
+
+    private Set<YearMonth> findAttachedPartitions() {
+        List<String> names = jdbcTemplate.queryForList("select c.relname from pg_inherits i " +
+                "join pg_class c on c.oid = i.inhrelid join pg_class p on p.oid = i.inhparent " +
+                "where p.relname = 'bookings'", String.class);
+        return names.stream()
+                .filter(name -> name.matches(PARTITION_PATTERN))
+                .map(name -> YearMonth.parse(name, PARTITION_NAME))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Bookings of the month that already landed in the default partition are moved into the new one before it is
+     * attached, otherwise attaching would fail the default partition's constraint check.
+     */
+    private void createPartition(YearMonth month) {
+        String name = partitionName(month);
+        Boolean exists = jdbcTemplate.queryForObject("select to_regclass(?) is not null", Boolean.class, name);
+        if (Boolean.TRUE.equals(exists)) {
+            log.warn("Table {} exists but is not attached to bookings, leaving it as is", name);
+            return;
+        }
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("create table " + name + " (like bookings including defaults including constraints)");
+            jdbcTemplate.execute("alter table " + name + " add constraint ex_" + name + "_approved_overlap " +
+                    "exclude using gist (item_id with =, tsrange(start_date, end_date) with &&) " +
+                    "where (status = 'APPROVED')");
+            int moved = jdbcTemplate.update("with moved as (delete from bookings_default " +
+                    "where start_date >= ? and start_date < ? returning *) " +
+                    "insert into " + name + " select * from moved", from, to);
+            jdbcTemplate.execute("alter table bookings attach partition " + name +
+                    " for values from ('" + from + "') to ('" + to + "')");
+            log.info("Created bookings partition {}, moved {} bookings from the default partition", name, moved);
+        });
+    }
+
+    /**
+     * Archived bookings leave the booking counters together with their partition. The detach locks bookings until the
+     * transaction ends, so no booking of the partition changes its status between the two statements.
+     */
+    private void detachPartition(YearMonth month) {
+        String name = partitionName(month);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("alter table bookings detach partition " + name);
+            int counters = jdbcTemplate.update("update booking_counters c set count = c.count - archived.count " +
+                    "from (select b.booker_id as user_id, 'BOOKER' as role, b.status, count(*) as count " +
+                    "from " + name + " b group by b.booker_id, b.status " +
+                    "union all select i.owner_id, 'OWNER', b.status, count(*) " +
+                    "from " + name + " b join items i on i.id = b.item_id group by i.owner_id, b.status) archived " +
+                    "where c.user_id = archived.user_id and c.role = archived.role and c.status = archived.status");
+            log.info("Archived bookings partition {}, updated {} booking counters", name, counters);
+        });
+    }
+}
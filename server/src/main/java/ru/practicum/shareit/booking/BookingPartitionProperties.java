@@ -0,0 +1,23 @@
+package ru.practicum.shareit.booking;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shareit.booking.partitions")
+public class BookingPartitionProperties {
+    private boolean enabled = true;
+    /**
+     * Monthly partitions kept ready after the current one.
+     */
+    private int monthsAhead = 3;
+    private boolean archiveEnabled = false;
+    /**
+     * Partitions of months at least this old are detached from bookings and kept as standalone tables.
+     */
+    private int archiveAfterMonths = 24;
+}
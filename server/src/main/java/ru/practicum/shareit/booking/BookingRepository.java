@@ -2,25 +2,236 @@ package ru.practicum.shareit.booking;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.user.User;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
-    List<Booking> findAllByBookerAndStatusLikeOrderByStartDesc(User user, BookingStatus status, Pageable pageable);
+    /**
+     * Locks the item rows until the end of the transaction, in id order. The exclusion constraint of a bookings
+     * partition does not see the other partitions, so overlap checks of one item run under this lock one transaction
+     * at a time. The lock does not block the key share locks taken by foreign keys to the item.
+     */
+    @Query(value = "select i.id from items i where i.id in (:itemIds) order by i.id for no key update",
+            nativeQuery = true)
+    List<Long> lockItems(@Param("itemIds") Collection<Long> itemIds);
+
+    @Query(value = "select i.id from items i where i.owner_id = :ownerId " +
+            "and i.id in (select b.item_id from bookings b where b.id in (:ids)) order by i.id for no key update",
+            nativeQuery = true)
+    List<Long> lockItemsOfBookings(@Param("ids") Collection<Long> ids, @Param("ownerId") Long ownerId);
+
+    /**
+     * Locks the bookings of the owner's items being decided, so the expiry job, which skips locked rows, and a
+     * concurrent patch cannot change them between the checks of the batch and its update.
+     */
+    @Query(value = "select b.id from bookings b where b.id in (:ids) " +
+            "and b.item_id in (select i.id from items i where i.owner_id = :ownerId) order by b.id for no key update",
+            nativeQuery = true)
+    List<Long> lockBookings(@Param("ids") Collection<Long> ids, @Param("ownerId") Long ownerId);
+
+    /**
+     * Same predicate as the approved overlap exclusion constraints, so it is answered by their gist indexes.
+     * An overlapping booking starts before the end of the new one, which prunes the partitions after it.
+     */
+    @Query(value = "select exists(select 1 from bookings b where b.item_id = :itemId and b.status = 'APPROVED' " +
+            "and b.start_date < :end " +
+            "and tsrange(b.start_date, b.end_date) && tsrange(:start, :end) and b.id <> :excludeId)",
+            nativeQuery = true)
+    boolean existsApprovedOverlap(@Param("itemId") Long itemId, @Param("start") LocalDateTime start,
+                                  @Param("end") LocalDateTime end, @Param("excludeId") Long excludeId);
+
+    /**
+     * Last finished and next not finished booking of every item in one round trip, at most one row of each kind per item.
+     */
+    @Query(value = "select * from (select distinct on (b.item_id) 'LAST' as \"kind\", b.id as \"id\", " +
+            "b.item_id as \"itemId\", b.booker_id as \"bookerId\" from bookings b " +
+            "where b.item_id in (:itemIds) and b.end_date < :now " +
+            "order by b.item_id, b.end_date desc, b.id desc) as last_bookings " +
+            "union all " +
+            "select * from (select distinct on (b.item_id) 'NEXT' as \"kind\", b.id as \"id\", " +
+            "b.item_id as \"itemId\", b.booker_id as \"bookerId\" from bookings b " +
+            "where b.item_id in (:itemIds) and b.end_date > :now " +
+            "order by b.item_id, b.start_date, b.id) as next_bookings",
+            nativeQuery = true)
+    List<ItemBookingSummary> findLastAndNextByItemIds(@Param("itemIds") Collection<Long> itemIds,
+                                                      @Param("now") LocalDateTime now);
+
+    /**
+     * Approved bookings and minutes they occupy on every day from from to to, exclusive. Each day is joined to the
+     * bookings overlapping it through ix_bookings_item_start, the start bound prunes partitions after the range.
+     */
+    @Query(value = "select cast(d.day as date) as \"day\", cast(count(b.id) as int) as \"bookings\", " +
+            "cast(coalesce(sum(extract(epoch from least(b.end_date, d.day + interval '1 day') " +
+            "- greatest(b.start_date, d.day)) / 60) filter (where b.id is not null), 0) as bigint) " +
+            "as \"occupiedMinutes\" " +
+            "from generate_series(cast(:from as timestamp), cast(:to as timestamp) - interval '1 day', " +
+            "interval '1 day') as d(day) " +
+            "left join bookings b on b.item_id = :itemId and b.status = 'APPROVED' and b.start_date < :to " +
+            "and b.start_date < d.day + interval '1 day' and b.end_date > d.day " +
+            "group by d.day order by d.day", nativeQuery = true)
+    List<BookingCalendarDay> findApprovedCalendar(@Param("itemId") Long itemId, @Param("from") LocalDateTime from,
+                                                  @Param("to") LocalDateTime to);
+
+    @Query("select b.id as id, b.item.id as itemId, b.start as start, b.end as end from Booking b " +
+            "where b.item.id in :itemIds and b.status = :status and b.start < :to and b.end > :from")
+    List<BookingInterval> findIntervals(@Param("itemIds") Collection<Long> itemIds,
+                                        @Param("status") BookingStatus status,
+                                        @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Select list of the seek queries below: one joined row per booking, the item's comments and owner are not loaded.
+     * Bookings are partitioned by start, so PAST queries repeat the start < now implied by end < now to prune them.
+     */
+    String ROW = "select new ru.practicum.shareit.booking.BookingRow(b.id, b.start, b.end, b.status, " +
+            "i.id, i.name, i.description, i.available, r.id, u.id, u.name, u.email) " +
+            "from Booking b join b.item i left join i.request r join b.booker u ";
+
+    /**
+     * Expires one chunk of waiting bookings that started before the deadline, walking ix_bookings_waiting_start, and
+     * moves them from the waiting to the expired booking counters in the same statement.
+     * Rows locked by a concurrent decision are skipped and left to a later run.
+     */
+    @Transactional
+    @Query(value = "with expired as (update bookings set status = 'EXPIRED', version = version + 1 where id in (" +
+            "select id from bookings where status = 'WAITING' and start_date < :deadline " +
+            "order by start_date limit :limit for update skip locked) returning booker_id, item_id), " +
+            "deltas as (select e.booker_id as user_id, 'BOOKER' as role from expired e union all " +
+            "select i.owner_id, 'OWNER' from expired e join items i on i.id = e.item_id), " +
+            "counted as (insert into booking_counters (user_id, role, status, count) " +
+            "select d.user_id, d.role, s.status, s.delta * count(*) from deltas d " +
+            "cross join (values ('WAITING', -1), ('EXPIRED', 1)) as s (status, delta) " +
+            "group by d.user_id, d.role, s.status, s.delta " +
+            "on conflict (user_id, role, status) do update set count = booking_counters.count + excluded.count) " +
+            "select count(*) from expired", nativeQuery = true)
+    int expireWaiting(@Param("deadline") LocalDateTime deadline, @Param("limit") int limit);
+
+    /**
+     * Only bookings that have not ended are read, through ix_bookings_booker_end, so the cost does not grow with the
+     * booking history of the user.
+     */
+    @Query(value = "select count(*) as \"unfinished\", " +
+            "count(*) filter (where b.start_date > :now) as \"future\", " +
+            "count(*) filter (where b.start_date < :now and b.end_date > :now) as \"current\", " +
+            "count(*) filter (where b.status = 'REJECTED') as \"rejected\" " +
+            "from bookings b where b.booker_id = :bookerId and b.end_date >= :now", nativeQuery = true)
+    BookingTimeCounts countUnfinishedByBooker(@Param("bookerId") Long bookerId, @Param("now") LocalDateTime now);
+
+    /**
+     * Same counts for the owner, read per item through ix_bookings_item_end.
+     */
+    @Query(value = "select count(*) as \"unfinished\", " +
+            "count(*) filter (where b.start_date > :now) as \"future\", " +
+            "count(*) filter (where b.start_date < :now and b.end_date > :now) as \"current\", " +
+            "count(*) filter (where b.status = 'REJECTED') as \"rejected\" " +
+            "from bookings b join items i on i.id = b.item_id " +
+            "where i.owner_id = :ownerId and b.end_date >= :now", nativeQuery = true)
+    BookingTimeCounts countUnfinishedByOwner(@Param("ownerId") Long ownerId, @Param("now") LocalDateTime now);
+
+    @Query("select b.id as id, b.item.id as itemId, b.start as start, b.end as end from Booking b " +
+            "where b.booker.id = :bookerId and b.status = :status")
+    List<BookingInterval> findIntervalsOfBooker(@Param("bookerId") Long bookerId,
+                                                @Param("status") BookingStatus status);
+
+    @Query("select b.id as id, b.item.id as itemId, b.start as start, b.end as end from Booking b " +
+            "where b.status = :status and b.end > :now")
+    Stream<BookingInterval> streamIntervals(@Param("status") BookingStatus status, @Param("now") LocalDateTime now);
+
+    /**
+     * Whole booking history of the booker for the export, read through a cursor in chunks of the fetch size.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(ROW + "where b.booker = :booker order by b.start desc, b.id desc")
+    Stream<BookingRow> streamByBooker(@Param("booker") User booker);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(ROW + "where i.owner = :owner order by b.end desc, b.id desc")
+    Stream<BookingRow> streamByOwner(@Param("owner") User owner);
+
+    @Query(ROW + "where b.id in :ids and i.owner = :owner")
+    List<BookingRow> findByIdsAndOwner(@Param("ids") Collection<Long> ids, @Param("owner") User owner);
+
+    @Modifying
+    @Query("update Booking b set b.status = :status, b.version = b.version + 1 where b.id in :ids")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") BookingStatus status);
+
+    @Query(ROW + "where b.booker = :booker " +
+            "and (b.start < :key or (b.start = :key and b.id < :id)) " +
+            "order by b.start desc, b.id desc")
+    List<BookingRow> findAllByBookerAfter(@Param("booker") User booker, @Param("key") LocalDateTime key,
+                                          @Param("id") Long id, Pageable pageable);
+
+    @Query(ROW + "where b.booker = :booker and b.start < :now and b.end > :now " +
+            "and (b.start < :key or (b.start = :key and b.id < :id)) " +
+            "order by b.start desc, b.id desc")
+    List<BookingRow> findCurrentByBookerAfter(@Param("booker") User booker, @Param("now") LocalDateTime now,
+                                              @Param("key") LocalDateTime key, @Param("id") Long id,
+                                              Pageable pageable);
+
+    @Query(ROW + "where b.booker = :booker and b.start > :now " +
+            "and (b.start < :key or (b.start = :key and b.id < :id)) " +
+            "order by b.start desc, b.id desc")
+    List<BookingRow> findFutureByBookerAfter(@Param("booker") User booker, @Param("now") LocalDateTime now,
+                                             @Param("key") LocalDateTime key, @Param("id") Long id,
+                                             Pageable pageable);
+
+    @Query(ROW + "where b.booker = :booker and b.status = :status " +
+            "and (b.start < :key or (b.start = :key and b.id < :id)) " +
+            "order by b.start desc, b.id desc")
+    List<BookingRow> findByBookerAndStatusAfter(@Param("booker") User booker, @Param("status") BookingStatus status,
+                                                @Param("key") LocalDateTime key, @Param("id") Long id,
+                                                Pageable pageable);
+
+    @Query(ROW + "where b.booker = :booker and b.start < :now and b.end < :now and b.status <> :excluded " +
+            "and (b.start < :key or (b.start = :key and b.id < :id)) " +
+            "order by b.start desc, b.id desc")
+    List<BookingRow> findPastByBookerAfter(@Param("booker") User booker, @Param("now") LocalDateTime now,
+                                           @Param("excluded") BookingStatus excluded,
+                                           @Param("key") LocalDateTime key, @Param("id") Long id,
+                                           Pageable pageable);
 
-    List<Booking> findAllByBookerOrderByStartDesc(User user, Pageable pageable);
+    @Query(ROW + "where i.owner = :owner " +
+            "and (b.end < :key or (b.end = :key and b.id < :id)) " +
+            "order by b.end desc, b.id desc")
+    List<BookingRow> findAllByOwnerAfter(@Param("owner") User owner, @Param("key") LocalDateTime key,
+                                         @Param("id") Long id, Pageable pageable);
 
-    List<Booking> findAllByBookerAndStartAfterOrderByStartDesc(User user, LocalDateTime start, Pageable pagination);
+    @Query(ROW + "where i.owner = :owner and b.start < :now and b.end > :now " +
+            "and (b.end < :key or (b.end = :key and b.id < :id)) " +
+            "order by b.end desc, b.id desc")
+    List<BookingRow> findCurrentByOwnerAfter(@Param("owner") User owner, @Param("now") LocalDateTime now,
+                                             @Param("key") LocalDateTime key, @Param("id") Long id,
+                                             Pageable pageable);
 
-    List<Booking> findAllByBookerAndStartBeforeAndEndAfterOrderByStartDesc(
-            User user, LocalDateTime now, LocalDateTime now2, Pageable pageable);
+    @Query(ROW + "where i.owner = :owner and b.start > :now " +
+            "and (b.end < :key or (b.end = :key and b.id < :id)) " +
+            "order by b.end desc, b.id desc")
+    List<BookingRow> findFutureByOwnerAfter(@Param("owner") User owner, @Param("now") LocalDateTime now,
+                                            @Param("key") LocalDateTime key, @Param("id") Long id,
+                                            Pageable pageable);
 
-    @Query(value = "select * from bookings left join items on bookings.item_id = items.id " +
-            "where items.owner_id = ?1 order by bookings.end_date desc", nativeQuery = true)
-    List<Booking> findAllBookingOfUserInItem(Long userId, Pageable pageable);
+    @Query(ROW + "where i.owner = :owner and b.status = :status " +
+            "and (b.end < :key or (b.end = :key and b.id < :id)) " +
+            "order by b.end desc, b.id desc")
+    List<BookingRow> findByOwnerAndStatusAfter(@Param("owner") User owner, @Param("status") BookingStatus status,
+                                               @Param("key") LocalDateTime key, @Param("id") Long id,
+                                               Pageable pageable);
 
-    List<Booking> findAllByBookerAndEndBeforeAndStatusNot(User user, LocalDateTime now, BookingStatus rejected, Pageable pageable);
+    @Query(ROW + "where i.owner = :owner and b.start < :now and b.end < :now " +
+            "and (b.end < :key or (b.end = :key and b.id < :id)) " +
+            "order by b.end desc, b.id desc")
+    List<BookingRow> findPastByOwnerAfter(@Param("owner") User owner, @Param("now") LocalDateTime now,
+                                          @Param("key") LocalDateTime key, @Param("id") Long id,
+                                          Pageable pageable);
 }
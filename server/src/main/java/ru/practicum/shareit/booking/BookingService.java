@@ -1,20 +1,40 @@
 package ru.practicum.shareit.booking;
 
-
+import ru.practicum.shareit.PageCursor;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
 import ru.practicum.shareit.booking.dto.BookingDtoIn;
 import ru.practicum.shareit.booking.dto.BookingDtoOut;
 
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
 
 public interface BookingService {
     BookingDtoOut createBooking(BookingDtoIn bookingDtoIn, Long userId);
 
-    BookingDtoOut patchBooking(Long userId, Long bookingId, Boolean approve);
+    List<BookingBatchResultDto> createBookings(List<BookingDtoIn> bookingDtoIns, Long userId);
+
+    BookingDtoOut patchBooking(Long userId, Long bookingId, Boolean approve, Long expectedVersion);
+
+    List<BookingBatchResultDto> decideBookings(Long userId, List<BookingDecisionDto> decisions);
 
     BookingDtoOut getBooking(Long userId, Long bookingId);
 
+    void exportBookerBookings(Long userId, OutputStream out);
+
+    void exportOwnerBookings(Long userId, OutputStream out);
+
+    Map<BookingState, Long> countBookerBookings(Long userId);
+
+    Map<BookingState, Long> countOwnerBookings(Long userId);
+
     List<BookingDtoOut> getBookingOwnerByStatus(Long userId, BookingState approved, Integer from, Integer size);
 
+    List<BookingDtoOut> getBookingOwnerByStatusAfter(Long userId, BookingState approved, PageCursor after, Integer size);
+
     List<BookingDtoOut> getBookingItemsByStatus(Long userId, BookingState approved, Integer from, Integer size);
 
+    List<BookingDtoOut> getBookingItemsByStatusAfter(Long userId, BookingState approved, PageCursor after, Integer size);
+
 }
@@ -1,34 +1,150 @@
 package ru.practicum.shareit.booking;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.CommonService;
+import ru.practicum.shareit.PageCursor;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
 import ru.practicum.shareit.booking.dto.BookingDtoIn;
 import ru.practicum.shareit.booking.dto.BookingDtoOut;
 import ru.practicum.shareit.exception.IdViolationException;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.exception.PreconditionFailedException;
 import ru.practicum.shareit.exception.ValidatorException;
+import ru.practicum.shareit.item.ItemAvailabilityIndex;
+import ru.practicum.shareit.item.ItemCalendarCache;
+import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.User;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @RequiredArgsConstructor
 @Service
+@Transactional(readOnly = true)
 public class BookingServiceImpl implements BookingService {
     private final BookingRepository bookingRepository;
     private final CommonService commonService;
+    private final ItemAvailabilityIndex availabilityIndex;
+    private final ItemCalendarCache calendarCache;
+    private final BookingCounterRepository bookingCounterRepository;
+    private final ObjectMapper objectMapper;
 
     @Override
+    @Transactional
     public BookingDtoOut createBooking(BookingDtoIn bookingDtoIn, Long userId) {
         Booking booking = BookingMapper.toBooking(bookingDtoIn);
         booking.setBooker(commonService.getInDBUser(userId));
         booking.setItem(commonService.getInDbItem(bookingDtoIn.getItem()));
         booking.setStatus(BookingStatus.WAITING);
+        checkNewBooking(booking, userId);
+        bookingRepository.lockItems(List.of(booking.getItem().getId()));
+        checkApprovedOverlap(booking);
+        Booking saved;
+        try {
+            saved = bookingRepository.saveAndFlush(booking);
+        } catch (DataIntegrityViolationException e) {
+            throw new IdViolationException("This booking is already in base.");
+        }
+        Map<BookingCounter.Key, Long> counters = new HashMap<>();
+        addToCounters(counters, saved, saved.getStatus(), 1);
+        saveCounters(counters);
+        return BookingMapper.toBookingDtoOut(saved);
+    }
+
+    /**
+     * Booker and items are loaded once for the whole batch and approved bookings overlapping any entry are read in a
+     * single query; the accepted entries are then inserted together, in jdbc batches.
+     */
+    @Override
+    @Transactional
+    public List<BookingBatchResultDto> createBookings(List<BookingDtoIn> bookingDtoIns, Long userId) {
+        User booker = commonService.getInDBUser(userId);
+        Map<Long, Item> items = commonService.getInDbItems(bookingDtoIns.stream()
+                .map(BookingDtoIn::getItem)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+        if (!items.isEmpty()) {
+            bookingRepository.lockItems(items.keySet());
+        }
+        Map<Long, List<BookingInterval>> approved = findApprovedIntervals(bookingDtoIns, items.keySet());
+        List<BookingBatchResultDto> results = new ArrayList<>();
+        List<Booking> accepted = new ArrayList<>();
+        for (int i = 0; i < bookingDtoIns.size(); i++) {
+            BookingDtoIn bookingDtoIn = bookingDtoIns.get(i);
+            try {
+                Item item = items.get(bookingDtoIn.getItem());
+                if (item == null) {
+                    throw new NotFoundException("Item not found in base.");
+                }
+                Booking booking = BookingMapper.toBooking(bookingDtoIn);
+                booking.setBooker(booker);
+                booking.setItem(item);
+                booking.setStatus(BookingStatus.WAITING);
+                checkNewBooking(booking, userId);
+                if (approved.getOrDefault(item.getId(), List.of()).stream().anyMatch(interval ->
+                        overlaps(interval.getStart(), interval.getEnd(), booking.getStart(), booking.getEnd()))) {
+                    throw new IdViolationException("Conflict. Item is already booked for this time.");
+                }
+                accepted.add(booking);
+                results.add(BookingBatchResultDto.builder().index(i).build());
+            } catch (ValidatorException | NotFoundException | IdViolationException e) {
+                results.add(BookingBatchResultDto.builder().index(i).error(e.getMessage()).build());
+            }
+        }
+        Iterator<Booking> saved = bookingRepository.saveAll(accepted).iterator();
+        Map<BookingCounter.Key, Long> counters = new HashMap<>();
+        for (BookingBatchResultDto result : results) {
+            if (result.getError() == null) {
+                Booking booking = saved.next();
+                addToCounters(counters, booking, booking.getStatus(), 1);
+                result.setBooking(BookingMapper.toBookingSummaryDtoOut(booking));
+            }
+        }
+        saveCounters(counters);
+        return results;
+    }
+
+    private Map<Long, List<BookingInterval>> findApprovedIntervals(List<BookingDtoIn> bookingDtoIns,
+                                                                   Collection<Long> itemIds) {
+        Optional<LocalDateTime> from = bookingDtoIns.stream()
+                .map(BookingDtoIn::getStart)
+                .filter(Objects::nonNull)
+                .min(Comparator.naturalOrder());
+        Optional<LocalDateTime> to = bookingDtoIns.stream()
+                .map(BookingDtoIn::getEnd)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder());
+        if (itemIds.isEmpty() || from.isEmpty() || to.isEmpty()) {
+            return Map.of();
+        }
+        return bookingRepository.findIntervals(itemIds, BookingStatus.APPROVED, from.get(), to.get()).stream()
+                .collect(Collectors.groupingBy(BookingInterval::getItemId));
+    }
+
+    private void checkNewBooking(Booking booking, Long userId) {
         if (Stream.of(booking.getBooker(), booking.getStart(), booking.getEnd())
                 .anyMatch(Objects::isNull)) {
             throw new ValidatorException("Bad request. Booker or start or end is null.");
@@ -44,15 +160,11 @@ public class BookingServiceImpl implements BookingService {
         if (checkOwnerId.equals(userId)) {
             throw new NotFoundException("Bad request. User id with id of owner is not equal.");
         }
-        try {
-            return BookingMapper.toBookingDtoOut(bookingRepository.save(booking));
-        } catch (DataIntegrityViolationException e) {
-            throw new IdViolationException("This booking is already in base.");
-        }
     }
 
     @Override
-    public BookingDtoOut patchBooking(Long userId, Long bookingId, Boolean approved) {
+    @Transactional
+    public BookingDtoOut patchBooking(Long userId, Long bookingId, Boolean approved, Long expectedVersion) {
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new NotFoundException("Not found. Booking not found in base."));
         Long owner = booking.getItem().getOwner().getId();
@@ -60,18 +172,227 @@ public class BookingServiceImpl implements BookingService {
         if (!checkUserId.equals(owner)) {
             throw new NotFoundException("Not found. User id with id of owner is not equal.");
         }
+        if (expectedVersion != null && !expectedVersion.equals(booking.getVersion())) {
+            throw new PreconditionFailedException("Precondition failed. Booking version is " + booking.getVersion()
+                    + ".");
+        }
         if (!booking.getItem().getAvailable()) {
             throw new ValidatorException("Bad request. Item is not available.");
         }
         if ((booking.getStatus() == BookingStatus.APPROVED) && approved) {
             throw new ValidatorException("Bad request. Booking is already approved.");
         }
+        if (booking.getStatus() == BookingStatus.EXPIRED) {
+            throw new ValidatorException("Bad request. Booking is expired.");
+        }
+        if (approved) {
+            bookingRepository.lockItems(List.of(booking.getItem().getId()));
+            checkApprovedOverlap(booking);
+        }
+        BookingStatus previous = booking.getStatus();
         booking.setStatus(approved ? BookingStatus.APPROVED : BookingStatus.REJECTED);
+        Booking saved;
         try {
-            return BookingMapper.toBookingDtoOut(bookingRepository.save(booking));
+            saved = bookingRepository.saveAndFlush(booking);
         } catch (DataIntegrityViolationException e) {
             throw new IdViolationException("Booking already is there.");
         }
+        Map<BookingCounter.Key, Long> counters = new HashMap<>();
+        addToCounters(counters, saved, previous, -1);
+        addToCounters(counters, saved, saved.getStatus(), 1);
+        saveCounters(counters);
+        availabilityIndex.onBookingChanged(saved);
+        calendarCache.evict(saved.getItem().getId());
+        return BookingMapper.toBookingDtoOut(saved);
+    }
+
+    /**
+     * Items of the bookings are locked first, then the bookings are read with their items in one query restricted to
+     * the owner and every outcome is written with one update statement. Rejections go first so that they free their
+     * intervals before the approvals are written.
+     */
+    @Override
+    @Transactional
+    public List<BookingBatchResultDto> decideBookings(Long userId, List<BookingDecisionDto> decisions) {
+        User owner = commonService.getInDBUser(userId);
+        Set<Long> bookingIds = decisions.stream()
+                .filter(Objects::nonNull)
+                .map(BookingDecisionDto::getBookingId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, BookingRow> rows = new HashMap<>();
+        if (!bookingIds.isEmpty()) {
+            bookingRepository.lockItemsOfBookings(bookingIds, owner.getId());
+            bookingRepository.lockBookings(bookingIds, owner.getId());
+            bookingRepository.findByIdsAndOwner(bookingIds, owner).forEach(row -> rows.put(row.getId(), row));
+        }
+        BookingRow[] validated = new BookingRow[decisions.size()];
+        String[] errors = new String[decisions.size()];
+        Set<Long> listed = new HashSet<>();
+        for (int i = 0; i < decisions.size(); i++) {
+            try {
+                validated[i] = validateDecision(decisions.get(i), rows, listed);
+                listed.add(validated[i].getId());
+            } catch (ValidatorException | NotFoundException e) {
+                errors[i] = e.getMessage();
+            }
+        }
+        Set<Long> rejected = new HashSet<>();
+        List<BookingRow> approvals = new ArrayList<>();
+        for (int i = 0; i < decisions.size(); i++) {
+            if (validated[i] != null) {
+                if (decisions.get(i).getApproved()) {
+                    approvals.add(validated[i]);
+                } else {
+                    rejected.add(validated[i].getId());
+                }
+            }
+        }
+        Map<Long, List<BookingInterval>> approvedIntervals = findApprovedIntervals(approvals);
+        List<BookingBatchResultDto> results = new ArrayList<>();
+        Map<Long, BookingStatus> outcomes = new LinkedHashMap<>();
+        List<BookingRow> approving = new ArrayList<>();
+        for (int i = 0; i < decisions.size(); i++) {
+            BookingRow row = validated[i];
+            if (row == null) {
+                results.add(BookingBatchResultDto.builder().index(i).error(errors[i]).build());
+                continue;
+            }
+            boolean approved = decisions.get(i).getApproved();
+            if (approved) {
+                boolean booked = approvedIntervals.getOrDefault(row.getItemId(), List.of()).stream()
+                        .filter(interval -> !rejected.contains(interval.getId()))
+                        .anyMatch(interval -> overlaps(interval.getStart(), interval.getEnd(),
+                                row.getStart(), row.getEnd()))
+                        || approving.stream()
+                        .filter(other -> other.getItemId().equals(row.getItemId()))
+                        .anyMatch(other -> overlaps(other.getStart(), other.getEnd(), row.getStart(), row.getEnd()));
+                if (booked) {
+                    results.add(BookingBatchResultDto.builder().index(i)
+                            .error("Conflict. Item is already booked for this time.").build());
+                    continue;
+                }
+                approving.add(row);
+            }
+            outcomes.put(row.getId(), approved ? BookingStatus.APPROVED : BookingStatus.REJECTED);
+            results.add(BookingBatchResultDto.builder().index(i).build());
+        }
+        try {
+            for (BookingStatus status : List.of(BookingStatus.REJECTED, BookingStatus.APPROVED)) {
+                Set<Long> ids = outcomes.entrySet().stream()
+                        .filter(outcome -> outcome.getValue() == status)
+                        .map(Map.Entry::getKey)
+                        .collect(Collectors.toSet());
+                if (!ids.isEmpty() && bookingRepository.updateStatus(ids, status) != ids.size()) {
+                    throw new IdViolationException("Conflict. Booking was changed by another request.");
+                }
+            }
+        } catch (DataIntegrityViolationException e) {
+            throw new IdViolationException("Conflict. Item is already booked for this time.");
+        }
+        Iterator<Long> decided = outcomes.keySet().iterator();
+        Map<BookingCounter.Key, Long> counters = new HashMap<>();
+        for (BookingBatchResultDto result : results) {
+            if (result.getError() == null) {
+                BookingRow row = rows.get(decided.next());
+                BookingStatus status = outcomes.get(row.getId());
+                addToCounters(counters, row.getBookerId(), userId, row.getStatus(), -1);
+                addToCounters(counters, row.getBookerId(), userId, status, 1);
+                availabilityIndex.onBookingChanged(row, status);
+                BookingDtoOut booking = BookingMapper.toBookingDtoOut(row);
+                booking.setStatus(status);
+                result.setBooking(booking);
+            }
+        }
+        saveCounters(counters);
+        rows.values().stream()
+                .filter(row -> outcomes.containsKey(row.getId()))
+                .map(BookingRow::getItemId)
+                .distinct()
+                .forEach(calendarCache::evict);
+        return results;
+    }
+
+    /**
+     * Checks of one decision that do not depend on the other decisions of the batch, except for duplicates.
+     */
+    private static BookingRow validateDecision(BookingDecisionDto decision, Map<Long, BookingRow> rows,
+                                               Set<Long> listed) {
+        if (decision == null) {
+            throw new ValidatorException("Bad request. Decision is null.");
+        }
+        BookingRow row = rows.get(decision.getBookingId());
+        if (row == null) {
+            throw new NotFoundException("Not found. Booking not found in base.");
+        }
+        if (decision.getApproved() == null) {
+            throw new ValidatorException("Bad request. Approved flag is null.");
+        }
+        if (listed.contains(row.getId())) {
+            throw new ValidatorException("Bad request. Booking is listed twice.");
+        }
+        if (!row.getItemAvailable()) {
+            throw new ValidatorException("Bad request. Item is not available.");
+        }
+        if ((row.getStatus() == BookingStatus.APPROVED) && decision.getApproved()) {
+            throw new ValidatorException("Bad request. Booking is already approved.");
+        }
+        if (row.getStatus() == BookingStatus.EXPIRED) {
+            throw new ValidatorException("Bad request. Booking is expired.");
+        }
+        return row;
+    }
+
+    private static void addToCounters(Map<BookingCounter.Key, Long> counters, Booking booking, BookingStatus status,
+                                      long delta) {
+        addToCounters(counters, booking.getBooker().getId(), booking.getItem().getOwner().getId(), status, delta);
+    }
+
+    private static void addToCounters(Map<BookingCounter.Key, Long> counters, Long bookerId, Long ownerId,
+                                      BookingStatus status, long delta) {
+        counters.merge(new BookingCounter.Key(bookerId, BookingCounter.Role.BOOKER, status), delta, Long::sum);
+        counters.merge(new BookingCounter.Key(ownerId, BookingCounter.Role.OWNER, status), delta, Long::sum);
+    }
+
+    /**
+     * Counters are written in key order, so concurrent requests lock the counter rows they share in the same order.
+     */
+    private void saveCounters(Map<BookingCounter.Key, Long> counters) {
+        counters.entrySet().stream()
+                .filter(counter -> counter.getValue() != 0)
+                .sorted(Map.Entry.comparingByKey(Comparator.comparing(BookingCounter.Key::getUserId)
+                        .thenComparing(BookingCounter.Key::getRole)
+                        .thenComparing(BookingCounter.Key::getStatus)))
+                .forEach(counter -> bookingCounterRepository.add(counter.getKey().getUserId(),
+                        counter.getKey().getRole().name(), counter.getKey().getStatus().name(), counter.getValue()));
+    }
+
+    private Map<Long, List<BookingInterval>> findApprovedIntervals(List<BookingRow> rows) {
+        if (rows.isEmpty()) {
+            return Map.of();
+        }
+        return bookingRepository.findIntervals(
+                        rows.stream().map(BookingRow::getItemId).collect(Collectors.toSet()),
+                        BookingStatus.APPROVED,
+                        rows.stream().map(BookingRow::getStart).min(Comparator.naturalOrder()).get(),
+                        rows.stream().map(BookingRow::getEnd).max(Comparator.naturalOrder()).get()).stream()
+                .collect(Collectors.groupingBy(BookingInterval::getItemId));
+    }
+
+    /**
+     * Half-open ranges, like the tsrange of the exclusion constraint: touching bookings do not overlap.
+     */
+    private static boolean overlaps(LocalDateTime start, LocalDateTime end,
+                                    LocalDateTime otherStart, LocalDateTime otherEnd) {
+        return start.isBefore(otherEnd) && end.isAfter(otherStart);
+    }
+
+    private void checkApprovedOverlap(Booking booking) {
+        Long excludeId = booking.getId() != null ? booking.getId() : 0L;
+        if (bookingRepository.existsApprovedOverlap(booking.getItem().getId(), booking.getStart(), booking.getEnd(),
+                excludeId)) {
+            throw new IdViolationException("Conflict. Item is already booked for this time.");
+        }
     }
 
     @Override
@@ -89,72 +410,160 @@ public class BookingServiceImpl implements BookingService {
         return BookingMapper.toBookingDtoOut(booking);
     }
 
+    @Override
+    public void exportBookerBookings(Long userId, OutputStream out) {
+        User booker = commonService.getInDBUser(userId);
+        try (Stream<BookingRow> rows = bookingRepository.streamByBooker(booker)) {
+            writeNdjson(rows, out);
+        }
+    }
+
+    @Override
+    public void exportOwnerBookings(Long userId, OutputStream out) {
+        User owner = commonService.getInDBUser(userId);
+        try (Stream<BookingRow> rows = bookingRepository.streamByOwner(owner)) {
+            writeNdjson(rows, out);
+        }
+    }
+
+    /**
+     * One json document per line, written as the rows arrive; the rows are projections, so nothing piles up in the
+     * persistence context either.
+     */
+    private void writeNdjson(Stream<BookingRow> rows, OutputStream out) {
+        Iterator<BookingRow> iterator = rows.iterator();
+        try {
+            while (iterator.hasNext()) {
+                out.write(objectMapper.writeValueAsBytes(BookingMapper.toBookingDtoOut(iterator.next())));
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Map<BookingState, Long> countBookerBookings(Long userId) {
+        commonService.getInDBUser(userId);
+        return countBookings(bookingCounterRepository.findAllByUserIdAndRole(userId, BookingCounter.Role.BOOKER),
+                bookingRepository.countUnfinishedByBooker(userId, LocalDateTime.now()), true);
+    }
+
+    @Override
+    public Map<BookingState, Long> countOwnerBookings(Long userId) {
+        commonService.getInDBUser(userId);
+        return countBookings(bookingCounterRepository.findAllByUserIdAndRole(userId, BookingCounter.Role.OWNER),
+                bookingRepository.countUnfinishedByOwner(userId, LocalDateTime.now()), false);
+    }
+
+    /**
+     * Status counts come from the counters, time dependent ones from the bookings that have not ended: whatever is
+     * not among them is past. The booker's past list leaves out rejected bookings, the owner's does not.
+     */
+    private static Map<BookingState, Long> countBookings(List<BookingCounter> counters, BookingTimeCounts unfinished,
+                                                         boolean pastWithoutRejected) {
+        Map<BookingStatus, Long> byStatus = counters.stream()
+                .collect(Collectors.toMap(BookingCounter::getStatus, BookingCounter::getCount));
+        long all = byStatus.values().stream().mapToLong(Long::longValue).sum();
+        long rejected = byStatus.getOrDefault(BookingStatus.REJECTED, 0L);
+        long past = all - unfinished.getUnfinished();
+        if (pastWithoutRejected) {
+            past -= rejected - unfinished.getRejected();
+        }
+        Map<BookingState, Long> counts = new EnumMap<>(BookingState.class);
+        counts.put(BookingState.ALL, all);
+        counts.put(BookingState.CURRENT, unfinished.getCurrent());
+        counts.put(BookingState.FUTURE, unfinished.getFuture());
+        counts.put(BookingState.WAITING, byStatus.getOrDefault(BookingStatus.WAITING, 0L));
+        counts.put(BookingState.REJECTED, rejected);
+        counts.put(BookingState.PAST, past);
+        return counts;
+    }
+
     @Override
     public List<BookingDtoOut> getBookingOwnerByStatus(Long userId, BookingState status, Integer from, Integer size) {
-        User user = commonService.getInDBUser(userId);
+        return getBookerPage(userId, status, PageCursor.first(), commonService.getPagination(from, size, null));
+    }
+
+    @Override
+    public List<BookingDtoOut> getBookingOwnerByStatusAfter(Long userId, BookingState status,
+                                                            PageCursor after, Integer size) {
+        return getBookerPage(userId, status, after, commonService.getSeekPagination(size));
+    }
+
+    @Override
+    public List<BookingDtoOut> getBookingItemsByStatus(Long userId, BookingState approved, Integer from, Integer size) {
+        return getOwnerPage(userId, approved, PageCursor.first(), commonService.getPagination(from, size, null));
+    }
+
+    @Override
+    public List<BookingDtoOut> getBookingItemsByStatusAfter(Long userId, BookingState approved,
+                                                            PageCursor after, Integer size) {
+        return getOwnerPage(userId, approved, after, commonService.getSeekPagination(size));
+    }
+
+    private List<BookingDtoOut> getBookerPage(Long userId, BookingState status, PageCursor after, Pageable pageable) {
+        User booker = commonService.getInDBUser(userId);
+        LocalDateTime key = after.getRequiredKey();
+        LocalDateTime now = LocalDateTime.now();
+        List<BookingRow> bookings;
         switch (status) {
             case ALL:
-                return bookingRepository
-                        .findAllByBookerOrderByStartDesc(user, commonService.getPagination(from, size, null))
-                        .stream().map(BookingMapper::toBookingDtoOut).collect(Collectors.toList());
+                bookings = bookingRepository.findAllByBookerAfter(booker, key, after.getId(), pageable);
+                break;
             case CURRENT:
-                return bookingRepository
-                        .findAllByBookerAndStartBeforeAndEndAfterOrderByStartDesc(
-                                user, LocalDateTime.now(), LocalDateTime.now(),
-                                commonService.getPagination(from, size, null))
-                        .stream().map(BookingMapper::toBookingDtoOut).collect(Collectors.toList());
+                bookings = bookingRepository.findCurrentByBookerAfter(booker, now, key, after.getId(), pageable);
+                break;
             case FUTURE:
-                return bookingRepository
-                        .findAllByBookerAndStartAfterOrderByStartDesc(
-                                user, LocalDateTime.now(), commonService.getPagination(from, size, null))
-                        .stream().map(BookingMapper::toBookingDtoOut).collect(Collectors.toList());
+                bookings = bookingRepository.findFutureByBookerAfter(booker, now, key, after.getId(), pageable);
+                break;
             case WAITING:
-                return bookingRepository
-                        .findAllByBookerAndStatusLikeOrderByStartDesc(
-                                user, BookingStatus.WAITING, commonService.getPagination(from, size, null))
-                        .stream().map(BookingMapper::toBookingDtoOut).collect(Collectors.toList());
+                bookings = bookingRepository.findByBookerAndStatusAfter(
+                        booker, BookingStatus.WAITING, key, after.getId(), pageable);
+                break;
             case REJECTED:
-                return bookingRepository
-                        .findAllByBookerAndStatusLikeOrderByStartDesc(
-                                user, BookingStatus.REJECTED, commonService.getPagination(from, size, null))
-                        .stream().map(BookingMapper::toBookingDtoOut).collect(Collectors.toList());
+                bookings = bookingRepository.findByBookerAndStatusAfter(
+                        booker, BookingStatus.REJECTED, key, after.getId(), pageable);
+                break;
             case PAST:
-                return bookingRepository
-                        .findAllByBookerAndEndBeforeAndStatusNot(
-                                user, LocalDateTime.now(), BookingStatus.REJECTED,
-                                commonService.getPagination(from, size, null))
-                        .stream().map(BookingMapper::toBookingDtoOut).collect(Collectors.toList());
+                bookings = bookingRepository.findPastByBookerAfter(
+                        booker, now, BookingStatus.REJECTED, key, after.getId(), pageable);
+                break;
             default:
                 throw new NotFoundException("Not found. No such booking state.");
         }
+        return bookings.stream().map(BookingMapper::toBookingDtoOut).collect(Collectors.toList());
     }
 
-    @Override
-    public List<BookingDtoOut> getBookingItemsByStatus(Long userId, BookingState approved, Integer from, Integer size) {
-        commonService.getInDBUser(userId);
-        List<BookingDtoOut> searchBookings = bookingRepository.findAllBookingOfUserInItem(
-                        userId, commonService.getPagination(from, size, null)).stream()
-                .map(BookingMapper::toBookingDtoOut).collect(Collectors.toList());
-        switch (approved) {
+    private List<BookingDtoOut> getOwnerPage(Long userId, BookingState status, PageCursor after, Pageable pageable) {
+        User owner = commonService.getInDBUser(userId);
+        LocalDateTime key = after.getRequiredKey();
+        LocalDateTime now = LocalDateTime.now();
+        List<BookingRow> bookings;
+        switch (status) {
             case ALL:
-                return searchBookings;
+                bookings = bookingRepository.findAllByOwnerAfter(owner, key, after.getId(), pageable);
+                break;
             case CURRENT:
-                return searchBookings.stream().filter(b -> b.getStart().isBefore(LocalDateTime.now()))
-                        .filter(b -> b.getEnd().isAfter(LocalDateTime.now())).collect(Collectors.toList());
+                bookings = bookingRepository.findCurrentByOwnerAfter(owner, now, key, after.getId(), pageable);
+                break;
             case FUTURE:
-                return searchBookings.stream().filter(b -> b.getStart().isAfter(LocalDateTime.now()))
-                        .collect(Collectors.toList());
+                bookings = bookingRepository.findFutureByOwnerAfter(owner, now, key, after.getId(), pageable);
+                break;
             case WAITING:
-                return searchBookings.stream().filter(b -> b.getStatus() == BookingStatus.WAITING)
-                        .collect(Collectors.toList());
+                bookings = bookingRepository.findByOwnerAndStatusAfter(
+                        owner, BookingStatus.WAITING, key, after.getId(), pageable);
+                break;
             case REJECTED:
-                return searchBookings.stream().filter(b -> b.getStatus() == BookingStatus.REJECTED)
-                        .collect(Collectors.toList());
+                bookings = bookingRepository.findByOwnerAndStatusAfter(
+                        owner, BookingStatus.REJECTED, key, after.getId(), pageable);
+                break;
             case PAST:
-                return searchBookings.stream().filter(b -> b.getEnd().isBefore(LocalDateTime.now()))
-                        .collect(Collectors.toList());
+                bookings = bookingRepository.findPastByOwnerAfter(owner, now, key, after.getId(), pageable);
+                break;
             default:
                 throw new NotFoundException("Not found. No such booking state.");
         }
+        return bookings.stream().map(BookingMapper::toBookingDtoOut).collect(Collectors.toList());
     }
 }
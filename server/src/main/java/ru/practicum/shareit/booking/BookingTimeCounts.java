@@ -0,0 +1,14 @@
+package ru.practicum.shareit.booking;
+
+/**
+ * Time dependent counts over the bookings that have not ended yet.
+ */
+public interface BookingTimeCounts {
+    long getUnfinished();
+
+    long getFuture();
+
+    long getCurrent();
+
+    long getRejected();
+}
@@ -0,0 +1,14 @@
+package ru.practicum.shareit.booking;
+
+public interface ItemBookingSummary {
+    String LAST = "LAST";
+    String NEXT = "NEXT";
+
+    String getKind();
+
+    Long getId();
+
+    Long getItemId();
+
+    Long getBookerId();
+}
@@ -0,0 +1,15 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Outcome of one entry of a batch, either the created booking or the reason it was rejected.
+ */
+@Data
+@Builder
+public class BookingBatchResultDto {
+    private Integer index;
+    private BookingDtoOut booking;
+    private String error;
+}
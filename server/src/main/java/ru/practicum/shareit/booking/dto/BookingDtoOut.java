@@ -1,5 +1,6 @@
 package ru.practicum.shareit.booking.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Builder;
 import lombok.Data;
 import ru.practicum.shareit.booking.BookingStatus;
@@ -17,5 +18,7 @@ public class BookingDtoOut {
     private ItemDto item;
     private UserDto booker;
     private BookingStatus status;
+    @JsonIgnore
+    private Long version;
 
 }
@@ -0,0 +1,41 @@
+package ru.practicum.shareit.datasource;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Names the client of the request for the read-after-write window of ReplicaRoutingDataSource: the user of the
+ * X-Sharer-User-Id header, or one shared client for requests without it. Runs before every other filter so that the
+ * writes of the idempotency filter count as well.
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReadAfterWriteFilter extends OncePerRequestFilter {
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+    private static final ThreadLocal<String> CLIENT = new ThreadLocal<>();
+
+    /**
+     * Client of the request the current thread serves, null outside of requests.
+     */
+    static String currentClient() {
+        return CLIENT.get();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        CLIENT.set(Objects.requireNonNullElse(request.getHeader(USER_HEADER), ""));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            CLIENT.remove();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ru.practicum.shareit.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Decides whether the replica may serve reads: it must answer the lag query and, when a maximum lag is set, be no
+ * further behind. Until the first check the replica is trusted.
+ */
+@Slf4j
+public class ReplicaLagMonitor implements MeterBinder {
+    public static final String REPLICA_LAG = "shareit.datasource.replica.lag";
+    public static final String REPLICA_AVAILABLE = "shareit.datasource.replica.available";
+
+    private final DataSource replica;
+    private final ReplicaProperties properties;
+    private volatile boolean available = true;
+    private volatile double lagSeconds;
+
+    public ReplicaLagMonitor(DataSource replica, ReplicaProperties properties) {
+        this.replica = replica;
+        this.properties = properties;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        Gauge.builder(REPLICA_LAG, this, monitor -> monitor.lagSeconds)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder(REPLICA_AVAILABLE, this, monitor -> monitor.available ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.datasource.replica.lag-check-delay:5000}")
+    public void check() {
+        boolean wasAvailable = available;
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(properties.getLagQuery())) {
+            lagSeconds = resultSet.next() ? resultSet.getDouble(1) : 0;
+            available = properties.getMaxLag() == null || lagSeconds * 1000 <= properties.getMaxLag().toMillis();
+            if (!available && wasAvailable) {
+                log.warn("Replica is {} s behind, reads go to the primary", lagSeconds);
+            }
+        } catch (SQLException e) {
+            available = false;
+            if (wasAvailable) {
+                log.warn("Replica does not answer, reads go to the primary: {}", e.getMessage());
+            }
+        }
+        if (available && !wasAvailable) {
+            log.info("Replica is back, {} s behind", lagSeconds);
+        }
+    }
+
+    /**
+     * Takes the replica out until the next check that finds it usable.
+     */
+    public void markDown(SQLException cause) {
+        if (available) {
+            available = false;
+            log.warn("Replica refused a connection, reads go to the primary: {}", cause.getMessage());
+        }
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public double getLagSeconds() {
+        return lagSeconds;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.practicum.shareit.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shareit.datasource.replica")
+public class ReplicaProperties {
+    private boolean enabled = false;
+    private String url;
+    /**
+     * Username and password of the replica, those of spring.datasource when not set.
+     */
+    private String username;
+    private String password;
+    /**
+     * Read-only transactions go to the primary while the replica lags more than this. Not set means lag is not
+     * checked, only whether the replica answers.
+     */
+    private Duration maxLag;
+    /**
+     * Read-only transactions of a client go to the primary for this long after a write of that client commits, so that
+     * it reads back what it has just written although the replica has not replayed it yet. Not set means reads go to
+     * the replica at once.
+     */
+    private Duration readAfterWrite;
+    /**
+     * How many clients that wrote within the read-after-write window are remembered; past it the least recent
+     * writer reads from the replica again.
+     */
+    private int readAfterWriteClients = 10000;
+    /**
+     * Seconds the replica is behind. The default measures a Postgres standby and is 0 when it has replayed all it
+     * received, so an idle primary does not look like lag. After a restart the standby has replayed past the point it
+     * resumes receiving from, which counts as caught up as well.
+     */
+    private String lagQuery = "select case when pg_last_wal_receive_lsn() <= pg_last_wal_replay_lsn() then 0 " +
+            "else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()), 0) end";
+}
@@ -0,0 +1,139 @@
+package ru.practicum.shareit.datasource;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.TtlCache;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out replica connections to read-only transactions while the monitor lets it, primary connections to
+ * everything else. A replica that refuses a connection is taken out and the primary serves the transaction instead.
+ * For the read-after-write window after a committed write, the reads of the client that wrote stay on the primary as
+ * well; clients are told apart by ReadAfterWriteFilter, writes outside of requests open no window.
+ * A transaction served by the replica may see rows up to the maximum lag old, so its Hibernate session only reads the
+ * second-level cache and isReplicaTransaction tells the other caches not to keep what it loaded.
+ * The transaction manager asks for its connection before it marks the transaction read-only, so this is to be used
+ * behind a LazyConnectionDataSourceProxy, which only asks once the first statement runs.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements MeterBinder {
+    public static final String CONNECTIONS = "shareit.datasource.connections";
+    public static final String FALLBACKS = "shareit.datasource.fallbacks";
+    private static final Object REPLICA_TRANSACTION = new Object();
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaLagMonitor monitor;
+    private final ReplicaProperties properties;
+    private final TtlCache<String, Boolean> recentWriters;
+    private final LongAdder primaryConnections = new LongAdder();
+    private final LongAdder replicaConnections = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor monitor,
+                                    ReplicaProperties properties) {
+        this.primary = primary;
+        this.replica = replica;
+        this.monitor = monitor;
+        this.properties = properties;
+        Duration readAfterWrite = properties.getReadAfterWrite();
+        this.recentWriters = (readAfterWrite == null || readAfterWrite.isZero()) ? null
+                : new TtlCache<>(readAfterWrite, properties.getReadAfterWriteClients());
+    }
+
+    /**
+     * Whether the current transaction reads from the replica, so what it loads must not be cached.
+     */
+    public static boolean isReplicaTransaction() {
+        return TransactionSynchronizationManager.hasResource(REPLICA_TRANSACTION);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        FunctionCounter.builder(CONNECTIONS, primaryConnections, LongAdder::sum)
+                .tag("pool", "primary")
+                .register(meterRegistry);
+        FunctionCounter.builder(CONNECTIONS, replicaConnections, LongAdder::sum)
+                .tag("pool", "replica")
+                .register(meterRegistry);
+        FunctionCounter.builder(FALLBACKS, fallbacks, LongAdder::sum)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        String client = ReadAfterWriteFilter.currentClient();
+        if (readOnly && monitor.isAvailable() && !writtenRecently(client)) {
+            try {
+                Connection connection = connect(replica, username, password);
+                replicaConnections.increment();
+                markReplicaTransaction();
+                return connection;
+            } catch (SQLException e) {
+                monitor.markDown(e);
+                fallbacks.increment();
+            }
+        }
+        Connection connection = connect(primary, username, password);
+        primaryConnections.increment();
+        if (!readOnly && recentWriters != null && client != null
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        recentWriters.put(client, Boolean.TRUE);
+                    }
+                }
+            });
+        }
+        return connection;
+    }
+
+    private boolean writtenRecently(String client) {
+        return recentWriters != null && client != null && recentWriters.get(client) != null;
+    }
+
+    /**
+     * Keeps the replica rows of the transaction out of the second-level cache and flags the transaction until it
+     * completes.
+     */
+    private static void markReplicaTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || isReplicaTransaction()) {
+            return;
+        }
+        for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+            if (resource instanceof EntityManagerHolder) {
+                ((EntityManagerHolder) resource).getEntityManager().unwrap(Session.class).setCacheMode(CacheMode.GET);
+            }
+        }
+        TransactionSynchronizationManager.bindResource(REPLICA_TRANSACTION, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(REPLICA_TRANSACTION);
+            }
+        });
+    }
+
+    private static Connection connect(DataSource dataSource, String username, String password) throws SQLException {
+        return (username == null) ? dataSource.getConnection() : dataSource.getConnection(username, password);
+    }
+}
@@ -1,6 +1,7 @@
 package ru.practicum.shareit.exception;
 
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.ServletRequestBindingException;
@@ -9,6 +10,7 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
+import javax.persistence.EntityNotFoundException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -24,11 +26,30 @@ public class ErrorHandler {
         return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler
+    public ResponseEntity<?> concurrentUpdateHandler(final OptimisticLockingFailureException e) {
+        return new ResponseEntity<>("Conflict. Entity was changed concurrently, reload it and retry.",
+                HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<?> preconditionFailedHandler(final PreconditionFailedException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.PRECONDITION_FAILED);
+    }
+
     @ExceptionHandler
     public ResponseEntity<?> notFoundHandler(final NotFoundException e) {
         return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
     }
 
+    /**
+     * A user or item known to CommonService that was deleted since is only noticed when its reference is loaded.
+     */
+    @ExceptionHandler
+    public ResponseEntity<?> entityNotFoundHandler(final EntityNotFoundException e) {
+        return new ResponseEntity<>("Entity not found in base.", HttpStatus.NOT_FOUND);
+    }
+
     @ExceptionHandler
     public ResponseEntity<?> badRequestHandler(final ServletRequestBindingException e) {
         return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
@@ -0,0 +1,212 @@
+package ru.practicum.shareit.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import ru.practicum.shareit.TtlCache;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Runs a POST to bookings, items or requests at most once per Idempotency-Key of a user. The first request claims the
+ * key and its response is kept, retries with the same key and body get that response back without running the
+ * request again. Responses with a 5xx status are not kept, so the retry after them runs the request.
+ */
+@Slf4j
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotency-Replayed";
+    public static final int MAX_KEY_LENGTH = 255;
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+    private static final Pattern PATHS = Pattern.compile("/(bookings|items|requests)(/.*)?");
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final IdempotencyProperties properties;
+    private final TtlCache<IdempotencyKey.Key, IdempotencyKey> responses;
+
+    public IdempotencyFilter(IdempotencyKeyRepository idempotencyKeyRepository, IdempotencyProperties properties) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.properties = properties;
+        this.responses = new TtlCache<>(properties.getCacheTtl(), properties.getCacheSize());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled()
+                || !HttpMethod.POST.matches(request.getMethod())
+                || request.getHeader(HEADER) == null
+                || !PATHS.matcher(request.getRequestURI().substring(request.getContextPath().length())).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Long userId = parseUserId(request.getHeader(USER_HEADER));
+        if (userId == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String key = request.getHeader(HEADER);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST,
+                    "Idempotency key must be from 1 to " + MAX_KEY_LENGTH + " characters long.");
+            return;
+        }
+        byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+        String requestHash = requestHash(request, body);
+        IdempotencyKey.Key id = new IdempotencyKey.Key(userId, key);
+        LocalDateTime now = LocalDateTime.now();
+
+        IdempotencyKey stored = responses.get(id);
+        if (stored == null || !stored.getExpiresAt().isAfter(now)) {
+            LocalDateTime lockedUntil = now.plus(properties.getLockTimeout());
+            if (idempotencyKeyRepository.reserve(userId, key, requestHash, now, lockedUntil) == 1) {
+                execute(new CachedBodyRequest(request, body), response, chain, id, requestHash, now);
+                return;
+            }
+            stored = idempotencyKeyRepository.findById(id).orElse(null);
+        }
+
+        if (stored == null || !stored.isCompleted()) {
+            writeError(response, HttpStatus.CONFLICT, "Request with this idempotency key is still in progress.");
+        } else if (!stored.getRequestHash().equals(requestHash)) {
+            writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency key was already used for a different request.");
+        } else {
+            responses.put(id, stored);
+            log.debug("Replaying response of idempotency key={} of user={}", key, userId);
+            response.setStatus(stored.getStatus());
+            if (stored.getContentType() != null) {
+                response.setContentType(stored.getContentType());
+            }
+            response.setHeader(REPLAYED_HEADER, "true");
+            response.getOutputStream().write(stored.getBody());
+        }
+    }
+
+    private void execute(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+                         IdempotencyKey.Key id, String requestHash, LocalDateTime now)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, wrapper);
+        } catch (IOException | ServletException | RuntimeException e) {
+            idempotencyKeyRepository.release(id.getUserId(), id.getIdempotencyKey());
+            throw e;
+        }
+        if (wrapper.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+            idempotencyKeyRepository.release(id.getUserId(), id.getIdempotencyKey());
+        } else {
+            byte[] responseBody = wrapper.getContentAsByteArray();
+            LocalDateTime expiresAt = now.plus(properties.getTtl());
+            idempotencyKeyRepository.complete(id.getUserId(), id.getIdempotencyKey(), wrapper.getStatus(),
+                    Objects.requireNonNullElse(wrapper.getContentType(), ""), responseBody, expiresAt);
+            responses.put(id, new IdempotencyKey(id.getUserId(), id.getIdempotencyKey(),
+                    requestHash, wrapper.getStatus(), wrapper.getContentType(), responseBody, expiresAt));
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private static Long parseUserId(String header) {
+        try {
+            return header == null ? null : Long.valueOf(header);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String requestHash(HttpServletRequest request, byte[] body) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(request.getRequestURI().getBytes(StandardCharsets.UTF_8));
+        content.write('?');
+        if (request.getQueryString() != null) {
+            content.write(request.getQueryString().getBytes(StandardCharsets.UTF_8));
+        }
+        content.write('\n');
+        content.write(body);
+        return DigestUtils.md5DigestAsHex(content.toByteArray());
+    }
+
+    private static void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(message);
+    }
+
+    /**
+     * Request whose body was read ahead to hash it, handed on to the controllers with that body.
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    // The whole body is already in memory, so it is available and complete right away.
+                    try {
+                        readListener.onDataAvailable();
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ru.practicum.shareit.idempotency;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Idempotency key a user sent with a POST request. The response is null while the first request with the key is
+ * still running, after that it is replayed to every retry until the key expires.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "idempotency_keys")
+@IdClass(IdempotencyKey.Key.class)
+public class IdempotencyKey {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    @Id
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+    @Column(name = "request_hash")
+    private String requestHash;
+    private Integer status;
+    @Column(name = "content_type")
+    private String contentType;
+    private byte[] body;
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    public boolean isCompleted() {
+        return status != null;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private String idempotencyKey;
+    }
+}
@@ -0,0 +1,37 @@
+package ru.practicum.shareit.idempotency;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Deletes expired idempotency keys, one bounded chunk per transaction.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdempotencyKeyCleanupJob {
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final IdempotencyProperties properties;
+
+    @Scheduled(fixedDelayString = "${shareit.idempotency.cleanup-delay:600000}",
+            initialDelayString = "${shareit.idempotency.cleanup-delay:600000}")
+    public void deleteExpiredKeys() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+        int deleted;
+        do {
+            deleted = idempotencyKeyRepository.deleteExpired(now, properties.getCleanupChunkSize());
+            total += deleted;
+        } while (deleted == properties.getCleanupChunkSize());
+        if (total > 0) {
+            log.info("Deleted {} idempotency keys expired before {}", total, now);
+        }
+    }
+}
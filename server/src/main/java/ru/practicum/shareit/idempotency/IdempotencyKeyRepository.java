@@ -0,0 +1,17 @@
+package ru.practicum.shareit.idempotency;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, IdempotencyKey.Key>,
+        IdempotencyKeyRepositoryCustom {
+    /**
+     * Not read-only, so the key is read from the primary: a retry right after the first request would find no
+     * response on a lagging replica yet and be told the request is still in progress.
+     */
+    @Override
+    @Transactional
+    Optional<IdempotencyKey> findById(IdempotencyKey.Key id);
+}
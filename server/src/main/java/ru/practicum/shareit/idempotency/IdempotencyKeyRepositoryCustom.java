@@ -0,0 +1,24 @@
+package ru.practicum.shareit.idempotency;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyKeyRepositoryCustom {
+    /**
+     * Claims the key for a request about to run. A key that has expired is taken over, a live one is left as it is.
+     *
+     * @return 1 when the key was claimed, 0 when it is held by another request or has a response
+     */
+    int reserve(Long userId, String key, String requestHash, LocalDateTime now, LocalDateTime expiresAt);
+
+    /**
+     * Keeps the response of the request that claimed the key. An empty content type is stored as null.
+     */
+    void complete(Long userId, String key, int status, String contentType, byte[] body, LocalDateTime expiresAt);
+
+    /**
+     * Frees a claimed key whose request failed, so a retry runs it again.
+     */
+    void release(Long userId, String key);
+
+    int deleteExpired(LocalDateTime now, int limit);
+}
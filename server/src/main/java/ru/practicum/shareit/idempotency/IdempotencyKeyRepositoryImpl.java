@@ -0,0 +1,73 @@
+package ru.practicum.shareit.idempotency;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+
+/**
+ * Native statements on the keys. Each one names idempotency_keys as the only table it touches, otherwise Hibernate
+ * drops the whole second-level cache after every POST with a key.
+ */
+public class IdempotencyKeyRepositoryImpl implements IdempotencyKeyRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int reserve(Long userId, String key, String requestHash, LocalDateTime now, LocalDateTime expiresAt) {
+        return query("insert into idempotency_keys (user_id, idempotency_key, request_hash, expires_at) " +
+                "values (:userId, :key, :requestHash, :expiresAt) " +
+                "on conflict (user_id, idempotency_key) do update set request_hash = excluded.request_hash, " +
+                "status = null, content_type = null, body = null, expires_at = excluded.expires_at " +
+                "where idempotency_keys.expires_at < :now")
+                .setParameter("userId", userId)
+                .setParameter("key", key)
+                .setParameter("requestHash", requestHash)
+                .setParameter("now", now)
+                .setParameter("expiresAt", expiresAt)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public void complete(Long userId, String key, int status, String contentType, byte[] body,
+                         LocalDateTime expiresAt) {
+        query("update idempotency_keys set status = :status, content_type = nullif(:contentType, ''), " +
+                "body = :body, expires_at = :expiresAt where user_id = :userId and idempotency_key = :key")
+                .setParameter("status", status)
+                .setParameter("contentType", contentType)
+                .setParameter("body", body)
+                .setParameter("expiresAt", expiresAt)
+                .setParameter("userId", userId)
+                .setParameter("key", key)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public void release(Long userId, String key) {
+        query("delete from idempotency_keys where user_id = :userId and idempotency_key = :key and status is null")
+                .setParameter("userId", userId)
+                .setParameter("key", key)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public int deleteExpired(LocalDateTime now, int limit) {
+        return query("delete from idempotency_keys where (user_id, idempotency_key) in (" +
+                "select k.user_id, k.idempotency_key from idempotency_keys k where k.expires_at < :now limit :limit)")
+                .setParameter("now", now)
+                .setParameter("limit", limit)
+                .executeUpdate();
+    }
+
+    private NativeQuery<?> query(String sql) {
+        return entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(IdempotencyKey.class);
+    }
+}
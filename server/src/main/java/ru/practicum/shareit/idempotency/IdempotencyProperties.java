@@ -0,0 +1,27 @@
+package ru.practicum.shareit.idempotency;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shareit.idempotency")
+public class IdempotencyProperties {
+    private boolean enabled = true;
+    /**
+     * How long a response is replayed for retries of its key.
+     */
+    private Duration ttl = Duration.ofHours(24);
+    /**
+     * How long a running request holds its key. A key left behind by a crashed server is free again after it.
+     */
+    private Duration lockTimeout = Duration.ofMinutes(1);
+    private int cacheSize = 10000;
+    private Duration cacheTtl = Duration.ofMinutes(10);
+    private int cleanupChunkSize = 500;
+}
@@ -0,0 +1,145 @@
+package ru.practicum.shareit.item;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingInterval;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingRow;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.dto.FreeWindowDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Approved booking intervals of every item, keyed by start.
+ * Approved bookings of one item never overlap (the service checks them under a lock on the item row, the exclusion
+ * constraints only cover one bookings partition each), so a sorted map is enough
+ * to answer free window queries without going to the database.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemAvailabilityIndex {
+    private final BookingRepository bookingRepository;
+    private final Map<Long, NavigableMap<LocalDateTime, Interval>> intervals = new ConcurrentHashMap<>();
+
+    /**
+     * Reads the primary, the transaction is not read-only. After this the index only follows commits, so a booking
+     * the replica had not replayed yet would stay missing.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void warmUp() {
+        intervals.clear();
+        try (Stream<BookingInterval> stream = bookingRepository.streamIntervals(BookingStatus.APPROVED,
+                LocalDateTime.now())) {
+            stream.forEach(b -> put(b.getItemId(), b.getId(), b.getStart(), b.getEnd()));
+        }
+        log.info("Availability index warmed up for {} items", intervals.size());
+    }
+
+    public void onBookingChanged(Booking booking) {
+        onBookingChanged(booking.getItem().getId(), booking.getId(), booking.getStart(), booking.getEnd(),
+                booking.getStatus());
+    }
+
+    public void onBookingChanged(BookingRow row, BookingStatus status) {
+        onBookingChanged(row.getItemId(), row.getId(), row.getStart(), row.getEnd(), status);
+    }
+
+    private void onBookingChanged(Long itemId, Long bookingId, LocalDateTime start, LocalDateTime end,
+                                  BookingStatus status) {
+        afterCommit(() -> {
+            if (status == BookingStatus.APPROVED) {
+                put(itemId, bookingId, start, end);
+            } else {
+                remove(itemId, bookingId, start);
+            }
+        });
+    }
+
+    /**
+     * Drops a booking deleted together with its booker.
+     */
+    public void removeBooking(BookingInterval booking) {
+        afterCommit(() -> remove(booking.getItemId(), booking.getId(), booking.getStart()));
+    }
+
+    public void removeItem(Long itemId) {
+        afterCommit(() -> intervals.remove(itemId));
+    }
+
+    public List<FreeWindowDto> getFreeWindows(Long itemId, LocalDateTime from, LocalDateTime to) {
+        List<FreeWindowDto> windows = new ArrayList<>();
+        LocalDateTime cursor = from;
+        NavigableMap<LocalDateTime, Interval> item = intervals.get(itemId);
+        if (item != null) {
+            Map.Entry<LocalDateTime, Interval> before = item.lowerEntry(from);
+            if (before != null && before.getValue().getEnd().isAfter(cursor)) {
+                cursor = before.getValue().getEnd();
+            }
+            for (Map.Entry<LocalDateTime, Interval> entry : item.subMap(from, true, to, false).entrySet()) {
+                if (entry.getKey().isAfter(cursor)) {
+                    windows.add(new FreeWindowDto(cursor, entry.getKey()));
+                }
+                if (entry.getValue().getEnd().isAfter(cursor)) {
+                    cursor = entry.getValue().getEnd();
+                }
+            }
+        }
+        if (cursor.isBefore(to)) {
+            windows.add(new FreeWindowDto(cursor, to));
+        }
+        return windows;
+    }
+
+    /**
+     * Changes made inside a transaction are applied once it commits, so an approval that is rolled back never shows up.
+     */
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private void remove(Long itemId, Long bookingId, LocalDateTime start) {
+        NavigableMap<LocalDateTime, Interval> item = intervals.get(itemId);
+        if (item != null) {
+            item.computeIfPresent(start,
+                    (key, interval) -> interval.getBookingId().equals(bookingId) ? null : interval);
+        }
+    }
+
+    private void put(Long itemId, Long bookingId, LocalDateTime start, LocalDateTime end) {
+        intervals.computeIfAbsent(itemId, k -> new ConcurrentSkipListMap<>())
+                .put(start, new Interval(bookingId, end));
+    }
+
+    @Value
+    private static class Interval {
+        Long bookingId;
+        LocalDateTime end;
+    }
+}
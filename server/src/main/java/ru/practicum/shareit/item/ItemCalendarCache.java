@@ -0,0 +1,68 @@
+package ru.practicum.shareit.item;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.datasource.ReplicaRoutingDataSource;
+import ru.practicum.shareit.item.dto.CalendarDayDto;
+
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Month calendars of the most recently viewed items. The months of an item are dropped together when one of its
+ * bookings is approved or stops being approved, and once more after that change is committed.
+ */
+@Component
+public class ItemCalendarCache {
+    public static final int MAX_ITEMS = 1000;
+
+    private final Map<Long, Map<YearMonth, List<CalendarDayDto>>> items =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Map<YearMonth, List<CalendarDayDto>>> eldest) {
+                    return size() > MAX_ITEMS;
+                }
+            };
+
+    /**
+     * A calendar loaded while the item is evicted goes to the months map that was already dropped, so a load that
+     * raced with a change is never served afterwards. A calendar read from the replica is returned without being kept.
+     */
+    public List<CalendarDayDto> get(Long itemId, YearMonth month, Supplier<List<CalendarDayDto>> loader) {
+        Map<YearMonth, List<CalendarDayDto>> months;
+        synchronized (items) {
+            months = items.computeIfAbsent(itemId, k -> new ConcurrentHashMap<>());
+        }
+        List<CalendarDayDto> days = months.get(month);
+        if (days == null) {
+            days = loader.get();
+            if (!ReplicaRoutingDataSource.isReplicaTransaction()) {
+                months.put(month, days);
+            }
+        }
+        return days;
+    }
+
+    public void evict(Long itemId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(itemId);
+                }
+            });
+        }
+        remove(itemId);
+    }
+
+    private void remove(Long itemId) {
+        synchronized (items) {
+            items.remove(itemId);
+        }
+    }
+}
@@ -2,11 +2,20 @@ package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.EntityTag;
+import ru.practicum.shareit.PageCursor;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.function.Function;
+
 @RestController
 @Slf4j
 @RequiredArgsConstructor
@@ -20,8 +29,10 @@ public class ItemController {
 
     @PatchMapping("/items/{itemId}")
     public ResponseEntity<?> patchItem(@RequestBody ItemDto itemDto, @PathVariable Long itemId,
-                                       @RequestHeader("X-Sharer-User-Id") Long userId) {
-        return ResponseEntity.ok(itemService.patchItem(itemDto, itemId, userId));
+                                       @RequestHeader("X-Sharer-User-Id") Long userId,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        ItemDto item = itemService.patchItem(itemDto, itemId, userId, EntityTag.parse(ifMatch));
+        return ResponseEntity.ok().eTag(EntityTag.of(item.getVersion())).body(item);
     }
 
     @DeleteMapping("/items/{itemId}")
@@ -33,22 +44,49 @@ public class ItemController {
     @GetMapping("/items/{itemId}")
     public ResponseEntity<?> getItem(@PathVariable Long itemId,
                                      @RequestHeader("X-Sharer-User-Id") Long userId) {
-        return ResponseEntity.ok(itemService.getItem(itemId, userId));
+        ItemDto item = itemService.getItem(itemId, userId);
+        return ResponseEntity.ok().eTag(EntityTag.of(item.getVersion())).body(item);
     }
 
     @GetMapping("/items")
     public ResponseEntity<?> getItemsOfUser(@RequestHeader("X-Sharer-User-Id") Long userId,
                                             @RequestParam(defaultValue = "0") Integer from,
-                                            @RequestParam(defaultValue = "10") Integer size) {
-        return ResponseEntity.ok(itemService.getItemsOfUser(userId, from, size));
+                                            @RequestParam(defaultValue = "10") Integer size,
+                                            @RequestParam(required = false) String after) {
+        List<ItemDto> items = (after != null)
+                ? itemService.getItemsOfUserAfter(userId, PageCursor.decode(after), size)
+                : itemService.getItemsOfUser(userId, from, size);
+        return withNextCursor(items, size, PageCursor::ofId);
     }
 
     @GetMapping("/items/search")
     public ResponseEntity<?> searchItems(@RequestParam String text,
                                          @RequestHeader("X-Sharer-User-Id") Long userId,
                                          @RequestParam(defaultValue = "0") Integer from,
-                                         @RequestParam(defaultValue = "10") Integer size) {
-        return ResponseEntity.ok(itemService.searchItems(text, userId, from, size));
+                                         @RequestParam(defaultValue = "10") Integer size,
+                                         @RequestParam(required = false) String after,
+                                         @RequestParam(required = false) ItemSearchMode mode) {
+        List<ItemDto> items = (after != null)
+                ? itemService.searchItemsAfter(text, mode, userId, PageCursor.decode(after), size)
+                : itemService.searchItems(text, mode, userId, from, size);
+        return withNextCursor(items, size, lastId -> itemService.getSearchCursor(text, mode, lastId));
+    }
+
+    @GetMapping("/items/{itemId}/availability")
+    public ResponseEntity<?> getFreeWindows(@PathVariable Long itemId,
+                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                            LocalDateTime from,
+                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                            LocalDateTime to) {
+        return ResponseEntity.ok(itemService.getFreeWindows(itemId, from, to));
+    }
+
+    @GetMapping("/items/{itemId}/calendar")
+    public ResponseEntity<?> getCalendar(@PathVariable Long itemId,
+                                         @RequestHeader("X-Sharer-User-Id") Long userId,
+                                         @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM")
+                                         YearMonth month) {
+        return ResponseEntity.ok(itemService.getCalendar(itemId, userId, month != null ? month : YearMonth.now()));
     }
 
     @PostMapping("/items/{itemId}/comment")
@@ -57,4 +95,17 @@ public class ItemController {
                                               @RequestBody CommentDto commentDto) {
         return ResponseEntity.ok(itemService.addCommentToItem(itemId, userId, commentDto));
     }
+
+    private ResponseEntity<?> withNextCursor(List<ItemDto> items, Integer size, Function<Long, PageCursor> cursor) {
+        if (items == null || items.size() < size) {
+            return ResponseEntity.ok(items);
+        }
+        PageCursor next = cursor.apply(items.get(items.size() - 1).getId());
+        if (next == null) {
+            return ResponseEntity.ok(items);
+        }
+        return ResponseEntity.ok()
+                .header(PageCursor.HEADER, next.encode())
+                .body(items);
+    }
 }
@@ -1,6 +1,8 @@
 package ru.practicum.shareit.item;
 
 import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.BookingCalendarDay;
+import ru.practicum.shareit.item.dto.CalendarDayDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.ItemRequest;
@@ -31,6 +33,15 @@ public class ItemMapper {
                 .comments((item.getComments() != null) ? item.getComments().stream().map(CommentMapper::toCommentDto)
                         .collect(Collectors.toSet()) : null)
                 .owner((item.getOwner() != null) ? UserMapper.toUserDto(item.getOwner()) : null)
+                .version(item.getVersion())
+                .build();
+    }
+
+    public static CalendarDayDto toCalendarDayDto(BookingCalendarDay day) {
+        return CalendarDayDto.builder()
+                .date(day.getDay())
+                .bookings(day.getBookings())
+                .occupiedMinutes(day.getOccupiedMinutes())
                 .build();
     }
 
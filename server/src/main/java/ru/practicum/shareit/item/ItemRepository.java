@@ -1,18 +1,96 @@
 package ru.practicum.shareit.item;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.User;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface ItemRepository extends JpaRepository<Item, Long> {
     List<Item> findAllByOwner(User user);
 
-    List<Item> findAllByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCaseAndAvailableTrue(String toLowerCase, String toLowerCase1, Pageable pageable);
+    /**
+     * Items answering any of the requests, with everything ItemMapper.toItemDto reads fetched in the same query.
+     */
+    @EntityGraph(attributePaths = {"owner", "comments", "comments.author"})
+    List<Item> findDistinctByRequest_IdIn(Collection<Long> requestIds);
+
+    @EntityGraph(attributePaths = {"owner"})
+    List<Item> findAllByIdIn(Collection<Long> itemIds);
+
+    List<Item> findAllByOwnerAndIdGreaterThanOrderByIdAsc(User user, Long id, Pageable pageable);
+
+    @Query("select i.id from Item i where i.owner.id = :ownerId")
+    List<Long> findIdsByOwner(@Param("ownerId") Long ownerId);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select i.id as id, i.name as name, i.description as description from Item i where i.available = true")
+    Stream<ItemSearchRow> streamAvailableForIndex();
+
+    @Query(value = "select i.* from items i, to_tsquery('russian', :query) q " +
+            "where i.is_available = true and i.search_vector @@ q " +
+            "order by ts_rank(i.search_vector, q) desc, i.id", nativeQuery = true)
+    List<Item> searchAvailable(@Param("query") String query, Pageable pageable);
+
+    /**
+     * Continues {@link #searchAvailable} after the row with the given rank and id, in the same order.
+     */
+    @Query(value = "select i.* from items i, to_tsquery('russian', :query) q " +
+            "where i.is_available = true and i.search_vector @@ q " +
+            "and (ts_rank(i.search_vector, q) < cast(:rank as real) " +
+            "or (ts_rank(i.search_vector, q) = cast(:rank as real) and i.id > :id)) " +
+            "order by ts_rank(i.search_vector, q) desc, i.id", nativeQuery = true)
+    List<Item> searchAvailableAfter(@Param("query") String query, @Param("rank") Float rank, @Param("id") Long id,
+                                    Pageable pageable);
+
+    /**
+     * Rank of one item for the query, as {@link #searchAvailable} orders by it.
+     */
+    @Query(value = "select ts_rank(i.search_vector, to_tsquery('russian', :query)) from items i where i.id = :id",
+            nativeQuery = true)
+    Float getSearchRank(@Param("query") String query, @Param("id") Long id);
+
+    /**
+     * Threshold of the word similarity operator for the rest of the current transaction.
+     */
+    @Query(value = "select set_config('pg_trgm.word_similarity_threshold', cast(:threshold as text), true)",
+            nativeQuery = true)
+    String setWordSimilarityThreshold(@Param("threshold") Double threshold);
+
+    @Query(value = "select i.* from items i " +
+            "where i.is_available = true and (:text <% i.name or :text <% i.description) " +
+            "order by greatest(word_similarity(:text, i.name), word_similarity(:text, i.description)) desc, i.id",
+            nativeQuery = true)
+    List<Item> searchAvailableBySimilarity(@Param("text") String text, Pageable pageable);
 
-    List<Item> findAllByRequest_Id(Long requestId);
+    /**
+     * Continues {@link #searchAvailableBySimilarity} after the row with the given similarity and id, in the same order.
+     */
+    @Query(value = "select i.* from items i " +
+            "where i.is_available = true and (:text <% i.name or :text <% i.description) " +
+            "and (greatest(word_similarity(:text, i.name), word_similarity(:text, i.description)) " +
+            "< cast(:rank as real) " +
+            "or (greatest(word_similarity(:text, i.name), word_similarity(:text, i.description)) " +
+            "= cast(:rank as real) and i.id > :id)) " +
+            "order by greatest(word_similarity(:text, i.name), word_similarity(:text, i.description)) desc, i.id",
+            nativeQuery = true)
+    List<Item> searchAvailableBySimilarityAfter(@Param("text") String text, @Param("rank") Float rank,
+                                                @Param("id") Long id, Pageable pageable);
 
-    List<Item> findAllByOwner(User user, Pageable pageable);
+    /**
+     * Similarity of one item to the text, as {@link #searchAvailableBySimilarity} orders by it.
+     */
+    @Query(value = "select greatest(word_similarity(:text, i.name), word_similarity(:text, i.description)) " +
+            "from items i where i.id = :id", nativeQuery = true)
+    Float getSimilarity(@Param("text") String text, @Param("id") Long id);
 }
@@ -0,0 +1,274 @@
+package ru.practicum.shareit.item;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Inverted index over name and description tokens of available items.
+ * Every token maps to an ascending list of item ids; query tokens match as prefixes and all of them are required.
+ * Disabled unless shareit.search.index-enabled is set.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemSearchIndex {
+    private final ItemRepository itemRepository;
+    private final ItemSearchProperties searchProperties;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Postings postings = new Postings();
+    /**
+     * Tokens of the items changed while a rebuild runs, empty for removed ones; null when no rebuild runs.
+     */
+    private Map<Long, List<String>> changedDuringRebuild;
+
+    public boolean isEnabled() {
+        return searchProperties.isIndexEnabled();
+    }
+
+    /**
+     * Not read-only, so the rows come from the primary: the index is kept current by commit hooks from here on and
+     * would never get the rows a lagging replica had not replayed yet.
+     * The new postings are built without the lock, so searches keep using the old ones meanwhile. Items changed in
+     * that time are applied to the new postings again before they replace the old ones.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuild() {
+        if (!isEnabled()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Postings rebuilt = new Postings();
+        try {
+            try (Stream<ItemSearchRow> rows = itemRepository.streamAvailableForIndex()) {
+                rows.forEach(r -> rebuilt.add(r.getId(), tokensOf(r.getName(), r.getDescription())));
+            }
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild.forEach(rebuilt::replace);
+                postings = rebuilt;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Search index rebuilt: {} items, {} tokens", rebuilt.itemTokens.size(), rebuilt.byToken.size());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Reindexes the item once the transaction that saved it commits.
+     */
+    public void update(Item item) {
+        if (!isEnabled()) {
+            return;
+        }
+        Long itemId = item.getId();
+        List<String> tokens = Boolean.TRUE.equals(item.getAvailable())
+                ? tokensOf(item.getName(), item.getDescription())
+                : List.of();
+        afterCommit(() -> replace(itemId, tokens));
+    }
+
+    public void delete(Long itemId) {
+        if (!isEnabled()) {
+            return;
+        }
+        afterCommit(() -> replace(itemId, List.of()));
+    }
+
+    /**
+     * Ids of matching items in ascending order, greater than afterId, skipping offset and at most limit of them.
+     */
+    public List<Long> search(List<String> tokens, Long afterId, long offset, int limit) {
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        long[] matches = null;
+        lock.readLock().lock();
+        try {
+            for (String token : tokens) {
+                long[] tokenMatches = postings.prefixMatches(token);
+                matches = (matches == null) ? tokenMatches : intersect(matches, tokenMatches);
+                if (matches.length == 0) {
+                    return List.of();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        int from = Arrays.binarySearch(matches, afterId);
+        from = (from >= 0) ? from + 1 : -from - 1;
+        List<Long> page = new ArrayList<>();
+        for (long i = from + offset; i < matches.length && page.size() < limit; i++) {
+            page.add(matches[(int) i]);
+        }
+        return page;
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private List<String> tokensOf(String name, String description) {
+        List<String> tokens = new ArrayList<>(ItemSearchText.tokens(name));
+        ItemSearchText.tokens(description).stream().filter(t -> !tokens.contains(t)).forEach(tokens::add);
+        return tokens;
+    }
+
+    private void replace(Long itemId, List<String> tokens) {
+        lock.writeLock().lock();
+        try {
+            postings.replace(itemId, tokens);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(itemId, tokens);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static long[] intersect(long[] left, long[] right) {
+        long[] result = new long[Math.min(left.length, right.length)];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Posting lists by token along with the tokens of every indexed item, to find the lists an item is in.
+     */
+    private static class Postings {
+        private final NavigableMap<String, PostingList> byToken = new TreeMap<>();
+        private final Map<Long, List<String>> itemTokens = new HashMap<>();
+
+        void add(Long itemId, List<String> tokens) {
+            tokens.forEach(t -> byToken.computeIfAbsent(t, k -> new PostingList()).add(itemId));
+            itemTokens.put(itemId, tokens);
+        }
+
+        /**
+         * Indexes the item under the given tokens only, or drops it from the index when there are none.
+         */
+        void replace(Long itemId, List<String> tokens) {
+            remove(itemId);
+            if (!tokens.isEmpty()) {
+                add(itemId, tokens);
+            }
+        }
+
+        private void remove(Long itemId) {
+            List<String> tokens = itemTokens.remove(itemId);
+            if (tokens == null) {
+                return;
+            }
+            for (String token : tokens) {
+                PostingList list = byToken.get(token);
+                if (list != null && list.remove(itemId) && list.isEmpty()) {
+                    byToken.remove(token);
+                }
+            }
+        }
+
+        long[] prefixMatches(String prefix) {
+            Map<String, PostingList> matching = byToken.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+            if (matching.size() == 1) {
+                return matching.values().iterator().next().toArray();
+            }
+            return matching.values().stream()
+                    .flatMapToLong(list -> Arrays.stream(list.toArray()))
+                    .sorted()
+                    .distinct()
+                    .toArray();
+        }
+    }
+
+    /**
+     * Ascending item ids without boxing; appending a greater id, the common case on rebuild, is amortized O(1).
+     */
+    private static class PostingList {
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            int position = (size == 0 || ids[size - 1] < id) ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0 && position < size) {
+                return;
+            }
+            int insertAt = (position == size) ? size : -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package ru.practicum.shareit.item;
+
+public enum ItemSearchMode {
+    FULLTEXT, TRIGRAM, INDEX
+}
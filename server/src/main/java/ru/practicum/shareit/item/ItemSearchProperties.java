@@ -0,0 +1,16 @@
+package ru.practicum.shareit.item;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shareit.search")
+public class ItemSearchProperties {
+    private ItemSearchMode mode = ItemSearchMode.FULLTEXT;
+    private Double trigramThreshold = 0.3;
+    private boolean indexEnabled = false;
+}
@@ -0,0 +1,9 @@
+package ru.practicum.shareit.item;
+
+public interface ItemSearchRow {
+    Long getId();
+
+    String getName();
+
+    String getDescription();
+}
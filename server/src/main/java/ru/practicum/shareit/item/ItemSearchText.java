@@ -0,0 +1,34 @@
+package ru.practicum.shareit.item;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Splits item names, descriptions and search text into the lower case tokens the search index and tsquery use.
+ */
+public final class ItemSearchText {
+    private static final String SEPARATORS = "[^\\p{L}\\p{N}]+";
+
+    private ItemSearchText() {
+    }
+
+    public static List<String> tokens(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split(SEPARATORS))
+                .filter(t -> !t.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Every token as a prefix term, all of them required: "дрель аккум" -> "дрель:* & аккум:*".
+     * Tokens hold letters and digits only, so the result is always a valid tsquery.
+     */
+    public static String toPrefixTsQuery(List<String> tokens) {
+        return tokens.stream().map(t -> t + ":*").collect(Collectors.joining(" & "));
+    }
+}
@@ -1,14 +1,19 @@
 package ru.practicum.shareit.item;
 
+import ru.practicum.shareit.PageCursor;
+import ru.practicum.shareit.item.dto.CalendarDayDto;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.FreeWindowDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
 
 public interface ItemService {
     ItemDto createItem(ItemDto itemDto, Long userId);
 
-    ItemDto patchItem(ItemDto itemDto, Long itemId, Long userId);
+    ItemDto patchItem(ItemDto itemDto, Long itemId, Long userId, Long expectedVersion);
 
     void deleteItem(Long itemId, Long userId);
 
@@ -16,7 +21,17 @@ public interface ItemService {
 
     List<ItemDto> getItemsOfUser(Long userId, Integer from, Integer size);
 
-    List<ItemDto> searchItems(String text, Long userId, Integer from, Integer size);
+    List<ItemDto> getItemsOfUserAfter(Long userId, PageCursor after, Integer size);
+
+    List<ItemDto> searchItems(String text, ItemSearchMode mode, Long userId, Integer from, Integer size);
+
+    List<ItemDto> searchItemsAfter(String text, ItemSearchMode mode, Long userId, PageCursor after, Integer size);
+
+    PageCursor getSearchCursor(String text, ItemSearchMode mode, Long lastId);
+
+    List<FreeWindowDto> getFreeWindows(Long itemId, LocalDateTime from, LocalDateTime to);
+
+    List<CalendarDayDto> getCalendar(Long itemId, Long userId, YearMonth month);
 
     CommentDto addCommentToItem(Long itemId, Long userId, CommentDto commentDto);
 
@@ -3,36 +3,57 @@ package ru.practicum.shareit.item;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.CommonService;
-import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.PageCursor;
+import ru.practicum.shareit.booking.BookingCounterRepository;
 import ru.practicum.shareit.booking.BookingMapper;
+import ru.practicum.shareit.booking.BookingRepository;
 import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.ItemBookingSummary;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
 import ru.practicum.shareit.exception.IdViolationException;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.exception.PreconditionFailedException;
 import ru.practicum.shareit.exception.ValidatorException;
+import ru.practicum.shareit.item.dto.CalendarDayDto;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.FreeWindowDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.User;
 
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class ItemServiceImpl implements ItemService {
     private final ItemRepository itemRepository;
     private final CommentRepository commentRepository;
+    private final BookingRepository bookingRepository;
+    private final BookingCounterRepository bookingCounterRepository;
     private final CommonService commonService;
+    private final ItemAvailabilityIndex availabilityIndex;
+    private final ItemSearchProperties searchProperties;
+    private final ItemSearchIndex searchIndex;
+    private final ItemCalendarCache calendarCache;
 
     @Override
+    @Transactional
     public ItemDto createItem(ItemDto itemDto, Long userId) {
         Item item = ItemMapper.toItem(itemDto);
         item.setOwner(commonService.getInDBUser(userId));
@@ -43,31 +64,47 @@ public class ItemServiceImpl implements ItemService {
             throw new ValidatorException("Bad request. Name or description or available is empty.");
         }
         try {
-            return convertItem(itemRepository.save(item), userId);
+            Item saved = itemRepository.saveAndFlush(item);
+            searchIndex.update(saved);
+            return convertItem(saved, userId);
         } catch (DataIntegrityViolationException e) {
             throw new IdViolationException("Item is already in base.");
         }
     }
 
     @Override
-    public ItemDto patchItem(ItemDto itemDto, Long itemId, Long userId) {
+    @Transactional
+    public ItemDto patchItem(ItemDto itemDto, Long itemId, Long userId, Long expectedVersion) {
         Item item = commonService.getInDbItem(itemId);
         Long checkId = item.getOwner().getId();
         if (!checkId.equals(userId)) {
             throw new NotFoundException("User id and owner of item id is not equal.");
         }
+        if (expectedVersion != null && !expectedVersion.equals(item.getVersion())) {
+            throw new PreconditionFailedException("Precondition failed. Item version is " + item.getVersion() + ".");
+        }
         ItemMapper.patchItem(itemDto, item);
         try {
-            return convertItem(itemRepository.save(item), userId);
+            Item saved = itemRepository.saveAndFlush(item);
+            commonService.evictItem(itemId);
+            searchIndex.update(saved);
+            return convertItem(saved, userId);
         } catch (DataIntegrityViolationException e) {
             throw new IdViolationException("Already have item like this.");
         }
     }
 
     @Override
+    @Transactional
     public void deleteItem(Long itemId, Long userId) {
         try {
+            bookingRepository.lockItems(List.of(itemId));
+            bookingCounterRepository.subtractBookingsOfItem(itemId);
             itemRepository.deleteById(itemId);
+            commonService.evictItem(itemId);
+            availabilityIndex.removeItem(itemId);
+            calendarCache.evict(itemId);
+            searchIndex.delete(itemId);
         } catch (EmptyResultDataAccessException e) {
             throw new ValidatorException("Not found in base.");
         }
@@ -82,23 +119,127 @@ public class ItemServiceImpl implements ItemService {
     @Override
     public List<ItemDto> getItemsOfUser(Long userId, Integer from, Integer size) {
         User user = commonService.getInDBUser(userId);
-        return itemRepository.findAllByOwner(user, commonService.getPagination(from, size, null))
-                .stream().map(i -> convertItem(i, userId)).sorted(Comparator.comparing(ItemDto::getId))
-                .collect(Collectors.toList());
+        List<Item> items = itemRepository.findAllByOwnerAndIdGreaterThanOrderByIdAsc(
+                user, 0L, commonService.getPagination(from, size, null));
+        return convertItems(items, userId);
+    }
+
+    @Override
+    public List<ItemDto> getItemsOfUserAfter(Long userId, PageCursor after, Integer size) {
+        User user = commonService.getInDBUser(userId);
+        List<Item> items = itemRepository.findAllByOwnerAndIdGreaterThanOrderByIdAsc(
+                user, after.getId(), commonService.getSeekPagination(size));
+        return convertItems(items, userId);
+    }
+
+    @Override
+    public List<ItemDto> searchItems(String text, ItemSearchMode mode, Long userId, Integer from, Integer size) {
+        if (text.isBlank()) {
+            return Collections.emptyList();
+        }
+        return convertItems(findAvailable(text, mode, null, commonService.getPagination(from, size, null)), userId);
     }
 
     @Override
-    public List<ItemDto> searchItems(String text, Long userId, Integer from, Integer size) {
-        if (text.isEmpty()) {
+    public List<ItemDto> searchItemsAfter(String text, ItemSearchMode mode, Long userId, PageCursor after,
+                                         Integer size) {
+        if (text.isBlank()) {
             return Collections.emptyList();
         }
-        return itemRepository
-                .findAllByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCaseAndAvailableTrue(
-                        text.toLowerCase(), text.toLowerCase(), commonService.getPagination(from, size, null))
-                .stream().map(i -> convertItem(i, userId)).collect(Collectors.toList());
+        return convertItems(findAvailable(text, mode, after, commonService.getSeekPagination(size)), userId);
+    }
+
+    /**
+     * Cursor after the last item of a full search page, keyed the way the page of that mode is ordered.
+     * Null once the item is gone, which ends the listing.
+     */
+    @Override
+    public PageCursor getSearchCursor(String text, ItemSearchMode mode, Long lastId) {
+        Float rank;
+        switch (resolve(mode)) {
+            case TRIGRAM:
+                rank = itemRepository.getSimilarity(text.trim(), lastId);
+                break;
+            case FULLTEXT:
+                rank = itemRepository.getSearchRank(ItemSearchText.toPrefixTsQuery(ItemSearchText.tokens(text)),
+                        lastId);
+                break;
+            default:
+                return PageCursor.ofId(lastId);
+        }
+        return (rank != null) ? PageCursor.ofRank(rank, lastId) : null;
+    }
+
+    private ItemSearchMode resolve(ItemSearchMode mode) {
+        return (mode != null) ? mode : searchProperties.getMode();
+    }
+
+    /**
+     * Full text pages are ordered by rank, trigram pages by similarity, and both continue after a (rank, id) cursor.
+     * The in-memory index answers in id order and only the page itself is loaded.
+     */
+    private List<Item> findAvailable(String text, ItemSearchMode mode, PageCursor after, Pageable pageable) {
+        switch (resolve(mode)) {
+            case TRIGRAM:
+                itemRepository.setWordSimilarityThreshold(searchProperties.getTrigramThreshold());
+                return (after == null)
+                        ? itemRepository.searchAvailableBySimilarity(text.trim(), pageable)
+                        : itemRepository.searchAvailableBySimilarityAfter(text.trim(), after.getRequiredRank(),
+                        after.getId(), pageable);
+            case FULLTEXT:
+                List<String> tokens = ItemSearchText.tokens(text);
+                if (tokens.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                String query = ItemSearchText.toPrefixTsQuery(tokens);
+                return (after == null)
+                        ? itemRepository.searchAvailable(query, pageable)
+                        : itemRepository.searchAvailableAfter(query, after.getRequiredRank(), after.getId(), pageable);
+            case INDEX:
+                if (!searchIndex.isEnabled()) {
+                    throw new ValidatorException("Bad request. Search index is disabled.");
+                }
+                List<Long> ids = searchIndex.search(ItemSearchText.tokens(text), (after == null) ? 0L : after.getId(),
+                        pageable.getOffset(), pageable.getPageSize());
+                Map<Long, Item> found = itemRepository.findAllById(ids).stream()
+                        .collect(Collectors.toMap(Item::getId, Function.identity()));
+                return ids.stream().map(found::get).filter(Objects::nonNull).collect(Collectors.toList());
+            default:
+                throw new ValidatorException("Bad request. No such search mode.");
+        }
+    }
+
+    /**
+     * Answered from the availability index outside a transaction, only the existence check of the item may read the
+     * database.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<FreeWindowDto> getFreeWindows(Long itemId, LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new ValidatorException("Bad request. From is null or to is null or from is not before to.");
+        }
+        commonService.getInDbItem(itemId);
+        return availabilityIndex.getFreeWindows(itemId, from, to);
+    }
+
+    /**
+     * Occupancy by approved bookings on every day of the month, shown to the owner of the item only.
+     */
+    @Override
+    public List<CalendarDayDto> getCalendar(Long itemId, Long userId, YearMonth month) {
+        Item item = commonService.getInDbItem(itemId);
+        if (!item.getOwner().getId().equals(userId)) {
+            throw new NotFoundException("User id and owner of item id is not equal.");
+        }
+        return calendarCache.get(itemId, month, () -> bookingRepository.findApprovedCalendar(itemId,
+                        month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay()).stream()
+                .map(ItemMapper::toCalendarDayDto)
+                .collect(Collectors.toList()));
     }
 
     @Override
+    @Transactional
     public CommentDto addCommentToItem(Long itemId, Long userId, CommentDto commentDto) {
         if (commentDto.getText().isEmpty() || commentDto.getText() == null) {
             throw new ValidatorException("Bad request. Text of comment is null or empty");
@@ -117,42 +258,44 @@ public class ItemServiceImpl implements ItemService {
         comment.setItem(item);
         comment.setAuthor(user);
         try {
-            return CommentMapper.toCommentDto(commentRepository.save(comment));
+            CommentDto saved = CommentMapper.toCommentDto(commentRepository.saveAndFlush(comment));
+            commonService.evictItemComments(itemId);
+            return saved;
         } catch (DataIntegrityViolationException e) {
             throw new IdViolationException("This comment is already in base.");
         }
     }
 
     private ItemDto convertItem(Item inItem, Long userId) {
-        ItemDto itemDtoOut = ItemMapper.toItemDto(inItem);
-
-        Booking last = null;
-        Booking next = null;
-        if (inItem.getBookings() != null) {
-            last = inItem.getBookings().stream()
-                    .sorted(Comparator.comparing(Booking::getEnd).reversed())
-                    .filter(b -> b.getEnd().isBefore(LocalDateTime.now()))
-                    .findFirst().orElse(null);
-            next = inItem.getBookings().stream()
-                    .sorted(Comparator.comparing(Booking::getStart))
-                    .filter(b -> b.getEnd().isAfter(LocalDateTime.now()))
-                    .findFirst().orElse(null);
-            if (last != null) {
-                Long checkLast = last.getItem().getOwner().getId();
-                if (!checkLast.equals(userId)) {
-                    last = null;
-                }
-            }
-            if (next != null) {
-                Long checkNext = next.getItem().getOwner().getId();
-                if (!checkNext.equals(userId)) {
-                    next = null;
-                }
+        return convertItems(List.of(inItem), userId).get(0);
+    }
+
+    /**
+     * Last and next bookings are shown to the owner only and are fetched for the whole page at once.
+     */
+    private List<ItemDto> convertItems(List<Item> items, Long userId) {
+        List<ItemDto> itemDtos = items.stream().map(ItemMapper::toItemDto).collect(Collectors.toList());
+        List<Long> ownItemIds = items.stream()
+                .filter(i -> i.getOwner() != null && userId.equals(i.getOwner().getId()))
+                .map(Item::getId)
+                .collect(Collectors.toList());
+        if (ownItemIds.isEmpty()) {
+            return itemDtos;
+        }
+        Map<Long, BookingShortDto> last = new HashMap<>();
+        Map<Long, BookingShortDto> next = new HashMap<>();
+        for (ItemBookingSummary summary : bookingRepository.findLastAndNextByItemIds(ownItemIds, LocalDateTime.now())) {
+            BookingShortDto shortDto = BookingMapper.bookingShortDto(summary);
+            if (ItemBookingSummary.LAST.equals(summary.getKind())) {
+                last.put(summary.getItemId(), shortDto);
+            } else {
+                next.put(summary.getItemId(), shortDto);
             }
         }
-        itemDtoOut.setLastBooking((last != null) ? BookingMapper.bookingShortDto(last) : null);
-        itemDtoOut.setNextBooking((next != null) ? BookingMapper.bookingShortDto(next) : null);
-
-        return itemDtoOut;
+        itemDtos.forEach(i -> {
+            i.setLastBooking(last.get(i.getId()));
+            i.setNextBooking(next.get(i.getId()));
+        });
+        return itemDtos;
     }
 }
@@ -3,6 +3,8 @@ package ru.practicum.shareit.item.model;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import ru.practicum.shareit.booking.Booking;
 import ru.practicum.shareit.request.ItemRequest;
 import ru.practicum.shareit.user.User;
@@ -18,10 +20,12 @@ import java.util.Set;
 @Builder
 @Entity
 @Table(name = "items", schema = "public")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "items")
 @NoArgsConstructor
 public class Item {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "items_seq")
+    @SequenceGenerator(name = "items_seq", sequenceName = "items_seq", allocationSize = 50)
     private Long id;
     @Column(name = "name", nullable = false)
     private String name;
@@ -37,10 +41,13 @@ public class Item {
     private ItemRequest request;
     @OneToMany(mappedBy = "item")
     @JsonIgnore
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "items.comments")
     private Set<Comment> comments = new HashSet<>();
     @OneToMany(mappedBy = "item")
     @JsonIgnore
     private Set<Booking> bookings = new HashSet<>();
+    @Version
+    private Long version;
 
     @Override
     public boolean equals(Object o) {
@@ -4,9 +4,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.PageCursor;
 import ru.practicum.shareit.request.dto.ItemRequestDtoIn;
+import ru.practicum.shareit.request.dto.ItemRequestDtoOut;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 
 /**
  * TODO Sprint add-item-requests.
@@ -32,8 +35,18 @@ public class ItemRequestController {
     @GetMapping("/all")
     public ResponseEntity<?> getRequestsPage(@RequestHeader("X-Sharer-User-Id") Long userId,
                                              @RequestParam(defaultValue = "0") Integer from,
-                                             @RequestParam(defaultValue = "10") Integer size) {
-        return ResponseEntity.ok(requestService.getRequestsPage(userId, from, size));
+                                             @RequestParam(defaultValue = "10") Integer size,
+                                             @RequestParam(required = false) String after) {
+        Collection<ItemRequestDtoOut> requests = (after != null)
+                ? requestService.getRequestsPageAfter(userId, PageCursor.decode(after), size)
+                : requestService.getRequestsPage(userId, from, size);
+        if (requests == null || requests.size() < size) {
+            return ResponseEntity.ok(requests);
+        }
+        ItemRequestDtoOut last = requests.stream().reduce((first, second) -> second).orElseThrow();
+        return ResponseEntity.ok()
+                .header(PageCursor.HEADER, PageCursor.of(last.getCreated(), last.getId()).encode())
+                .body(requests);
     }
 
     @GetMapping({"/{requestId}"})
@@ -2,8 +2,11 @@ package ru.practicum.shareit.request;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.user.User;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Set;
 
@@ -11,5 +14,9 @@ public interface ItemRequestRepository extends JpaRepository<ItemRequest, Long>
 
     Set<ItemRequest> findAllByRequestor(User user);
 
-    List<ItemRequest> findByRequestorNot(User user, Pageable pageable);
+    @Query("select r from ItemRequest r where r.requestor <> :user " +
+            "and (r.created < :key or (r.created = :key and r.id < :id)) " +
+            "order by r.created desc, r.id desc")
+    List<ItemRequest> findByRequestorNotAfter(@Param("user") User user, @Param("key") LocalDateTime key,
+                                              @Param("id") Long id, Pageable pageable);
 }
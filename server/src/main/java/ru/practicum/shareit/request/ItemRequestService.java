@@ -1,10 +1,12 @@
 package ru.practicum.shareit.request;
 
 import org.springframework.stereotype.Service;
+import ru.practicum.shareit.PageCursor;
 import ru.practicum.shareit.request.dto.ItemRequestDtoIn;
 import ru.practicum.shareit.request.dto.ItemRequestDtoOut;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Set;
 
 @Service
@@ -15,5 +17,7 @@ public interface ItemRequestService {
 
     Set<ItemRequestDtoOut> getRequestsPage(Long userId, Integer from, Integer size);
 
+    List<ItemRequestDtoOut> getRequestsPageAfter(Long userId, PageCursor after, Integer size);
+
     ItemRequestDtoOut getRequestById(Long userId, Long requestId);
 }
@@ -3,25 +3,34 @@ package ru.practicum.shareit.request;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.CommonService;
+import ru.practicum.shareit.PageCursor;
 import ru.practicum.shareit.exception.IdViolationException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidatorException;
+import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.request.dto.ItemRequestDtoIn;
 import ru.practicum.shareit.request.dto.ItemRequestDtoOut;
 import ru.practicum.shareit.user.User;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class ItemRequestServiceImpl implements ItemRequestService {
     private final ItemRequestRepository requestRepository;
     private final CommonService commonService;
 
     @Override
+    @Transactional
     public ItemRequestDtoOut createRequest(Long userId, LocalDateTime created, ItemRequestDtoIn requestDtoIn) {
         ItemRequest request = ItemRequestMapper.toRequest(requestDtoIn);
         request.setRequestor(commonService.getInDBUser(userId));
@@ -33,7 +42,9 @@ public class ItemRequestServiceImpl implements ItemRequestService {
             throw new ValidatorException("Bad request. Description is empty.");
         }
         try {
-            return addItems(ItemRequestMapper.toRequestDtoOut(requestRepository.save(request)));
+            ItemRequestDtoOut requestDtoOut = ItemRequestMapper.toRequestDtoOut(requestRepository.saveAndFlush(request));
+            addItems(List.of(requestDtoOut));
+            return requestDtoOut;
         } catch (DataIntegrityViolationException e) {
             throw new IdViolationException("Such request is already in base.");
         }
@@ -42,17 +53,28 @@ public class ItemRequestServiceImpl implements ItemRequestService {
     @Override
     public Set<ItemRequestDtoOut> getRequests(Long userId) {
         User user = commonService.getInDBUser(userId);
-        Set<ItemRequestDtoOut> requestDtoOuts = requestRepository.findAllByRequestor(user).stream()
-                .map(ItemRequestMapper::toRequestDtoOut).collect(Collectors.toSet());
-        return requestDtoOuts.stream().map(this::addItems).collect(Collectors.toSet());
+        List<ItemRequestDtoOut> requestDtoOuts = requestRepository.findAllByRequestor(user).stream()
+                .map(ItemRequestMapper::toRequestDtoOut).collect(Collectors.toList());
+        return new HashSet<>(addItems(requestDtoOuts));
     }
 
     @Override
     public Set<ItemRequestDtoOut> getRequestsPage(Long userId, Integer from, Integer size) {
         User user = commonService.getInDBUser(userId);
-        return requestRepository.findByRequestorNot(user, commonService.getPagination(from, size, "created"))
-                .stream().map(ItemRequestMapper::toRequestDtoOut)
-                .map(this::addItems).collect(Collectors.toSet());
+        PageCursor first = PageCursor.first();
+        List<ItemRequestDtoOut> requestDtoOuts = requestRepository.findByRequestorNotAfter(user, first.getKey(),
+                        first.getId(), commonService.getPagination(from, size, null))
+                .stream().map(ItemRequestMapper::toRequestDtoOut).collect(Collectors.toList());
+        return new LinkedHashSet<>(addItems(requestDtoOuts));
+    }
+
+    @Override
+    public List<ItemRequestDtoOut> getRequestsPageAfter(Long userId, PageCursor after, Integer size) {
+        User user = commonService.getInDBUser(userId);
+        List<ItemRequestDtoOut> requestDtoOuts = requestRepository.findByRequestorNotAfter(user,
+                        after.getRequiredKey(), after.getId(), commonService.getSeekPagination(size))
+                .stream().map(ItemRequestMapper::toRequestDtoOut).collect(Collectors.toList());
+        return addItems(requestDtoOuts);
     }
 
     @Override
@@ -60,11 +82,18 @@ public class ItemRequestServiceImpl implements ItemRequestService {
         User user = commonService.getInDBUser(userId);
         ItemRequest request = requestRepository.findById(requestId)
                 .orElseThrow(() -> new NotFoundException("Request not found in base."));
-        return addItems(ItemRequestMapper.toRequestDtoOut(request));
+        ItemRequestDtoOut requestDtoOut = ItemRequestMapper.toRequestDtoOut(request);
+        addItems(List.of(requestDtoOut));
+        return requestDtoOut;
     }
 
-    private ItemRequestDtoOut addItems(ItemRequestDtoOut requestDtoOut) {
-        requestDtoOut.setItems(commonService.getItemsByRequest(requestDtoOut.getId()));
-        return requestDtoOut;
+    /**
+     * Items of all the requests with one query; must run before the dtos are put into hash based sets.
+     */
+    private List<ItemRequestDtoOut> addItems(List<ItemRequestDtoOut> requestDtoOuts) {
+        Map<Long, Set<ItemDto>> items = commonService.getItemsByRequests(requestDtoOuts.stream()
+                .map(ItemRequestDtoOut::getId).collect(Collectors.toList()));
+        requestDtoOuts.forEach(r -> r.setItems(items.getOrDefault(r.getId(), new HashSet<>())));
+        return requestDtoOuts;
     }
 }
@@ -1,6 +1,16 @@
 package ru.practicum.shareit.user;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface UserRepository extends JpaRepository<User, Long> {
+    /**
+     * Locks the user row until the end of the transaction. Inserts that reference the user wait for it, so no booking
+     * or item of the user is created while the user is being deleted.
+     */
+    @Query(value = "select u.id from users u where u.id = :id for update", nativeQuery = true)
+    List<Long> lockUser(@Param("id") Long id);
 }
@@ -5,19 +5,35 @@ import org.apache.commons.validator.routines.EmailValidator;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.CommonService;
+import ru.practicum.shareit.booking.BookingCounterRepository;
+import ru.practicum.shareit.booking.BookingInterval;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
 import ru.practicum.shareit.exception.IdViolationException;
 import ru.practicum.shareit.exception.ValidatorException;
+import ru.practicum.shareit.item.ItemAvailabilityIndex;
+import ru.practicum.shareit.item.ItemCalendarCache;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.ItemSearchIndex;
 
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final EmailValidator validator = EmailValidator.getInstance();
     private final CommonService commonService;
+    private final ItemRepository itemRepository;
+    private final BookingRepository bookingRepository;
+    private final BookingCounterRepository bookingCounterRepository;
+    private final ItemSearchIndex searchIndex;
+    private final ItemAvailabilityIndex availabilityIndex;
+    private final ItemCalendarCache calendarCache;
 
 
     @Override
@@ -27,6 +43,7 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Transactional
     public UserDto createUser(UserDto userDto) {
         User user = UserMapper.toUser(userDto);
         if (!validator.isValid(user.getEmail())) {
@@ -39,27 +56,47 @@ public class UserServiceImpl implements UserService {
             throw new ValidatorException("Bad request. Name or email is empty.");
         }
         try {
-            return UserMapper.toUserDto(userRepository.save(user));
+            return UserMapper.toUserDto(userRepository.saveAndFlush(user));
         } catch (DataIntegrityViolationException e) {
             throw new IdViolationException("User already in base.");
         }
     }
 
     @Override
+    @Transactional
     public UserDto patchUser(UserDto userDto, Long userId) {
         User user = commonService.getInDBUser(userId);
         UserMapper.patchUser(userDto, user);
         try {
-            return UserMapper.toUserDto(userRepository.save(user));
+            UserDto saved = UserMapper.toUserDto(userRepository.saveAndFlush(user));
+            commonService.evictUser(userId);
+            return saved;
         } catch (DataIntegrityViolationException e) {
             throw new IdViolationException("Already have user like this in base.");
         }
     }
 
     @Override
+    @Transactional
     public void deleteUser(Long userId) {
         try {
+            userRepository.lockUser(userId);
+            List<Long> itemIds = itemRepository.findIdsByOwner(userId);
+            if (!itemIds.isEmpty()) {
+                bookingRepository.lockItems(itemIds);
+            }
+            bookingCounterRepository.subtractBookingsOfUser(userId);
+            List<BookingInterval> bookings = bookingRepository.findIntervalsOfBooker(userId, BookingStatus.APPROVED);
             userRepository.deleteById(userId);
+            commonService.evictUser(userId);
+            commonService.evictItems();
+            itemIds.forEach(itemId -> {
+                searchIndex.delete(itemId);
+                availabilityIndex.removeItem(itemId);
+                calendarCache.evict(itemId);
+            });
+            bookings.forEach(availabilityIndex::removeBooking);
+            bookings.stream().map(BookingInterval::getItemId).distinct().forEach(calendarCache::evict);
         } catch (EmptyResultDataAccessException e) {
             throw new ValidatorException("Bad request. Can't delete this user.");
         }
@@ -1,12 +1,30 @@
+drop table if exists idempotency_keys cascade;
+drop table if exists booking_counters cascade;
 drop table if exists comments cascade;
 drop table if exists bookings cascade;
 drop table if exists items cascade;
 drop table if exists requests cascade;
 drop table if exists users cascade;
+-- cascade only drops the id default of the archived bookings partitions, the tables are kept
+drop sequence if exists bookings_seq cascade;
+drop sequence if exists comments_seq;
+drop sequence if exists items_seq;
+drop sequence if exists requests_seq;
+drop sequence if exists users_seq;
+
+create extension if not exists btree_gist;
+create extension if not exists pg_trgm;
+
+-- increments match the allocationSize of the entity ids, so hibernate hands out 50 ids per round trip
+create sequence if not exists users_seq start with 1 increment by 50;
+create sequence if not exists requests_seq start with 1 increment by 50;
+create sequence if not exists items_seq start with 1 increment by 50;
+create sequence if not exists comments_seq start with 1 increment by 50;
+create sequence if not exists bookings_seq start with 1 increment by 50;
 
 create table if not exists users
 (
-    id    bigint generated always as identity primary key,
+    id    bigint default nextval('users_seq') primary key,
     name  varchar(255) not null,
     email varchar(320) not null,
     constraint uq_email unique (email)
@@ -14,45 +32,111 @@ create table if not exists users
 
 create table if not exists requests
 (
-    id           bigint generated always as identity primary key,
+    id           bigint default nextval('requests_seq') primary key,
     description  varchar(255) not null,
     requestor_id bigint,
     created      timestamp without time zone not null,
     constraint fk_request_to_user foreign key (requestor_id) references users (id) on delete cascade
 );
 
+create index if not exists ix_requests_requestor on requests (requestor_id);
+-- page order of the other users' requests
+create index if not exists ix_requests_created on requests (created desc, id desc);
+
 create table if not exists items
 (
-    id           bigint generated always as identity primary key,
+    id           bigint default nextval('items_seq') primary key,
     name         varchar(255) not null,
     description  varchar(320) not null,
     is_available boolean,
     owner_id     bigint,
     request_id   bigint,
+    version      bigint not null default 0,
+    -- russian config stems cyrillic words with russian_stem and latin ones with english_stem
+    search_vector tsvector generated always as (
+        setweight(to_tsvector('russian', coalesce(name, '')), 'A') ||
+        setweight(to_tsvector('russian', coalesce(description, '')), 'B')) stored,
 
     constraint fk_item_to_user foreign key (owner_id) references users (id) on delete cascade,
     constraint fk_item_to_request foreign key (request_id) references requests (id) on delete cascade
 );
 
+-- owner's items in id order, also serves the owner join of the booking lists
+create index if not exists ix_items_owner on items (owner_id, id);
+create index if not exists ix_items_request on items (request_id);
+create index if not exists ix_items_search_vector on items using gin (search_vector);
+create index if not exists ix_items_name_trgm on items using gin (name gin_trgm_ops);
+create index if not exists ix_items_description_trgm on items using gin (description gin_trgm_ops);
+
 create table if not exists bookings
 (
-    id         bigint generated always as identity primary key,
+    id         bigint default nextval('bookings_seq') not null,
     start_date timestamp without time zone not null,
     end_date   timestamp without time zone not null,
     item_id    bigint,
     booker_id  bigint,
     status     varchar(50),
+    version    bigint not null default 0,
+    constraint pk_bookings primary key (id, start_date),
     constraint fk_booking_to_item foreign key (item_id) references items (id) on delete cascade,
     constraint fk_booking_to_user foreign key (booker_id) references users (id) on delete cascade
+) partition by range (start_date);
+
+-- monthly partitions are created ahead by BookingPartitionJob, the default one holds whatever they do not cover yet.
+-- exclusion constraints are not supported on a partitioned table, so every partition declares its own
+-- and overlaps across partitions are left to the service, which checks them under a lock on the item row
+create table if not exists bookings_default partition of bookings
+(
+    constraint ex_bookings_default_approved_overlap exclude using gist
+        (item_id with =, tsrange(start_date, end_date) with &&) where (status = 'APPROVED')
+) default;
+
+create index if not exists ix_bookings_waiting_start on bookings (start_date) where status = 'WAITING';
+-- booker's bookings in page order
+create index if not exists ix_bookings_booker_start on bookings (booker_id, start_date desc, id desc);
+-- owner's bookings in page order per item and the last booking of every item
+create index if not exists ix_bookings_item_end on bookings (item_id, end_date desc, id desc);
+-- next booking of every item and the approved intervals of a batch
+create index if not exists ix_bookings_item_start on bookings (item_id, start_date, id);
+-- booker's bookings that have not ended, for the booking counts
+create index if not exists ix_bookings_booker_end on bookings (booker_id, end_date);
+
+-- bookings per status of every booker and owner, kept up to date by BookingServiceImpl and BookingExpiryJob
+create table if not exists booking_counters
+(
+    user_id bigint      not null,
+    role    varchar(10) not null,
+    status  varchar(50) not null,
+    count   bigint      not null,
+    constraint pk_booking_counters primary key (user_id, role, status),
+    constraint fk_booking_counters_to_user foreign key (user_id) references users (id) on delete cascade
 );
 
 create table if not exists comments
 (
-    id        bigint generated always as identity primary key,
+    id        bigint default nextval('comments_seq') primary key,
     text      varchar(320) not null,
     item_id   bigint,
     author_id bigint,
     created   timestamp without time zone not null,
     constraint fk_comments_to_item foreign key (item_id) references items (id) on delete cascade,
     constraint fk_comments_to_user foreign key (author_id) references users (id) on delete cascade
-)
\ No newline at end of file
+);
+
+create index if not exists ix_comments_item on comments (item_id);
+create index if not exists ix_comments_author on comments (author_id);
+
+-- responses of POST requests sent with an Idempotency-Key, replayed to retries until they expire
+create table if not exists idempotency_keys
+(
+    user_id         bigint       not null,
+    idempotency_key varchar(255) not null,
+    request_hash    varchar(32)  not null,
+    status          integer,
+    content_type    varchar(255),
+    body            bytea,
+    expires_at      timestamp without time zone not null,
+    constraint pk_idempotency_keys primary key (user_id, idempotency_key)
+);
+
+create index if not exists ix_idempotency_keys_expires on idempotency_keys (expires_at)
\ No newline at end of file
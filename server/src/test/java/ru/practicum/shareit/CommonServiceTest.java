@@ -1,5 +1,10 @@
 package ru.practicum.shareit;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
@@ -7,26 +12,49 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.exception.ValidatorException;
 import ru.practicum.shareit.item.ItemRepository;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.ItemRequest;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepository;
 
+import javax.persistence.EntityManagerFactory;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyLong;
 
 @ExtendWith(MockitoExtension.class)
 public class CommonServiceTest {
     UserRepository userRepository = Mockito.mock(UserRepository.class);
     ItemRepository itemRepository = Mockito.mock(ItemRepository.class);
-    CommonService commonService = new CommonService(userRepository, itemRepository);
+    EntityManagerFactory entityManagerFactory = Mockito.mock(EntityManagerFactory.class);
+    SessionFactory sessionFactory = Mockito.mock(SessionFactory.class);
+    Cache secondLevelCache = Mockito.mock(Cache.class);
+    EntityCacheProperties properties = new EntityCacheProperties();
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    CommonService commonService;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.when(entityManagerFactory.unwrap(SessionFactory.class))
+                .thenReturn(sessionFactory);
+        Mockito.when(sessionFactory.getCache())
+                .thenReturn(secondLevelCache);
+        commonService = new CommonService(userRepository, itemRepository, entityManagerFactory, properties,
+                meterRegistry);
+    }
 
     @Test
     public void getItem() {
@@ -47,6 +75,22 @@ public class CommonServiceTest {
                 .findById(1L);
     }
 
+    @Test
+    public void getItems() {
+        List<Item> items = List.of(
+                Item.builder().id(1L).name("Test1").build(),
+                Item.builder().id(2L).name("Test2").build());
+        Mockito.when(itemRepository.findAllByIdIn(Set.of(1L, 2L, 3L)))
+                .thenReturn(items);
+
+        Map<Long, Item> testItems = commonService.getInDbItems(Set.of(1L, 2L, 3L));
+        assertThat(testItems.keySet(), containsInAnyOrder(1L, 2L));
+        assertThat(testItems.get(2L).getName(), equalTo("Test2"));
+        assertThat(commonService.getInDbItems(Set.of()).isEmpty(), equalTo(true));
+        Mockito.verify(itemRepository, Mockito.times(1))
+                .findAllByIdIn(anyCollection());
+    }
+
     @Test
     public void getUser() {
         User user = User.builder()
@@ -68,26 +112,32 @@ public class CommonServiceTest {
 
     @Test
     public void getItemByRequest() {
+        ItemRequest request1 = ItemRequest.builder().id(1L).build();
+        ItemRequest request2 = ItemRequest.builder().id(2L).build();
         List<Item> items = List.of(
-                Item.builder().id(1L).name("Test1").build(),
-                Item.builder().id(2L).name("Test2").build());
-        Mockito.when(itemRepository.findAllByRequest_Id(anyLong()))
+                Item.builder().id(1L).name("Test1").request(request1).build(),
+                Item.builder().id(2L).name("Test2").request(request1).build(),
+                Item.builder().id(3L).name("Test3").request(request2).build());
+        Mockito.when(itemRepository.findDistinctByRequest_IdIn(List.of(1L, 2L, 3L)))
                 .thenReturn(items);
-        Set<ItemDto> itemDtos = items.stream().map(i -> ItemDto.builder()
+        Set<ItemDto> itemDtos = items.stream().limit(2).map(i -> ItemDto.builder()
                 .id(i.getId())
                 .name(i.getName())
                 .build()).collect(Collectors.toSet());
 
-        Set<ItemDto> testItems = commonService.getItemsByRequest(1L);
-        assertThat(testItems, hasSize(itemDtos.size()));
+        Map<Long, Set<ItemDto>> testItems = commonService.getItemsByRequests(List.of(1L, 2L, 3L));
+        assertThat(testItems.keySet(), hasSize(2));
+        assertThat(testItems.get(1L), hasSize(itemDtos.size()));
+        assertThat(testItems.get(2L), hasSize(1));
         for (ItemDto itemDto : itemDtos) {
-            assertThat(testItems, hasItem(allOf(
+            assertThat(testItems.get(1L), hasItem(allOf(
                     hasProperty("id", equalTo(itemDto.getId())),
                     hasProperty("name", equalTo(itemDto.getName()))
             )));
         }
+        assertThat(commonService.getItemsByRequests(List.of()).isEmpty(), equalTo(true));
         Mockito.verify(itemRepository, Mockito.times(1))
-                .findAllByRequest_Id(1L);
+                .findDistinctByRequest_IdIn(anyCollection());
     }
 
     @Test
@@ -101,4 +151,92 @@ public class CommonServiceTest {
         assertThat(testPageableOne, equalTo(pageableNoSort));
         assertThat(testPageableTwo, equalTo(pageableWithSort));
     }
+
+    @Test
+    public void getSeekPagination() {
+        assertThat(commonService.getSeekPagination(15), equalTo(PageRequest.of(0, 15)));
+        assertThrows(ValidatorException.class, () -> commonService.getSeekPagination(0));
+    }
+
+    @Test
+    public void referenceKnownUser() {
+        User user = User.builder().id(1L).name("Test").email("test@mail.com").build();
+        User reference = User.builder().id(1L).build();
+        Mockito.when(userRepository.findById(1L))
+                .thenReturn(Optional.of(user));
+        Mockito.when(userRepository.getReferenceById(1L))
+                .thenReturn(reference);
+
+        assertThat(commonService.getInDBUser(1L), sameInstance(user));
+        assertThat(commonService.getInDBUser(1L), sameInstance(reference));
+
+        Mockito.verify(userRepository, Mockito.times(1))
+                .findById(1L);
+        assertThat(meterRegistry.get(CommonService.CACHE_GETS).tags("cache", "users", "result", "hit")
+                .functionCounter().count(), equalTo(1.0));
+        assertThat(meterRegistry.get(CommonService.CACHE_GETS).tags("cache", "users", "result", "miss")
+                .functionCounter().count(), equalTo(1.0));
+    }
+
+    @Test
+    public void evictItem() {
+        Item item = Item.builder().id(1L).name("Test").build();
+        Mockito.when(itemRepository.findById(1L))
+                .thenReturn(Optional.of(item));
+
+        commonService.getInDbItem(1L);
+        commonService.evictItem(1L);
+        commonService.getInDbItem(1L);
+        commonService.evictItems();
+        commonService.getInDbItem(1L);
+
+        Mockito.verify(itemRepository, Mockito.times(3))
+                .findById(1L);
+        Mockito.verify(itemRepository, Mockito.never())
+                .getReferenceById(anyLong());
+        Mockito.verify(secondLevelCache, Mockito.times(1))
+                .evictCollectionData(CommonService.ITEM_COMMENTS, 1L);
+        Mockito.verify(secondLevelCache, Mockito.times(1))
+                .evictEntityData(Item.class);
+        Mockito.verify(secondLevelCache, Mockito.times(1))
+                .evictEntityData(Comment.class);
+    }
+
+    @Test
+    public void evictItemComments() {
+        commonService.evictItemComments(1L);
+
+        Mockito.verify(secondLevelCache, Mockito.times(1))
+                .evictCollectionData(CommonService.ITEM_COMMENTS, 1L);
+        Mockito.verify(secondLevelCache, Mockito.never())
+                .evictEntityData(Item.class);
+    }
+
+    @Test
+    public void rememberOnlyFound() {
+        Mockito.when(userRepository.findById(1L))
+                .thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> commonService.getInDBUser(1L));
+        assertThrows(NotFoundException.class, () -> commonService.getInDBUser(1L));
+
+        Mockito.verify(userRepository, Mockito.times(2))
+                .findById(1L);
+    }
+
+    @Test
+    public void disabled() {
+        properties.setEnabled(false);
+        User user = User.builder().id(1L).name("Test").email("test@mail.com").build();
+        Mockito.when(userRepository.findById(1L))
+                .thenReturn(Optional.of(user));
+
+        commonService.getInDBUser(1L);
+        commonService.getInDBUser(1L);
+
+        Mockito.verify(userRepository, Mockito.times(2))
+                .findById(1L);
+        Mockito.verify(userRepository, Mockito.never())
+                .getReferenceById(anyLong());
+    }
 }
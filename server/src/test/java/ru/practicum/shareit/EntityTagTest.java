@@ -0,0 +1,31 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.exception.ValidatorException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class EntityTagTest {
+    @Test
+    public void ofAndParse() {
+        assertThat(EntityTag.of(3L), equalTo("\"3\""));
+        assertThat(EntityTag.parse(EntityTag.of(3L)), equalTo(3L));
+        assertThat(EntityTag.parse("W/\"4\""), equalTo(4L));
+        assertThat(EntityTag.parse("5"), equalTo(5L));
+    }
+
+    @Test
+    public void parseAny() {
+        assertThat(EntityTag.parse(null), nullValue());
+        assertThat(EntityTag.parse(" "), nullValue());
+        assertThat(EntityTag.parse("*"), nullValue());
+    }
+
+    @Test
+    public void parseInvalid() {
+        assertThrows(ValidatorException.class, () -> EntityTag.parse("\"abc\""));
+    }
+}
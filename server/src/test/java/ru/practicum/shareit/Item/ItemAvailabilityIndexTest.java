@@ -0,0 +1,141 @@
+package ru.practicum.shareit.Item;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingInterval;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.ItemAvailabilityIndex;
+import ru.practicum.shareit.item.dto.FreeWindowDto;
+import ru.practicum.shareit.item.model.Item;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+public class ItemAvailabilityIndexTest {
+    private final BookingRepository bookingRepository = Mockito.mock(BookingRepository.class);
+    private final ItemAvailabilityIndex index = new ItemAvailabilityIndex(bookingRepository);
+
+    private final LocalDateTime day = LocalDateTime.of(2030, 1, 1, 0, 0);
+    private Item item;
+
+    @BeforeEach
+    void setUp() {
+        item = Item.builder().id(1L).build();
+        when(bookingRepository.streamIntervals(eq(BookingStatus.APPROVED), any(LocalDateTime.class)))
+                .thenReturn(Stream.of(interval(1L, day.plusHours(2), day.plusHours(4)),
+                        interval(2L, day.plusHours(6), day.plusHours(8))));
+        index.warmUp();
+    }
+
+    @Test
+    void getFreeWindows() {
+        assertThat(index.getFreeWindows(item.getId(), day, day.plusHours(10)), contains(
+                new FreeWindowDto(day, day.plusHours(2)),
+                new FreeWindowDto(day.plusHours(4), day.plusHours(6)),
+                new FreeWindowDto(day.plusHours(8), day.plusHours(10))));
+        assertThat(index.getFreeWindows(item.getId(), day.plusHours(3), day.plusHours(7)), contains(
+                new FreeWindowDto(day.plusHours(4), day.plusHours(6))));
+        assertThat(index.getFreeWindows(item.getId(), day.plusHours(2), day.plusHours(4)), empty());
+        assertThat(index.getFreeWindows(2L, day, day.plusHours(1)), contains(
+                new FreeWindowDto(day, day.plusHours(1))));
+    }
+
+    @Test
+    void onBookingChanged() {
+        Booking booking = Booking.builder()
+                .id(3L)
+                .item(item)
+                .start(day.plusHours(4))
+                .end(day.plusHours(6))
+                .status(BookingStatus.APPROVED)
+                .build();
+        index.onBookingChanged(booking);
+        assertThat(index.getFreeWindows(item.getId(), day.plusHours(2), day.plusHours(8)), empty());
+
+        booking.setStatus(BookingStatus.REJECTED);
+        index.onBookingChanged(booking);
+        assertThat(index.getFreeWindows(item.getId(), day.plusHours(2), day.plusHours(8)), contains(
+                new FreeWindowDto(day.plusHours(4), day.plusHours(6))));
+
+        index.removeItem(item.getId());
+        assertThat(index.getFreeWindows(item.getId(), day, day.plusHours(10)), contains(
+                new FreeWindowDto(day, day.plusHours(10))));
+    }
+
+    @Test
+    void applyChangesOnCommitOnly() {
+        Booking booking = Booking.builder()
+                .id(3L)
+                .item(item)
+                .start(day.plusHours(4))
+                .end(day.plusHours(6))
+                .status(BookingStatus.APPROVED)
+                .build();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.onBookingChanged(booking);
+            assertThat(index.getFreeWindows(item.getId(), day.plusHours(4), day.plusHours(6)), contains(
+                    new FreeWindowDto(day.plusHours(4), day.plusHours(6))));
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+            assertThat(index.getFreeWindows(item.getId(), day.plusHours(4), day.plusHours(6)), contains(
+                    new FreeWindowDto(day.plusHours(4), day.plusHours(6))));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertThat(index.getFreeWindows(item.getId(), day.plusHours(4), day.plusHours(6)), empty());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.removeBooking(interval(1L, day.plusHours(2), day.plusHours(4)));
+            index.removeItem(2L);
+            assertThat(index.getFreeWindows(item.getId(), day.plusHours(2), day.plusHours(4)), empty());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertThat(index.getFreeWindows(item.getId(), day.plusHours(2), day.plusHours(4)), contains(
+                    new FreeWindowDto(day.plusHours(2), day.plusHours(4))));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private BookingInterval interval(Long id, LocalDateTime start, LocalDateTime end) {
+        return new BookingInterval() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getItemId() {
+                return item.getId();
+            }
+
+            @Override
+            public LocalDateTime getStart() {
+                return start;
+            }
+
+            @Override
+            public LocalDateTime getEnd() {
+                return end;
+            }
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package ru.practicum.shareit.Item;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.ItemCalendarCache;
+import ru.practicum.shareit.item.dto.CalendarDayDto;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class ItemCalendarCacheTest {
+    private final ItemCalendarCache cache = new ItemCalendarCache();
+    private final YearMonth month = YearMonth.of(2031, 1);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void loadOncePerMonth() {
+        cache.get(1L, month, this::load);
+        cache.get(1L, month, this::load);
+        cache.get(1L, month.plusMonths(1), this::load);
+
+        assertThat(loads.get(), equalTo(2));
+    }
+
+    @Test
+    void evictAllMonthsOfItem() {
+        cache.get(1L, month, this::load);
+        cache.get(1L, month.plusMonths(1), this::load);
+        cache.get(2L, month, this::load);
+
+        cache.evict(1L);
+        cache.get(1L, month, this::load);
+        cache.get(1L, month.plusMonths(1), this::load);
+        cache.get(2L, month, this::load);
+
+        assertThat(loads.get(), equalTo(5));
+    }
+
+    @Test
+    void dropLoadRacingWithEviction() {
+        cache.get(1L, month, () -> {
+            cache.evict(1L);
+            return load();
+        });
+        cache.get(1L, month, this::load);
+
+        assertThat(loads.get(), equalTo(2));
+    }
+
+    @Test
+    void keepRecentItemsOnly() {
+        for (long itemId = 0; itemId <= ItemCalendarCache.MAX_ITEMS; itemId++) {
+            cache.get(itemId, month, this::load);
+        }
+        cache.get((long) ItemCalendarCache.MAX_ITEMS, month, this::load);
+        cache.get(0L, month, this::load);
+
+        assertThat(loads.get(), equalTo(ItemCalendarCache.MAX_ITEMS + 2));
+    }
+
+    private List<CalendarDayDto> load() {
+        loads.incrementAndGet();
+        return List.of(new CalendarDayDto(LocalDate.of(2031, 1, 1), 0, 0L));
+    }
+}
@@ -7,15 +7,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.practicum.shareit.PageCursor;
 import ru.practicum.shareit.booking.Booking;
 import ru.practicum.shareit.booking.BookingStatus;
 import ru.practicum.shareit.booking.dto.BookingShortDto;
 import ru.practicum.shareit.item.ItemController;
 import ru.practicum.shareit.item.ItemService;
+import ru.practicum.shareit.item.dto.CalendarDayDto;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.FreeWindowDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
@@ -23,7 +27,9 @@ import ru.practicum.shareit.request.ItemRequest;
 import ru.practicum.shareit.user.User;
 
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Set;
 
@@ -33,6 +39,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -93,6 +100,7 @@ public class ItemControllerTest {
                 .comments(Set.of(commentDto))
                 .lastBooking(BookingShortDto.builder().id(1L).bookerId(user.getId()).build())
                 .nextBooking(BookingShortDto.builder().id(2L).bookerId(user.getId()).build())
+                .version(0L)
                 .build();
         comment.setItem(item);
     }
@@ -125,11 +133,12 @@ public class ItemControllerTest {
     @Test
     void patchItem() throws Exception {
         itemDto.setName("Test2");
-        when(itemService.patchItem(any(ItemDto.class), anyLong(), anyLong()))
+        when(itemService.patchItem(any(ItemDto.class), anyLong(), anyLong(), any()))
                 .thenReturn(itemDto);
 
         mvc.perform(patch("/items/{itemId}", itemDto.getId())
                         .header("X-Sharer-User-Id", user.getId())
+                        .header(HttpHeaders.IF_MATCH, "W/\"0\"")
                         .content(mapper.writeValueAsString(itemDto))
                         .characterEncoding(StandardCharsets.UTF_8)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -142,10 +151,11 @@ public class ItemControllerTest {
                 .andExpect(jsonPath("$.requestId", is(itemDto.getRequestId()), Long.class))
                 .andExpect(jsonPath("$.comments").exists())
                 .andExpect(jsonPath("$.lastBooking").exists())
-                .andExpect(jsonPath("$.nextBooking").exists());
+                .andExpect(jsonPath("$.nextBooking").exists())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
 
         verify(itemService, times(1))
-                .patchItem(any(ItemDto.class), anyLong(), anyLong());
+                .patchItem(any(ItemDto.class), anyLong(), anyLong(), eq(0L));
     }
 
     @Test
@@ -181,7 +191,8 @@ public class ItemControllerTest {
                 .andExpect(jsonPath("$.requestId", is(itemDto.getRequestId()), Long.class))
                 .andExpect(jsonPath("$.comments").exists())
                 .andExpect(jsonPath("$.lastBooking").exists())
-                .andExpect(jsonPath("$.nextBooking").exists());
+                .andExpect(jsonPath("$.nextBooking").exists())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
 
         verify(itemService, times(1))
                 .getItem(anyLong(), anyLong());
@@ -218,7 +229,7 @@ public class ItemControllerTest {
     @Test
     void searchItems() throws Exception {
         List<ItemDto> itemDtos = List.of(itemDto);
-        when(itemService.searchItems(anyString(), anyLong(), anyInt(), anyInt()))
+        when(itemService.searchItems(anyString(), any(), anyLong(), anyInt(), anyInt()))
                 .thenReturn(itemDtos);
 
         mvc.perform(get("/items/search")
@@ -241,7 +252,33 @@ public class ItemControllerTest {
                 .andExpect(jsonPath("$[0].nextBooking").exists());
 
         verify(itemService, times(1))
-                .searchItems(anyString(), anyLong(), anyInt(), anyInt());
+                .searchItems(anyString(), any(), anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    void searchItemsNextCursor() throws Exception {
+        PageCursor cursor = PageCursor.ofRank(0.25f, itemDto.getId());
+        when(itemService.searchItems(anyString(), any(), anyLong(), anyInt(), anyInt()))
+                .thenReturn(List.of(itemDto));
+        when(itemService.getSearchCursor("qwerty", null, itemDto.getId()))
+                .thenReturn(cursor);
+
+        mvc.perform(get("/items/search")
+                        .header("X-Sharer-User-Id", user.getId())
+                        .param("text", "qwerty")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(PageCursor.HEADER, cursor.encode()));
+
+        mvc.perform(get("/items/search")
+                        .header("X-Sharer-User-Id", user.getId())
+                        .param("text", "qwerty")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(PageCursor.HEADER));
+
+        verify(itemService, times(1))
+                .getSearchCursor(anyString(), any(), anyLong());
     }
 
     @Test
@@ -263,4 +300,44 @@ public class ItemControllerTest {
         verify(itemService, times(1))
                 .addCommentToItem(anyLong(), anyLong(), any(CommentDto.class));
     }
+
+    @Test
+    void getFreeWindows() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 10, 0);
+        LocalDateTime to = LocalDateTime.of(2030, 1, 2, 10, 0);
+        when(itemService.getFreeWindows(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(new FreeWindowDto(from, to)));
+
+        mvc.perform(get("/items/{itemId}/availability", itemDto.getId())
+                        .header("X-Sharer-User-Id", user.getId())
+                        .param("from", from.toString())
+                        .param("to", to.toString())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].start").exists())
+                .andExpect(jsonPath("$[0].end").exists());
+
+        verify(itemService, times(1))
+                .getFreeWindows(itemDto.getId(), from, to);
+    }
+
+    @Test
+    void getCalendar() throws Exception {
+        when(itemService.getCalendar(anyLong(), anyLong(), any(YearMonth.class)))
+                .thenReturn(List.of(new CalendarDayDto(LocalDate.of(2031, 1, 1), 1, 120L)));
+
+        mvc.perform(get("/items/{itemId}/calendar", itemDto.getId())
+                        .header("X-Sharer-User-Id", user.getId())
+                        .param("month", "2031-01")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].date").exists())
+                .andExpect(jsonPath("$[0].bookings", is(1)))
+                .andExpect(jsonPath("$[0].occupiedMinutes", is(120)));
+
+        verify(itemService, times(1))
+                .getCalendar(itemDto.getId(), user.getId(), YearMonth.of(2031, 1));
+    }
 }
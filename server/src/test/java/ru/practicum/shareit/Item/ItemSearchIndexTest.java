@@ -0,0 +1,145 @@
+package ru.practicum.shareit.Item;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.ItemSearchIndex;
+import ru.practicum.shareit.item.ItemSearchProperties;
+import ru.practicum.shareit.item.ItemSearchRow;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ItemSearchIndexTest {
+    private final ItemRepository itemRepository = Mockito.mock(ItemRepository.class);
+    private final ItemSearchProperties searchProperties = new ItemSearchProperties();
+    private final ItemSearchIndex index = new ItemSearchIndex(itemRepository, searchProperties);
+
+    @BeforeEach
+    void setUp() {
+        searchProperties.setIndexEnabled(true);
+        when(itemRepository.streamAvailableForIndex())
+                .thenReturn(Stream.of(row(1L, "Дрель", "Аккумуляторная дрель"),
+                        row(2L, "Отвертка", "Аккумуляторная отвертка"),
+                        row(5L, "Drill", "Power drill")));
+        index.rebuild();
+    }
+
+    @Test
+    void search() {
+        assertThat(index.search(List.of("аккум"), 0L, 0, 10), equalTo(List.of(1L, 2L)));
+        assertThat(index.search(List.of("дрел", "аккум"), 0L, 0, 10), equalTo(List.of(1L)));
+        assertThat(index.search(List.of("dr"), 0L, 0, 10), equalTo(List.of(5L)));
+        assertThat(index.search(List.of("аккум"), 1L, 0, 10), equalTo(List.of(2L)));
+        assertThat(index.search(List.of("аккум"), 0L, 1, 10), equalTo(List.of(2L)));
+        assertThat(index.search(List.of("аккум"), 0L, 0, 1), equalTo(List.of(1L)));
+        assertThat(index.search(List.of("пила"), 0L, 0, 10), empty());
+        assertThat(index.search(List.of(), 0L, 0, 10), empty());
+    }
+
+    @Test
+    void update() {
+        index.update(Item.builder().id(3L).name("Пила").description("Аккумуляторная пила").available(true).build());
+        assertThat(index.search(List.of("аккум"), 0L, 0, 10), equalTo(List.of(1L, 2L, 3L)));
+
+        index.update(Item.builder().id(1L).name("Дрель").description("Сетевая дрель").available(true).build());
+        assertThat(index.search(List.of("аккум"), 0L, 0, 10), equalTo(List.of(2L, 3L)));
+        assertThat(index.search(List.of("сетев"), 0L, 0, 10), equalTo(List.of(1L)));
+
+        index.update(Item.builder().id(2L).name("Отвертка").description("Аккумуляторная").available(false).build());
+        assertThat(index.search(List.of("аккум"), 0L, 0, 10), equalTo(List.of(3L)));
+
+        index.delete(3L);
+        assertThat(index.search(List.of("аккум"), 0L, 0, 10), empty());
+    }
+
+    @Test
+    void updateOnCommitOnly() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.update(Item.builder().id(3L).name("Пила").description("Аккумуляторная пила").available(true).build());
+            index.delete(1L);
+            assertThat(index.search(List.of("аккум"), 0L, 0, 10), equalTo(List.of(1L, 2L)));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertThat(index.search(List.of("аккум"), 0L, 0, 10), equalTo(List.of(2L, 3L)));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void rebuildKeepsServingSearchesAndChanges() {
+        ExecutorService searcher = Executors.newSingleThreadExecutor();
+        try {
+            Stream<ItemSearchRow> first = Stream.of(row(1L, "Дрель", "Аккумуляторная дрель")).peek(r -> {
+                Future<List<Long>> search = searcher.submit(() -> index.search(List.of("аккум"), 0L, 0, 10));
+                assertThat(getQuickly(search), equalTo(List.of(1L, 2L)));
+                index.update(Item.builder().id(7L).name("Пила").description("Аккумуляторная пила")
+                        .available(true).build());
+                index.delete(2L);
+            });
+            when(itemRepository.streamAvailableForIndex())
+                    .thenReturn(Stream.concat(first, Stream.of(row(2L, "Отвертка", "Аккумуляторная отвертка"))));
+
+            index.rebuild();
+
+            assertThat(index.search(List.of("аккум"), 0L, 0, 10), equalTo(List.of(1L, 7L)));
+            assertThat(index.search(List.of("dr"), 0L, 0, 10), empty());
+        } finally {
+            searcher.shutdownNow();
+        }
+    }
+
+    @Test
+    void disabled() {
+        ItemRepository repository = Mockito.mock(ItemRepository.class);
+        ItemSearchIndex disabled = new ItemSearchIndex(repository, new ItemSearchProperties());
+        disabled.rebuild();
+        disabled.update(Item.builder().id(1L).name("Дрель").description("Дрель").available(true).build());
+        assertThat(disabled.search(List.of("дрел"), 0L, 0, 10), empty());
+        verify(repository, never()).streamAvailableForIndex();
+    }
+
+    private static List<Long> getQuickly(Future<List<Long>> search) {
+        try {
+            return search.get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new AssertionError("Search did not finish during the rebuild", e);
+        }
+    }
+
+    private ItemSearchRow row(Long id, String name, String description) {
+        return new ItemSearchRow() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public String getDescription() {
+                return description;
+            }
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.shareit.Item;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.ItemSearchText;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+public class ItemSearchTextTest {
+    @Test
+    void tokens() {
+        assertThat(ItemSearchText.tokens("  Дрель, аккУМУляторная & drill's  дрель"),
+                equalTo(List.of("дрель", "аккумуляторная", "drill", "s")));
+        assertThat(ItemSearchText.tokens("  '&|!:* "), empty());
+        assertThat(ItemSearchText.tokens(null), empty());
+    }
+
+    @Test
+    void toPrefixTsQuery() {
+        assertThat(ItemSearchText.toPrefixTsQuery(List.of("дрель", "drill")), equalTo("дрель:* & drill:*"));
+    }
+}
@@ -3,20 +3,33 @@ package ru.practicum.shareit.Item;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import ru.practicum.shareit.CommonService;
+import ru.practicum.shareit.PageCursor;
 import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingCalendarDay;
+import ru.practicum.shareit.booking.BookingCounterRepository;
+import ru.practicum.shareit.booking.BookingRepository;
 import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.ItemBookingSummary;
 import ru.practicum.shareit.booking.dto.BookingShortDto;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.exception.PreconditionFailedException;
 import ru.practicum.shareit.exception.ValidatorException;
 import ru.practicum.shareit.item.CommentRepository;
+import ru.practicum.shareit.item.ItemAvailabilityIndex;
+import ru.practicum.shareit.item.ItemCalendarCache;
 import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.ItemSearchIndex;
+import ru.practicum.shareit.item.ItemSearchMode;
+import ru.practicum.shareit.item.ItemSearchProperties;
 import ru.practicum.shareit.item.ItemService;
 import ru.practicum.shareit.item.ItemServiceImpl;
+import ru.practicum.shareit.item.dto.CalendarDayDto;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Comment;
@@ -24,13 +37,16 @@ import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.ItemRequest;
 import ru.practicum.shareit.user.User;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
@@ -40,8 +56,18 @@ public class ItemServiceImplTest {
     private final ItemRepository itemRepository = Mockito.mock(ItemRepository.class);
     private final CommentRepository commentRepository = Mockito.mock(CommentRepository.class);
     private final CommonService commonService = Mockito.mock(CommonService.class);
+    private final BookingRepository bookingRepository = Mockito.mock(BookingRepository.class);
+    private final BookingCounterRepository bookingCounterRepository =
+            Mockito.mock(BookingCounterRepository.class);
+    private final ItemAvailabilityIndex availabilityIndex = Mockito.mock(ItemAvailabilityIndex.class);
 
-    private ItemService itemService = new ItemServiceImpl(itemRepository, commentRepository, commonService);
+    private final ItemSearchProperties searchProperties = new ItemSearchProperties();
+    private final ItemSearchIndex searchIndex = Mockito.mock(ItemSearchIndex.class);
+    private final ItemCalendarCache calendarCache = new ItemCalendarCache();
+
+    private ItemService itemService = new ItemServiceImpl(itemRepository, commentRepository,
+            bookingRepository, bookingCounterRepository, commonService, availabilityIndex, searchProperties,
+            searchIndex, calendarCache);
 
     private Item item;
     private ItemDto itemDto;
@@ -93,13 +119,16 @@ public class ItemServiceImplTest {
                 .nextBooking(BookingShortDto.builder().id(2L).bookerId(user.getId()).build())
                 .build();
         comment.setItem(item);
+        when(bookingRepository.findLastAndNextByItemIds(anyCollection(), any(LocalDateTime.class)))
+                .thenReturn(List.of(summary(ItemBookingSummary.LAST, 1L, item.getId()),
+                        summary(ItemBookingSummary.NEXT, 2L, item.getId())));
     }
 
     @Test
     void createItem() {
         when(commonService.getInDBUser(anyLong()))
                 .thenReturn(user);
-        when(itemRepository.save(any(Item.class)))
+        when(itemRepository.saveAndFlush(any(Item.class)))
                 .thenReturn(item);
 
         ItemDto testItemDto = itemService.createItem(itemDto, user.getId());
@@ -131,7 +160,9 @@ public class ItemServiceImplTest {
         verify(commonService, times(3))
                 .getInDBUser(anyLong());
         verify(itemRepository, times(1))
-                .save(any(Item.class));
+                .saveAndFlush(any(Item.class));
+        verify(searchIndex, times(1))
+                .update(item);
     }
 
     @Test
@@ -140,21 +171,32 @@ public class ItemServiceImplTest {
         item.setName("Test2");
         when(commonService.getInDbItem(anyLong()))
                 .thenReturn(item);
-        when(itemRepository.save(any(Item.class)))
+        when(itemRepository.saveAndFlush(any(Item.class)))
                 .thenReturn(item);
-        ItemDto testItemDto = itemService.patchItem(itemDto, item.getId(), user.getId());
+        ItemDto testItemDto = itemService.patchItem(itemDto, item.getId(), user.getId(), null);
         assertThat(testItemDto.getName(), equalTo(itemDto.getName()));
 
         try {
-            ItemDto testItemDto1 = itemService.patchItem(itemDto, item.getId(), 100L);
+            ItemDto testItemDto1 = itemService.patchItem(itemDto, item.getId(), 100L, null);
         } catch (NotFoundException e) {
             assertThat(e.getMessage(), equalTo("User id and owner of item id is not equal."));
         }
 
-        verify(commonService, times(2))
+        item.setVersion(3L);
+        try {
+            ItemDto testItemDto2 = itemService.patchItem(itemDto, item.getId(), user.getId(), 2L);
+        } catch (PreconditionFailedException e) {
+            assertThat(e.getMessage(), equalTo("Precondition failed. Item version is 3."));
+        }
+
+        verify(commonService, times(3))
                 .getInDbItem(anyLong());
         verify(itemRepository, times(1))
-                .save(any(Item.class));
+                .saveAndFlush(any(Item.class));
+        verify(searchIndex, times(1))
+                .update(item);
+        verify(commonService, times(1))
+                .evictItem(item.getId());
     }
 
     @Test
@@ -163,6 +205,16 @@ public class ItemServiceImplTest {
         itemService.deleteItem(item.getId(), user.getId());
         verify(itemRepository, times(1))
                 .deleteById(anyLong());
+        verify(availabilityIndex, times(1))
+                .removeItem(item.getId());
+        verify(searchIndex, times(1))
+                .delete(item.getId());
+        verify(commonService, times(1))
+                .evictItem(item.getId());
+        InOrder order = Mockito.inOrder(bookingRepository, bookingCounterRepository, itemRepository);
+        order.verify(bookingRepository).lockItems(List.of(item.getId()));
+        order.verify(bookingCounterRepository).subtractBookingsOfItem(item.getId());
+        order.verify(itemRepository).deleteById(item.getId());
     }
 
     @Test
@@ -192,7 +244,7 @@ public class ItemServiceImplTest {
                 .thenReturn(user);
         when(commonService.getPagination(anyInt(), anyInt(), any()))
                 .thenReturn(pageable);
-        when(itemRepository.findAllByOwner(any(User.class), any(Pageable.class)))
+        when(itemRepository.findAllByOwnerAndIdGreaterThanOrderByIdAsc(any(User.class), anyLong(), any(Pageable.class)))
                 .thenReturn(items);
 
         List<ItemDto> itemDtos = List.of(itemDto);
@@ -214,7 +266,7 @@ public class ItemServiceImplTest {
         verify(commonService, times(1))
                 .getInDBUser(anyLong());
         verify(itemRepository, times(1))
-                .findAllByOwner(any(User.class), any(Pageable.class));
+                .findAllByOwnerAndIdGreaterThanOrderByIdAsc(any(User.class), anyLong(), any(Pageable.class));
     }
 
     @Test
@@ -223,12 +275,11 @@ public class ItemServiceImplTest {
         List<Item> items = List.of(item);
         when(commonService.getPagination(anyInt(), anyInt(), any()))
                 .thenReturn(pageable);
-        when(itemRepository.findAllByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCaseAndAvailableTrue(
-                anyString(), anyString(), any(Pageable.class)))
+        when(itemRepository.searchAvailable(anyString(), any(Pageable.class)))
                 .thenReturn(items);
 
         List<ItemDto> itemDtos = List.of(itemDto);
-        List<ItemDto> testItemDto = itemService.searchItems("qwerty", user.getId(), 0, 10);
+        List<ItemDto> testItemDto = itemService.searchItems("qwerty", null, user.getId(), 0, 10);
         assertThat(testItemDto, hasSize(itemDtos.size()));
         for (ItemDto i : itemDtos) {
             assertThat(testItemDto, hasItem(allOf(
@@ -243,14 +294,169 @@ public class ItemServiceImplTest {
             )));
         }
 
-        List<ItemDto> testItemDto1 = itemService.searchItems("", user.getId(), 0, 10);
+        List<ItemDto> testItemDto1 = itemService.searchItems("", null, user.getId(), 0, 10);
         assertThat(testItemDto1, hasSize(0));
 
         verify(commonService, times(1))
                 .getPagination(anyInt(), anyInt(), any());
         verify(itemRepository, times(1))
-                .findAllByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCaseAndAvailableTrue(
-                        anyString(), anyString(), any(Pageable.class));
+                .searchAvailable("qwerty:*", pageable);
+    }
+
+    @Test
+    void searchItemsBySimilarity() {
+        Pageable pageable = PageRequest.of(0, 10);
+        when(commonService.getPagination(anyInt(), anyInt(), any()))
+                .thenReturn(pageable);
+        when(commonService.getSeekPagination(anyInt()))
+                .thenReturn(pageable);
+        when(itemRepository.searchAvailableBySimilarity("акку", pageable))
+                .thenReturn(List.of(item));
+        when(itemRepository.searchAvailableBySimilarityAfter("акку", 0.75f, 5L, pageable))
+                .thenReturn(List.of());
+
+        assertThat(itemService.searchItems(" акку ", ItemSearchMode.TRIGRAM, user.getId(), 0, 10), hasSize(1));
+        assertThat(itemService.searchItemsAfter("акку", ItemSearchMode.TRIGRAM, user.getId(),
+                PageCursor.ofRank(0.75f, 5L), 10),
+                hasSize(0));
+
+        searchProperties.setMode(ItemSearchMode.TRIGRAM);
+        searchProperties.setTrigramThreshold(0.5);
+        assertThat(itemService.searchItems("акку", null, user.getId(), 0, 10), hasSize(1));
+
+        verify(itemRepository, times(2))
+                .setWordSimilarityThreshold(0.3);
+        verify(itemRepository, times(1))
+                .setWordSimilarityThreshold(0.5);
+        verify(itemRepository, never())
+                .searchAvailable(anyString(), any(Pageable.class));
+    }
+
+    @Test
+    void searchItemsByIndex() {
+        Item item2 = Item.builder().id(2L).name("Test2").description("Testing2").available(true).owner(user).build();
+        Pageable pageable = PageRequest.of(1, 2);
+        when(commonService.getPagination(anyInt(), anyInt(), any()))
+                .thenReturn(pageable);
+        when(searchIndex.search(List.of("test"), 0L, 2L, 2))
+                .thenReturn(List.of(2L, 1L));
+        when(itemRepository.findAllById(List.of(2L, 1L)))
+                .thenReturn(List.of(item, item2));
+
+        try {
+            itemService.searchItems("Test", ItemSearchMode.INDEX, user.getId(), 2, 2);
+        } catch (ValidatorException e) {
+            assertThat(e.getMessage(), equalTo("Bad request. Search index is disabled."));
+        }
+
+        when(searchIndex.isEnabled())
+                .thenReturn(true);
+        List<ItemDto> found = itemService.searchItems("Test", ItemSearchMode.INDEX, user.getId(), 2, 2);
+        assertThat(found, hasSize(2));
+        assertThat(found.get(0).getId(), equalTo(2L));
+        assertThat(found.get(1).getId(), equalTo(1L));
+
+        verify(itemRepository, times(1))
+                .findAllById(anyIterable());
+        verify(itemRepository, never())
+                .searchAvailable(anyString(), any(Pageable.class));
+    }
+
+    @Test
+    void getItemsAfterCursor() {
+        Pageable pageable = PageRequest.of(0, 10);
+        when(commonService.getInDBUser(anyLong()))
+                .thenReturn(user);
+        when(commonService.getSeekPagination(anyInt()))
+                .thenReturn(pageable);
+        when(itemRepository.findAllByOwnerAndIdGreaterThanOrderByIdAsc(user, 5L, pageable))
+                .thenReturn(List.of(item));
+        when(itemRepository.searchAvailableAfter("test:*", 0.5f, 5L, pageable))
+                .thenReturn(List.of(item));
+
+        List<ItemDto> testOwnerItems = itemService.getItemsOfUserAfter(user.getId(), PageCursor.ofId(5L), 10);
+        assertThat(testOwnerItems, hasSize(1));
+        assertThat(testOwnerItems.get(0).getId(), equalTo(item.getId()));
+
+        List<ItemDto> testFoundItems = itemService.searchItemsAfter("Test", null, user.getId(),
+                PageCursor.ofRank(0.5f, 5L), 10);
+        assertThat(testFoundItems, hasSize(1));
+        assertThat(itemService.searchItemsAfter("", null, user.getId(), PageCursor.ofId(5L), 10), hasSize(0));
+        assertThrows(ValidatorException.class,
+                () -> itemService.searchItemsAfter("Test", null, user.getId(), PageCursor.ofId(5L), 10));
+
+        verify(commonService, times(3))
+                .getSeekPagination(10);
+    }
+
+    @Test
+    void getSearchCursor() {
+        when(itemRepository.getSearchRank("test:*", 5L))
+                .thenReturn(0.5f);
+        when(itemRepository.getSearchRank("test:*", 6L))
+                .thenReturn(null);
+
+        assertThat(itemService.getSearchCursor("Test", ItemSearchMode.FULLTEXT, 5L),
+                equalTo(PageCursor.ofRank(0.5f, 5L)));
+        assertThat(itemService.getSearchCursor("Test", ItemSearchMode.FULLTEXT, 6L), nullValue());
+        when(itemRepository.getSimilarity("Test", 5L))
+                .thenReturn(0.75f);
+        assertThat(itemService.getSearchCursor(" Test ", ItemSearchMode.TRIGRAM, 5L),
+                equalTo(PageCursor.ofRank(0.75f, 5L)));
+        assertThat(itemService.getSearchCursor("Test", ItemSearchMode.INDEX, 5L), equalTo(PageCursor.ofId(5L)));
+    }
+
+    @Test
+    void getCalendar() {
+        when(commonService.getInDbItem(anyLong()))
+                .thenReturn(item);
+        BookingCalendarDay day = new BookingCalendarDay() {
+            public LocalDate getDay() {
+                return LocalDate.of(2031, 1, 1);
+            }
+
+            public Integer getBookings() {
+                return 1;
+            }
+
+            public Long getOccupiedMinutes() {
+                return 120L;
+            }
+        };
+        when(bookingRepository.findApprovedCalendar(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(day));
+
+        YearMonth month = YearMonth.of(2031, 1);
+        List<CalendarDayDto> calendar = itemService.getCalendar(item.getId(), user.getId(), month);
+        assertThat(calendar, hasSize(1));
+        assertThat(calendar.get(0).getDate(), equalTo(LocalDate.of(2031, 1, 1)));
+        assertThat(calendar.get(0).getBookings(), equalTo(1));
+        assertThat(calendar.get(0).getOccupiedMinutes(), equalTo(120L));
+        assertThat(itemService.getCalendar(item.getId(), user.getId(), month), equalTo(calendar));
+
+        calendarCache.evict(item.getId());
+        itemService.getCalendar(item.getId(), user.getId(), month);
+
+        NotFoundException e = assertThrows(NotFoundException.class,
+                () -> itemService.getCalendar(item.getId(), 99L, month));
+        assertThat(e.getMessage(), equalTo("User id and owner of item id is not equal."));
+
+        verify(bookingRepository, times(2))
+                .findApprovedCalendar(item.getId(), LocalDateTime.of(2031, 1, 1, 0, 0),
+                        LocalDateTime.of(2031, 2, 1, 0, 0));
+    }
+
+    @Test
+    void getFreeWindowsOfUnknownItem() {
+        when(commonService.getInDbItem(anyLong()))
+                .thenThrow(new NotFoundException("Item not found in base."));
+
+        NotFoundException e = assertThrows(NotFoundException.class,
+                () -> itemService.getFreeWindows(99L, time, time.plusDays(1)));
+        assertThat(e.getMessage(), equalTo("Item not found in base."));
+
+        verify(availabilityIndex, never())
+                .getFreeWindows(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class));
     }
 
     @Test
@@ -259,7 +465,7 @@ public class ItemServiceImplTest {
                 .thenReturn(user);
         when(commonService.getInDbItem(anyLong()))
                 .thenReturn(item);
-        when(commentRepository.save(any(Comment.class)))
+        when(commentRepository.saveAndFlush(any(Comment.class)))
                 .thenReturn(comment);
 
         CommentDto testCommentDto = itemService.addCommentToItem(item.getId(), user.getId(), commentDto);
@@ -281,6 +487,60 @@ public class ItemServiceImplTest {
         verify(commonService, times(1))
                 .getInDbItem(anyLong());
         verify(commentRepository, times(1))
-                .save(any(Comment.class));
+                .saveAndFlush(any(Comment.class));
+        verify(commonService, times(1))
+                .evictItemComments(anyLong());
+    }
+
+    @Test
+    void getItemsOfUserFetchesBookingsOnce() {
+        Item item2 = Item.builder().id(2L).name("Test2").description("Testing2").available(true).owner(user).build();
+        Item item3 = Item.builder().id(3L).name("Test3").description("Testing3").available(true).owner(user).build();
+        when(commonService.getInDBUser(anyLong()))
+                .thenReturn(user);
+        when(commonService.getPagination(anyInt(), anyInt(), any()))
+                .thenReturn(PageRequest.of(0, 10));
+        when(itemRepository.findAllByOwnerAndIdGreaterThanOrderByIdAsc(any(User.class), anyLong(), any(Pageable.class)))
+                .thenReturn(List.of(item, item2, item3));
+
+        List<ItemDto> items = itemService.getItemsOfUser(user.getId(), 0, 10);
+        assertThat(items, hasSize(3));
+        assertThat(items.get(0).getLastBooking(), equalTo(itemDto.getLastBooking()));
+        assertThat(items.get(0).getNextBooking(), equalTo(itemDto.getNextBooking()));
+        assertThat(items.get(1).getLastBooking(), nullValue());
+        assertThat(items.get(2).getNextBooking(), nullValue());
+
+        User stranger = User.builder().id(100L).build();
+        when(commonService.getInDBUser(anyLong()))
+                .thenReturn(stranger);
+        itemService.getItemsOfUser(stranger.getId(), 0, 10);
+
+        verify(bookingRepository, times(1))
+                .findLastAndNextByItemIds(eq(List.of(item.getId(), item2.getId(), item3.getId())),
+                        any(LocalDateTime.class));
+    }
+
+    private ItemBookingSummary summary(String kind, Long id, Long itemId) {
+        return new ItemBookingSummary() {
+            @Override
+            public String getKind() {
+                return kind;
+            }
+
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getItemId() {
+                return itemId;
+            }
+
+            @Override
+            public Long getBookerId() {
+                return user.getId();
+            }
+        };
     }
 }
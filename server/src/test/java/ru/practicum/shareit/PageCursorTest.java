@@ -0,0 +1,41 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.exception.ValidatorException;
+
+import java.time.LocalDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PageCursorTest {
+    @Test
+    public void encodeAndDecode() {
+        LocalDateTime key = LocalDateTime.of(2022, 10, 1, 12, 30, 15, 123456000);
+        PageCursor cursor = PageCursor.of(key, 42L);
+
+        PageCursor testCursor = PageCursor.decode(cursor.encode());
+        assertThat(testCursor, equalTo(cursor));
+        assertThat(testCursor.getKey(), equalTo(key));
+        assertThat(testCursor.getId(), equalTo(42L));
+
+        PageCursor testIdCursor = PageCursor.decode(PageCursor.ofId(7L).encode());
+        assertThat(testIdCursor.getKey(), nullValue());
+        assertThat(testIdCursor.getId(), equalTo(7L));
+
+        PageCursor testRankCursor = PageCursor.decode(PageCursor.ofRank(0.0607927f, 9L).encode());
+        assertThat(testRankCursor.getKey(), nullValue());
+        assertThat(testRankCursor.getRank(), equalTo(0.0607927f));
+        assertThat(testRankCursor.getId(), equalTo(9L));
+    }
+
+    @Test
+    public void decodeInvalid() {
+        assertThrows(ValidatorException.class, () -> PageCursor.decode("not a cursor"));
+        assertThrows(ValidatorException.class, () -> PageCursor.decode("MTIz"));
+        assertThrows(ValidatorException.class, () -> PageCursor.ofId(7L).getRequiredKey());
+        assertThrows(ValidatorException.class, () -> PageCursor.ofId(7L).getRequiredRank());
+    }
+}
@@ -0,0 +1,152 @@
+package ru.practicum.shareit;
+
+import com.jayway.jsonpath.JsonPath;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Replays the flows of the Postman scenario with the second-level cache on: users, items, a request answered by an
+ * item, an approved booking and a comment, then rounds of the scenario's GET requests. Logs the hit ratio of every
+ * region and the statements of a cold round against a warm one. Runs only when SHAREIT_EXPLAIN_DB_URL is set, in the
+ * same context as SecondLevelCacheTest.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "spring.jpa.show_sql=false",
+        "shareit.booking.expiry.enabled=false",
+        "shareit.booking.partitions.enabled=false"})
+@AutoConfigureMockMvc
+@ActiveProfiles("l2cache")
+@EnabledIfEnvironmentVariable(named = "SHAREIT_EXPLAIN_DB_URL", matches = ".+")
+public class SecondLevelCacheLoadTest {
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+    private static final int ROUNDS = 20;
+    /**
+     * The comments of an item page are read by a query, so the comments region is filled but only read through
+     * items.comments; it is logged, not checked.
+     */
+    private static final List<String> REGIONS = List.of("users", "items", "requests", "comments", "items.comments");
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        String url = System.getenv("SHAREIT_EXPLAIN_DB_URL");
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.username",
+                () -> Objects.requireNonNullElse(System.getenv("SHAREIT_EXPLAIN_DB_USER"), "postgres"));
+        registry.add("spring.datasource.password",
+                () -> Objects.requireNonNullElse(System.getenv("SHAREIT_EXPLAIN_DB_PASSWORD"), "postgres"));
+        if (url != null && url.startsWith("jdbc:tc:")) {
+            registry.add("spring.datasource.driver-class-name",
+                    () -> "org.testcontainers.jdbc.ContainerDatabaseDriver");
+        }
+    }
+
+    @Test
+    void scenarioHitRatios() throws Exception {
+        long owner = create(post("/users"), "{\"name\":\"owner\",\"email\":\"load-owner@mail.com\"}");
+        long booker = create(post("/users"), "{\"name\":\"booker\",\"email\":\"load-booker@mail.com\"}");
+        long requestor = create(post("/users"), "{\"name\":\"requestor\",\"email\":\"load-requestor@mail.com\"}");
+        long request = create(post("/requests").header(USER_HEADER, requestor),
+                "{\"description\":\"Need a cordless drill\"}");
+        long item = create(post("/items").header(USER_HEADER, owner),
+                "{\"name\":\"Drill\",\"description\":\"cordless drill\",\"available\":true," +
+                        "\"requestId\":" + request + "}");
+        long otherItem = create(post("/items").header(USER_HEADER, owner),
+                "{\"name\":\"Saw\",\"description\":\"hand saw\",\"available\":true}");
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+        long booking = create(post("/bookings").header(USER_HEADER, booker),
+                "{\"itemId\":" + item + ",\"start\":\"" + start + "\",\"end\":\"" + start.plusHours(2) + "\"}");
+        mvc.perform(patch("/bookings/" + booking).param("approved", "true").header(USER_HEADER, owner))
+                .andExpect(status().isOk());
+        // the scenario waits for its booking to end before commenting, a comment row stands in for that
+        jdbcTemplate.update("insert into comments (text, item_id, author_id, created) " +
+                "values ('Good drill', ?, ?, localtimestamp(0))", item, booker);
+
+        List<MockHttpServletRequestBuilder> round = List.of(
+                get("/users/" + owner),
+                get("/users/" + booker),
+                get("/users"),
+                get("/items/" + item).header(USER_HEADER, owner),
+                get("/items/" + item).header(USER_HEADER, booker),
+                get("/items/" + otherItem).header(USER_HEADER, booker),
+                get("/items").header(USER_HEADER, owner),
+                get("/items/search").param("text", "drill").header(USER_HEADER, booker),
+                get("/requests").header(USER_HEADER, requestor),
+                get("/requests/all").header(USER_HEADER, owner),
+                get("/requests/" + request).header(USER_HEADER, owner),
+                get("/bookings/" + booking).header(USER_HEADER, booker),
+                get("/bookings").header(USER_HEADER, booker),
+                get("/bookings/owner").header(USER_HEADER, owner));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+        perform(round);
+        long coldStatements = statistics.getPrepareStatementCount();
+        for (int i = 1; i < ROUNDS; i++) {
+            perform(round);
+        }
+        double warmStatements = (double) (statistics.getPrepareStatementCount() - coldStatements) / (ROUNDS - 1);
+
+        log.info("Statements per round of {} requests: cold {}, warm {}", round.size(), coldStatements,
+                String.format("%.1f", warmStatements));
+        for (String region : REGIONS) {
+            CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+            long hits = regionStatistics.getHitCount();
+            long misses = regionStatistics.getMissCount();
+            log.info("Region {}: {} hits, {} misses, hit ratio {} over {} rounds", region, hits, misses,
+                    String.format("%.0f%%", 100.0 * hits / Math.max(1, hits + misses)), ROUNDS);
+            if (!region.equals("comments")) {
+                assertThat(region, (double) hits / (hits + misses), greaterThanOrEqualTo(0.8));
+            }
+        }
+        assertThat(warmStatements, lessThan((double) coldStatements));
+    }
+
+    private void perform(List<MockHttpServletRequestBuilder> round) throws Exception {
+        for (MockHttpServletRequestBuilder request : round) {
+            mvc.perform(request).andExpect(status().isOk());
+        }
+    }
+
+    private long create(MockHttpServletRequestBuilder request, String body) throws Exception {
+        String response = mvc.perform(request.contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return ((Number) JsonPath.read(response, "$.id")).longValue();
+    }
+}
@@ -0,0 +1,94 @@
+package ru.practicum.shareit;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.practicum.shareit.idempotency.IdempotencyFilter;
+import ru.practicum.shareit.idempotency.IdempotencyKeyRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that the native statements on booking counters and idempotency keys leave the cached users and items in
+ * place. Runs only when SHAREIT_EXPLAIN_DB_URL is set, like StatementCountTest.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show_sql=false",
+        "shareit.booking.expiry.enabled=false",
+        "shareit.booking.partitions.enabled=false"})
+@AutoConfigureMockMvc
+@ActiveProfiles("l2cache")
+@EnabledIfEnvironmentVariable(named = "SHAREIT_EXPLAIN_DB_URL", matches = ".+")
+public class SecondLevelCacheTest {
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        String url = System.getenv("SHAREIT_EXPLAIN_DB_URL");
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.username",
+                () -> Objects.requireNonNullElse(System.getenv("SHAREIT_EXPLAIN_DB_USER"), "postgres"));
+        registry.add("spring.datasource.password",
+                () -> Objects.requireNonNullElse(System.getenv("SHAREIT_EXPLAIN_DB_PASSWORD"), "postgres"));
+        if (url != null && url.startsWith("jdbc:tc:")) {
+            registry.add("spring.datasource.driver-class-name",
+                    () -> "org.testcontainers.jdbc.ContainerDatabaseDriver");
+        }
+    }
+
+    @Test
+    void nativeStatementsKeepCachedEntities() throws Exception {
+        long owner = create(post("/users"), "{\"name\":\"owner\",\"email\":\"cache-owner@mail.com\"}");
+        long booker = create(post("/users"), "{\"name\":\"booker\",\"email\":\"cache-booker@mail.com\"}");
+        long item = create(post("/items").header(USER_HEADER, owner),
+                "{\"name\":\"Drill\",\"description\":\"power drill\",\"available\":true}");
+        mvc.perform(get("/users/" + owner)).andExpect(status().isOk());
+        mvc.perform(get("/items/" + item).header(USER_HEADER, owner)).andExpect(status().isOk());
+        Cache cache = entityManagerFactory.getCache();
+        assertThat(cache.contains(User.class, owner), equalTo(true));
+        assertThat(cache.contains(Item.class, item), equalTo(true));
+
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+        create(post("/bookings").header(USER_HEADER, booker).header(IdempotencyFilter.HEADER, "cache-key"),
+                "{\"itemId\":" + item + ",\"start\":\"" + start + "\",\"end\":\"" + start.plusHours(2) + "\"}");
+        idempotencyKeyRepository.release(booker, "cache-key");
+        idempotencyKeyRepository.deleteExpired(LocalDateTime.now(), 10);
+
+        assertThat(cache.contains(User.class, owner), equalTo(true));
+        assertThat(cache.contains(Item.class, item), equalTo(true));
+    }
+
+    private long create(MockHttpServletRequestBuilder request, String body) throws Exception {
+        String response = mvc.perform(request.contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return ((Number) JsonPath.read(response, "$.id")).longValue();
+    }
+}
@@ -0,0 +1,167 @@
+package ru.practicum.shareit;
+
+import com.jayway.jsonpath.JsonPath;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Counts the prepared statements, transactions and flushes of one request through the whole server. Runs only when
+ * SHAREIT_EXPLAIN_DB_URL is set, against the same scratch database as BookingIndexPlanTest, and recreates the tables
+ * like a server start. Every request is sent twice and the second one is counted, so the users and items remembered
+ * by CommonService are the same on every run.
+ * Before the services declared their transactions a read by id took two transactions and a write two, and the items
+ * of a page loaded their comments one select each.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show_sql=false",
+        "shareit.booking.expiry.enabled=false",
+        "shareit.booking.partitions.enabled=false"})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfEnvironmentVariable(named = "SHAREIT_EXPLAIN_DB_URL", matches = ".+")
+public class StatementCountTest {
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private long owner;
+    private long booker;
+    private long item;
+    private long request;
+    private long booking;
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        String url = System.getenv("SHAREIT_EXPLAIN_DB_URL");
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.username",
+                () -> Objects.requireNonNullElse(System.getenv("SHAREIT_EXPLAIN_DB_USER"), "postgres"));
+        registry.add("spring.datasource.password",
+                () -> Objects.requireNonNullElse(System.getenv("SHAREIT_EXPLAIN_DB_PASSWORD"), "postgres"));
+        if (url != null && url.startsWith("jdbc:tc:")) {
+            registry.add("spring.datasource.driver-class-name",
+                    () -> "org.testcontainers.jdbc.ContainerDatabaseDriver");
+        }
+    }
+
+    @BeforeAll
+    void seed() throws Exception {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        owner = create(post("/users"), "{\"name\":\"owner\",\"email\":\"owner@mail.com\"}");
+        booker = create(post("/users"), "{\"name\":\"booker\",\"email\":\"booker@mail.com\"}");
+        item = create(post("/items").header(USER_HEADER, owner),
+                "{\"name\":\"Drill\",\"description\":\"power drill\",\"available\":true}");
+        request = create(post("/requests").header(USER_HEADER, booker), "{\"description\":\"need a saw\"}");
+        create(post("/items").header(USER_HEADER, owner),
+                "{\"name\":\"Saw\",\"description\":\"hand saw\",\"available\":true,\"requestId\":" + request + "}");
+        booking = create(post("/bookings").header(USER_HEADER, booker), bookingBody(10));
+        mvc.perform(patch("/bookings/" + booking).param("approved", "true").header(USER_HEADER, owner))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void readsTakeOneTransactionWithoutFlush() throws Exception {
+        assertRead(get("/users/" + owner), 1);
+        assertRead(get("/users"), 1);
+        assertRead(get("/items/" + item).header(USER_HEADER, owner), 3);
+        assertRead(get("/items/" + item).header(USER_HEADER, booker), 2);
+        assertRead(get("/items").header(USER_HEADER, owner), 5);
+        assertRead(get("/items/search").param("text", "drill").header(USER_HEADER, booker), 3);
+        assertRead(get("/bookings/" + booking).header(USER_HEADER, booker), 2);
+        assertRead(get("/bookings").param("state", "ALL").header(USER_HEADER, booker), 1);
+        assertRead(get("/bookings/owner").param("state", "ALL").header(USER_HEADER, owner), 1);
+        assertRead(get("/bookings/counts").header(USER_HEADER, booker), 2);
+        assertRead(get("/requests").header(USER_HEADER, booker), 2);
+        assertRead(get("/requests/all").header(USER_HEADER, owner), 2);
+        assertRead(get("/requests/" + request).header(USER_HEADER, owner), 2);
+    }
+
+    @Test
+    void writesTakeOneTransaction() throws Exception {
+        assertWrite(patch("/users/" + booker), "{\"name\":\"booker2\"}", 1);
+        assertWrite(patch("/items/" + item).header(USER_HEADER, owner), "{\"description\":\"drill\"}", 3);
+        assertWrite(post("/items").header(USER_HEADER, owner),
+                "{\"name\":\"Hammer\",\"description\":\"hammer\",\"available\":true}", 3);
+        assertWrite(post("/requests").header(USER_HEADER, booker), "{\"description\":\"need a hammer\"}", 2);
+        assertWrite(post("/bookings").header(USER_HEADER, booker), bookingBody(20), 8);
+    }
+
+    @Test
+    void commentsOfAPageAreFetchedTogether() throws Exception {
+        MockHttpServletRequestBuilder items = get("/items").header(USER_HEADER, owner);
+        long statements = count(items);
+        for (int i = 0; i < 5; i++) {
+            create(post("/items").header(USER_HEADER, owner),
+                    "{\"name\":\"Item" + i + "\",\"description\":\"more\",\"available\":true}");
+        }
+
+        assertThat(count(items), equalTo(statements));
+    }
+
+    private void assertRead(MockHttpServletRequestBuilder request, long statements) throws Exception {
+        mvc.perform(request).andExpect(status().isOk());
+        statistics.clear();
+        mvc.perform(request).andExpect(status().isOk());
+
+        assertThat(statistics.getPrepareStatementCount(), lessThanOrEqualTo(statements));
+        assertThat(statistics.getTransactionCount(), equalTo(1L));
+        assertThat(statistics.getFlushCount(), equalTo(0L));
+    }
+
+    private void assertWrite(MockHttpServletRequestBuilder request, String body, long statements) throws Exception {
+        create(request, body);
+        statistics.clear();
+        create(request, body);
+
+        assertThat(statistics.getPrepareStatementCount(), lessThanOrEqualTo(statements));
+        assertThat(statistics.getTransactionCount(), equalTo(1L));
+    }
+
+    private long count(MockHttpServletRequestBuilder request) throws Exception {
+        mvc.perform(request).andExpect(status().isOk());
+        statistics.clear();
+        mvc.perform(request).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long create(MockHttpServletRequestBuilder request, String body) throws Exception {
+        String response = mvc.perform(request.contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return ((Number) JsonPath.read(response, "$.id")).longValue();
+    }
+
+    private String bookingBody(int daysAhead) {
+        LocalDateTime start = LocalDateTime.now().plusDays(daysAhead).withNano(0);
+        return "{\"itemId\":" + item + ",\"start\":\"" + start + "\",\"end\":\"" + start.plusHours(2) + "\"}";
+    }
+}
@@ -0,0 +1,72 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class TtlCacheTest {
+    private final MovingClock clock = new MovingClock();
+    private final TtlCache<Long, String> cache = new TtlCache<>(Duration.ofMinutes(10), 2, clock);
+
+    @Test
+    void expireAfterTtl() {
+        cache.put(1L, "first");
+        clock.advance(Duration.ofMinutes(9));
+        assertThat(cache.get(1L), equalTo("first"));
+
+        clock.advance(Duration.ofMinutes(1));
+        assertThat(cache.get(1L), nullValue());
+        assertThat(cache.size(), equalTo(0));
+    }
+
+    @Test
+    void dropLeastRecentlyUsed() {
+        cache.put(1L, "first");
+        cache.put(2L, "second");
+        cache.get(1L);
+        cache.put(3L, "third");
+
+        assertThat(cache.get(1L), equalTo("first"));
+        assertThat(cache.get(2L), nullValue());
+        assertThat(cache.get(3L), equalTo("third"));
+    }
+
+    @Test
+    void invalidate() {
+        cache.put(1L, "first");
+        cache.invalidate(1L);
+
+        assertThat(cache.get(1L), nullValue());
+    }
+
+    private static class MovingClock extends Clock {
+        private Instant now = Instant.parse("2022-10-01T12:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -9,9 +9,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
 import ru.practicum.shareit.booking.dto.BookingDtoIn;
 import ru.practicum.shareit.booking.dto.BookingDtoOut;
 import ru.practicum.shareit.booking.dto.BookingShortDto;
@@ -20,17 +24,23 @@ import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserDto;
 
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -96,6 +106,7 @@ public class BookingControllerTest {
                 .item(itemDto)
                 .booker(userDto)
                 .status(booking.getStatus())
+                .version(0L)
                 .build();
         bookingDtoIn = BookingDtoIn.builder()
                 .start(booking.getStart())
@@ -131,14 +142,60 @@ public class BookingControllerTest {
                 .createBooking(any(BookingDtoIn.class), anyLong());
     }
 
+    @Test
+    void createBookings() throws Exception {
+        List<BookingBatchResultDto> results = List.of(
+                BookingBatchResultDto.builder().index(0).booking(bookingDtoOut).build(),
+                BookingBatchResultDto.builder().index(1).error("Item not found in base.").build());
+        when(bookingService.createBookings(anyList(), anyLong()))
+                .thenReturn(results);
+
+        mvc.perform(post("/bookings/batch")
+                        .header("X-Sharer-User-Id", user.getId())
+                        .content(mapper.writeValueAsString(List.of(bookingDtoIn, bookingDtoIn)))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].booking.id", is(bookingDtoOut.getId()), Long.class))
+                .andExpect(jsonPath("$[1].index", is(1)))
+                .andExpect(jsonPath("$[1].error", is("Item not found in base.")));
+
+        verify(bookingService, times(1))
+                .createBookings(anyList(), anyLong());
+    }
+
+    @Test
+    void decideBookings() throws Exception {
+        bookingDtoOut.setStatus(BookingStatus.APPROVED);
+        when(bookingService.decideBookings(anyLong(), anyList()))
+                .thenReturn(List.of(BookingBatchResultDto.builder().index(0).booking(bookingDtoOut).build()));
+
+        mvc.perform(patch("/bookings/owner/decisions")
+                        .header("X-Sharer-User-Id", user.getId())
+                        .content(mapper.writeValueAsString(List.of(new BookingDecisionDto(booking.getId(), true))))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].booking.status", is(BookingStatus.APPROVED.toString())));
+
+        verify(bookingService, times(1))
+                .decideBookings(anyLong(), anyList());
+    }
+
     @Test
     void patchBooking() throws Exception {
         bookingDtoOut.setStatus(BookingStatus.REJECTED);
-        when(bookingService.patchBooking(anyLong(), anyLong(), anyBoolean()))
+        when(bookingService.patchBooking(anyLong(), anyLong(), anyBoolean(), any()))
                 .thenReturn(bookingDtoOut);
 
+        bookingDtoOut.setVersion(2L);
         mvc.perform(patch("/bookings/{bookingId}", booking.getId())
                         .header("X-Sharer-User-Id", user.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
                         .param("approved", "true")
                         .characterEncoding(StandardCharsets.UTF_8)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -149,10 +206,12 @@ public class BookingControllerTest {
                 .andExpect(jsonPath("$.end").exists())
                 .andExpect(jsonPath("$.item").exists())
                 .andExpect(jsonPath("$.booker").exists())
-                .andExpect(jsonPath("$.status", is(bookingDtoOut.getStatus().toString())));
+                .andExpect(jsonPath("$.status", is(bookingDtoOut.getStatus().toString())))
+                .andExpect(jsonPath("$.version").doesNotExist())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""));
 
         verify(bookingService, times(1))
-                .patchBooking(anyLong(), anyLong(), anyBoolean());
+                .patchBooking(anyLong(), anyLong(), anyBoolean(), eq(1L));
     }
 
     @Test
@@ -171,12 +230,79 @@ public class BookingControllerTest {
                 .andExpect(jsonPath("$.end").exists())
                 .andExpect(jsonPath("$.item").exists())
                 .andExpect(jsonPath("$.booker").exists())
-                .andExpect(jsonPath("$.status", is(bookingDtoOut.getStatus().toString())));
+                .andExpect(jsonPath("$.status", is(bookingDtoOut.getStatus().toString())))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
 
         verify(bookingService, times(1))
                 .getBooking(anyLong(), anyLong());
     }
 
+    @Test
+    void exportBookerBookings() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(1);
+            out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(bookingService).exportBookerBookings(anyLong(), any(OutputStream.class));
+
+        MvcResult result = mvc.perform(get("/bookings/export")
+                        .header("X-Sharer-User-Id", user.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+
+        verify(bookingService, times(1))
+                .exportBookerBookings(eq(user.getId()), any(OutputStream.class));
+    }
+
+    @Test
+    void exportOwnerBookings() throws Exception {
+        MvcResult result = mvc.perform(get("/bookings/owner/export")
+                        .header("X-Sharer-User-Id", user.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+
+        verify(bookingService, times(1))
+                .exportOwnerBookings(eq(user.getId()), any(OutputStream.class));
+    }
+
+    @Test
+    void countBookerBookings() throws Exception {
+        when(bookingService.countBookerBookings(anyLong()))
+                .thenReturn(Map.of(BookingState.ALL, 2L, BookingState.FUTURE, 1L));
+
+        mvc.perform(get("/bookings/counts")
+                        .header("X-Sharer-User-Id", user.getId())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ALL", is(2)))
+                .andExpect(jsonPath("$.FUTURE", is(1)));
+
+        verify(bookingService, times(1))
+                .countBookerBookings(user.getId());
+    }
+
+    @Test
+    void countOwnerBookings() throws Exception {
+        when(bookingService.countOwnerBookings(anyLong()))
+                .thenReturn(Map.of(BookingState.WAITING, 3L));
+
+        mvc.perform(get("/bookings/owner/counts")
+                        .header("X-Sharer-User-Id", user.getId())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.WAITING", is(3)));
+
+        verify(bookingService, times(1))
+                .countOwnerBookings(user.getId());
+    }
+
     @Test
     void getBookingOwnerByStatus() throws Exception {
         List<BookingDtoOut> bookingDtoOuts = List.of(bookingDtoOut);
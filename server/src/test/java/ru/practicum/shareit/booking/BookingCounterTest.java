@@ -0,0 +1,125 @@
+package ru.practicum.shareit.booking;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Deletes users and items that have bookings and reads the counts of the other side of those bookings. Runs only
+ * when SHAREIT_EXPLAIN_DB_URL is set, in the same context as StatementCountTest.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show_sql=false",
+        "shareit.booking.expiry.enabled=false",
+        "shareit.booking.partitions.enabled=false"})
+@AutoConfigureMockMvc
+@EnabledIfEnvironmentVariable(named = "SHAREIT_EXPLAIN_DB_URL", matches = ".+")
+public class BookingCounterTest {
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        String url = System.getenv("SHAREIT_EXPLAIN_DB_URL");
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.username",
+                () -> Objects.requireNonNullElse(System.getenv("SHAREIT_EXPLAIN_DB_USER"), "postgres"));
+        registry.add("spring.datasource.password",
+                () -> Objects.requireNonNullElse(System.getenv("SHAREIT_EXPLAIN_DB_PASSWORD"), "postgres"));
+        if (url != null && url.startsWith("jdbc:tc:")) {
+            registry.add("spring.datasource.driver-class-name",
+                    () -> "org.testcontainers.jdbc.ContainerDatabaseDriver");
+        }
+    }
+
+    @Test
+    void deleteBookerOfOwnersItem() throws Exception {
+        long owner = create(post("/users"), "{\"name\":\"owner\",\"email\":\"counter-owner@mail.com\"}");
+        long booker = create(post("/users"), "{\"name\":\"booker\",\"email\":\"counter-booker@mail.com\"}");
+        long other = create(post("/users"), "{\"name\":\"other\",\"email\":\"counter-other@mail.com\"}");
+        long item = create(post("/items").header(USER_HEADER, owner),
+                "{\"name\":\"Drill\",\"description\":\"power drill\",\"available\":true}");
+        long bookersItem = create(post("/items").header(USER_HEADER, booker),
+                "{\"name\":\"Saw\",\"description\":\"hand saw\",\"available\":true}");
+        create(post("/bookings").header(USER_HEADER, booker), bookingBody(item, 10));
+        long approved = create(post("/bookings").header(USER_HEADER, booker), bookingBody(item, 20));
+        mvc.perform(patch("/bookings/" + approved).param("approved", "true").header(USER_HEADER, owner))
+                .andExpect(status().isOk());
+        create(post("/bookings").header(USER_HEADER, other), bookingBody(bookersItem, 10));
+        assertThat(counts(get("/bookings/owner/counts").header(USER_HEADER, owner)),
+                equalTo(Map.of("ALL", 2, "CURRENT", 0, "FUTURE", 2, "WAITING", 1, "REJECTED", 0, "PAST", 0)));
+        assertThat(counts(get("/bookings/counts").header(USER_HEADER, other)),
+                equalTo(Map.of("ALL", 1, "CURRENT", 0, "FUTURE", 1, "WAITING", 1, "REJECTED", 0, "PAST", 0)));
+
+        mvc.perform(delete("/users/" + booker)).andExpect(status().isOk());
+
+        assertThat(counts(get("/bookings/owner/counts").header(USER_HEADER, owner)),
+                equalTo(Map.of("ALL", 0, "CURRENT", 0, "FUTURE", 0, "WAITING", 0, "REJECTED", 0, "PAST", 0)));
+        assertThat(counts(get("/bookings/counts").header(USER_HEADER, other)),
+                equalTo(Map.of("ALL", 0, "CURRENT", 0, "FUTURE", 0, "WAITING", 0, "REJECTED", 0, "PAST", 0)));
+        mvc.perform(get("/bookings/owner").header(USER_HEADER, owner))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void deleteBookedItem() throws Exception {
+        long owner = create(post("/users"), "{\"name\":\"owner\",\"email\":\"item-owner@mail.com\"}");
+        long booker = create(post("/users"), "{\"name\":\"booker\",\"email\":\"item-booker@mail.com\"}");
+        long item = create(post("/items").header(USER_HEADER, owner),
+                "{\"name\":\"Drill\",\"description\":\"power drill\",\"available\":true}");
+        long rejected = create(post("/bookings").header(USER_HEADER, booker), bookingBody(item, 10));
+        mvc.perform(patch("/bookings/" + rejected).param("approved", "false").header(USER_HEADER, owner))
+                .andExpect(status().isOk());
+
+        mvc.perform(delete("/items/" + item).header(USER_HEADER, owner)).andExpect(status().isOk());
+
+        assertThat(counts(get("/bookings/owner/counts").header(USER_HEADER, owner)),
+                equalTo(Map.of("ALL", 0, "CURRENT", 0, "FUTURE", 0, "WAITING", 0, "REJECTED", 0, "PAST", 0)));
+        assertThat(counts(get("/bookings/counts").header(USER_HEADER, booker)),
+                equalTo(Map.of("ALL", 0, "CURRENT", 0, "FUTURE", 0, "WAITING", 0, "REJECTED", 0, "PAST", 0)));
+    }
+
+    private Map<String, Object> counts(MockHttpServletRequestBuilder request) throws Exception {
+        return JsonPath.read(mvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), "$");
+    }
+
+    private long create(MockHttpServletRequestBuilder request, String body) throws Exception {
+        String response = mvc.perform(request.contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return ((Number) JsonPath.read(response, "$.id")).longValue();
+    }
+
+    private static String bookingBody(long item, int daysAhead) {
+        LocalDateTime start = LocalDateTime.now().plusDays(daysAhead).withNano(0);
+        return "{\"itemId\":" + item + ",\"start\":\"" + start + "\",\"end\":\"" + start.plusHours(2) + "\"}";
+    }
+}
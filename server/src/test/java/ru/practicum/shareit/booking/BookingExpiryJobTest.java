@@ -0,0 +1,50 @@
+package ru.practicum.shareit.booking;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class BookingExpiryJobTest {
+    private final BookingRepository bookingRepository = Mockito.mock(BookingRepository.class);
+    private final BookingExpiryProperties properties = new BookingExpiryProperties();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BookingExpiryJob job = new BookingExpiryJob(bookingRepository, properties, meterRegistry);
+
+    @Test
+    void expireInChunks() {
+        properties.setChunkSize(2);
+        properties.setGrace(Duration.ofMinutes(30));
+        when(bookingRepository.expireWaiting(any(LocalDateTime.class), anyInt()))
+                .thenReturn(2, 2, 1);
+
+        LocalDateTime before = LocalDateTime.now().minusMinutes(30);
+        job.expireWaitingBookings();
+
+        verify(bookingRepository, times(3))
+                .expireWaiting(argThat(deadline -> !deadline.isBefore(before)), eq(2));
+        assertThat(meterRegistry.summary(BookingExpiryJob.EXPIRED_ROWS).count(), equalTo(1L));
+        assertThat(meterRegistry.summary(BookingExpiryJob.EXPIRED_ROWS).totalAmount(), equalTo(5.0));
+        assertThat(meterRegistry.timer(BookingExpiryJob.RUN_DURATION).count(), equalTo(1L));
+    }
+
+    @Test
+    void disabled() {
+        properties.setEnabled(false);
+
+        job.expireWaitingBookings();
+
+        verify(bookingRepository, never())
+                .expireWaiting(any(LocalDateTime.class), anyInt());
+        assertThat(meterRegistry.timer(BookingExpiryJob.RUN_DURATION).count(), equalTo(0L));
+    }
+}
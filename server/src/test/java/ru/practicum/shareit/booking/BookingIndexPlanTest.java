@@ -0,0 +1,328 @@
+package ru.practicum.shareit.booking;
+
+import lombok.Value;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.practicum.shareit.PageCursor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sends requests through the whole server against seeded tables, records every query the repositories prepare with
+ * its parameters and explains it, failing on a sequential scan. Runs only when SHAREIT_EXPLAIN_DB_URL is set, for
+ * example SHAREIT_EXPLAIN_DB_URL=jdbc:postgresql://localhost:5432/shareit mvn test, or with mvn -P testcontainers
+ * test, which points it at a throwaway container. Like a server start it recreates the tables, so point it at a
+ * scratch database. SHAREIT_EXPLAIN_DB_USER and SHAREIT_EXPLAIN_DB_PASSWORD default to postgres.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show_sql=false",
+        "shareit.booking.expiry.enabled=false",
+        "shareit.booking.partitions.enabled=false"})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfEnvironmentVariable(named = "SHAREIT_EXPLAIN_DB_URL", matches = ".+")
+public class BookingIndexPlanTest {
+    private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (bookings|items|requests|comments)\\w*");
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+    /**
+     * Owns items 6, 2006, 4006 and so on, and books items 7, 2007 and so on.
+     * Booking 5 is an approved booking of item 6.
+     */
+    private static final long USER = 7;
+    private static final long ITEM_OF_USER = 6;
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private QueryRecorder recorder;
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        String url = System.getenv("SHAREIT_EXPLAIN_DB_URL");
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.username",
+                () -> Objects.requireNonNullElse(System.getenv("SHAREIT_EXPLAIN_DB_USER"), "postgres"));
+        registry.add("spring.datasource.password",
+                () -> Objects.requireNonNullElse(System.getenv("SHAREIT_EXPLAIN_DB_PASSWORD"), "postgres"));
+        if (url != null && url.startsWith("jdbc:tc:")) {
+            registry.add("spring.datasource.driver-class-name",
+                    () -> "org.testcontainers.jdbc.ContainerDatabaseDriver");
+        }
+    }
+
+    @BeforeAll
+    void seed() {
+        // explicit ids, the defaults step by the allocation size of the sequences
+        jdbcTemplate.execute("insert into users (id, name, email) " +
+                "select g, 'user' || g, 'user' || g || '@mail.com' from generate_series(1, 2000) g");
+        jdbcTemplate.execute("insert into requests (id, description, requestor_id, created) " +
+                "select g, 'request' || g, g % 2000 + 1, localtimestamp(0) - g * interval '1 hour' " +
+                "from generate_series(1, 5000) g");
+        jdbcTemplate.execute("insert into items (id, name, description, is_available, owner_id, request_id) " +
+                "select g, 'item' || g, 'description' || g, g % 10 <> 0, g % 2000 + 1, " +
+                "case when g % 5 = 0 then g % 5000 + 1 end from generate_series(1, 10000) g");
+        // two years back and almost two ahead, so that every state has bookings; one item is booked every 69 days
+        jdbcTemplate.execute("insert into bookings (id, start_date, end_date, item_id, booker_id, status) " +
+                "select g, localtimestamp(0) - interval '2 years' + g * interval '10 minutes', " +
+                "localtimestamp(0) - interval '2 years' + g * interval '10 minutes' + interval '1 day', " +
+                "g % 10000 + 1, g % 2000 + 1, " +
+                "(array['WAITING', 'APPROVED', 'REJECTED', 'EXPIRED'])[g % 4 + 1] " +
+                "from generate_series(1, 200000) g");
+        jdbcTemplate.execute("insert into comments (id, text, item_id, author_id, created) " +
+                "select g, 'comment' || g, g % 10000 + 1, g % 2000 + 1, localtimestamp(0) " +
+                "from generate_series(1, 20000) g");
+        jdbcTemplate.execute("analyze");
+    }
+
+    static Stream<Arguments> bookingPages() {
+        List<Arguments> pages = new ArrayList<>();
+        for (String path : List.of("/bookings", "/bookings/owner")) {
+            for (BookingState state : BookingState.values()) {
+                pages.add(Arguments.of(path, state, false));
+                pages.add(Arguments.of(path, state, true));
+            }
+        }
+        return pages.stream();
+    }
+
+    @ParameterizedTest(name = "{0} {1} after cursor {2}")
+    @MethodSource("bookingPages")
+    void bookingPages(String path, BookingState state, boolean afterCursor) throws Exception {
+        MockHttpServletRequestBuilder request = get(path).header(USER_HEADER, USER)
+                .param("state", state.name())
+                .param("size", "20");
+        if (afterCursor) {
+            request.param("after", PageCursor.of(LocalDateTime.now(), Long.MAX_VALUE).encode());
+        } else {
+            request.param("from", "20");
+        }
+
+        assertNoSequentialScan(request);
+    }
+
+    static Stream<Arguments> requests() {
+        LocalDateTime start = LocalDateTime.now().plusYears(5).withNano(0);
+        String booking = "{\"itemId\":" + ITEM_OF_USER + ",\"start\":\"" + start + "\",\"end\":\""
+                + start.plusHours(2) + "\"}";
+        return Stream.of(
+                Arguments.of("items of the owner with their last and next bookings",
+                        get("/items").header(USER_HEADER, USER).param("from", "0").param("size", "20")),
+                Arguments.of("item with its bookings and comments",
+                        get("/items/" + ITEM_OF_USER).header(USER_HEADER, USER)),
+                Arguments.of("requests of the user with their items",
+                        get("/requests").header(USER_HEADER, USER)),
+                Arguments.of("requests of other users",
+                        get("/requests/all").header(USER_HEADER, USER).param("from", "20").param("size", "20")),
+                Arguments.of("requests of other users after a cursor",
+                        get("/requests/all").header(USER_HEADER, USER).param("size", "20")
+                                .param("after", PageCursor.of(LocalDateTime.now(), Long.MAX_VALUE).encode())),
+                Arguments.of("booking with the overlap check",
+                        post("/bookings").header(USER_HEADER, USER + 1)
+                                .contentType(MediaType.APPLICATION_JSON).content(booking)),
+                Arguments.of("batch of bookings with the intervals of its items",
+                        post("/bookings/batch").header(USER_HEADER, USER + 1)
+                                .contentType(MediaType.APPLICATION_JSON).content("[" + booking + "]")),
+                Arguments.of("decisions on bookings of the owner",
+                        patch("/bookings/owner/decisions").header(USER_HEADER, USER)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[{\"bookingId\":5,\"approved\":false}]")));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("requests")
+    void requests(String name, MockHttpServletRequestBuilder request) throws Exception {
+        assertNoSequentialScan(request);
+    }
+
+    /**
+     * Not repository queries: the lookups Postgres runs for the on delete cascade of a user or an item.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "select c.id from comments c where c.author_id = 7",
+            "select c.id from comments c where c.item_id = 7",
+            "select b.id from bookings b where b.booker_id = 7",
+            "select b.id from bookings b where b.item_id = 7",
+            "select i.id from items i where i.owner_id = 7",
+            "select r.id from requests r where r.requestor_id = 7"
+    })
+    void cascades(String sql) throws SQLException {
+        assertNoSequentialScan(new Query(sql, List.of()));
+    }
+
+    private void assertNoSequentialScan(MockHttpServletRequestBuilder request) throws Exception {
+        recorder.clear();
+        mvc.perform(request).andExpect(status().isOk());
+        List<Query> queries = recorder.getQueries();
+
+        assertThat(queries, not(empty()));
+        for (Query query : queries) {
+            assertNoSequentialScan(query);
+        }
+    }
+
+    private void assertNoSequentialScan(Query query) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Connection connection = recorder.getTarget().getConnection();
+             PreparedStatement statement = connection.prepareStatement("explain " + query.getSql())) {
+            for (Call call : query.getParameters()) {
+                invoke(call.getMethod(), statement, call.getArguments());
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1)).append('\n');
+                }
+            }
+        }
+
+        assertThat(query.getSql() + "\n" + plan, SEQ_SCAN.matcher(plan).find(), equalTo(false));
+    }
+
+    private static Object invoke(Method method, Object target, Object[] arguments) throws SQLException {
+        try {
+            return method.invoke(target, arguments);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Value
+    static class Call {
+        Method method;
+        Object[] arguments;
+    }
+
+    @Value
+    static class Query {
+        String sql;
+        List<Call> parameters;
+    }
+
+    /**
+     * Wraps the data source of the server and remembers the sql and the parameters of every query it runs.
+     */
+    static class QueryRecorder {
+        private final List<Query> queries = new CopyOnWriteArrayList<>();
+        private DataSource target;
+
+        List<Query> getQueries() {
+            return List.copyOf(queries);
+        }
+
+        DataSource getTarget() {
+            return target;
+        }
+
+        void clear() {
+            queries.clear();
+        }
+
+        DataSource wrap(DataSource dataSource) {
+            target = dataSource;
+            return proxy(DataSource.class, (proxy, method, arguments) -> {
+                Object result = invoke(method, dataSource, arguments);
+                return (result instanceof Connection) ? wrap((Connection) result) : result;
+            });
+        }
+
+        private Connection wrap(Connection connection) {
+            return proxy(Connection.class, (proxy, method, arguments) -> {
+                Object result = invoke(method, connection, arguments);
+                return (result instanceof PreparedStatement && method.getName().equals("prepareStatement"))
+                        ? wrap((PreparedStatement) result, (String) arguments[0])
+                        : result;
+            });
+        }
+
+        private PreparedStatement wrap(PreparedStatement statement, String sql) {
+            Map<Integer, Call> parameters = new TreeMap<>();
+            return proxy(PreparedStatement.class, (proxy, method, arguments) -> {
+                if (method.getName().startsWith("set") && arguments != null && arguments.length >= 2
+                        && arguments[0] instanceof Integer) {
+                    parameters.put((Integer) arguments[0], new Call(method, Arrays.copyOf(arguments,
+                            arguments.length)));
+                } else if (method.getName().equals("clearParameters")) {
+                    parameters.clear();
+                } else if (method.getName().equals("executeQuery")) {
+                    queries.add(new Query(sql, List.copyOf(parameters.values())));
+                }
+                return invoke(method, statement, arguments);
+            });
+        }
+
+        private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+        }
+    }
+
+    @TestConfiguration
+    static class RecorderConfiguration {
+        @Bean
+        static QueryRecorder queryRecorder() {
+            return new QueryRecorder();
+        }
+
+        @Bean
+        static BeanPostProcessor recordingDataSource(QueryRecorder queryRecorder) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return (bean instanceof DataSource && beanName.equals("dataSource"))
+                            ? queryRecorder.wrap((DataSource) bean)
+                            : bean;
+                }
+            };
+        }
+    }
+}
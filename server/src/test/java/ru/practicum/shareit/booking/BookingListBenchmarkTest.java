@@ -0,0 +1,165 @@
+package ru.practicum.shareit.booking;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingDtoOut;
+import ru.practicum.shareit.user.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Compares a page of GET /bookings read as Booking entities and mapped with their full items, the path before the
+ * BookingRow projection, against the projection. Every booked item has five comments. Logs the median time and the
+ * bytes the test thread allocated per page. Runs only when SHAREIT_EXPLAIN_DB_URL is set, in the same context as
+ * StatementCountTest; the seeded users are deleted afterwards.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show_sql=false",
+        "shareit.booking.expiry.enabled=false",
+        "shareit.booking.partitions.enabled=false"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfEnvironmentVariable(named = "SHAREIT_EXPLAIN_DB_URL", matches = ".+")
+public class BookingListBenchmarkTest {
+    private static final int WARMUP = 10;
+    private static final int RUNS = 30;
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Long owner;
+    private Long booker;
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        String url = System.getenv("SHAREIT_EXPLAIN_DB_URL");
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.username",
+                () -> Objects.requireNonNullElse(System.getenv("SHAREIT_EXPLAIN_DB_USER"), "postgres"));
+        registry.add("spring.datasource.password",
+                () -> Objects.requireNonNullElse(System.getenv("SHAREIT_EXPLAIN_DB_PASSWORD"), "postgres"));
+        if (url != null && url.startsWith("jdbc:tc:")) {
+            registry.add("spring.datasource.driver-class-name",
+                    () -> "org.testcontainers.jdbc.ContainerDatabaseDriver");
+        }
+    }
+
+    @BeforeAll
+    void seed() {
+        // default ids, so that the sequences stay ahead of the rows for the other tests of the context
+        owner = jdbcTemplate.queryForObject("insert into users (name, email) " +
+                "values ('owner', 'list-owner@mail.com') returning id", Long.class);
+        booker = jdbcTemplate.queryForObject("insert into users (name, email) " +
+                "values ('booker', 'list-booker@mail.com') returning id", Long.class);
+        jdbcTemplate.update("insert into items (name, description, is_available, owner_id) " +
+                "select 'item' || g, 'description' || g, true, ? from generate_series(1, 200) g", owner);
+        jdbcTemplate.update("insert into comments (text, item_id, author_id, created) " +
+                "select 'comment' || g, i.id, ?, localtimestamp(0) " +
+                "from items i cross join generate_series(1, 5) g where i.owner_id = ?", booker, owner);
+        jdbcTemplate.update("insert into bookings (start_date, end_date, item_id, booker_id, status) " +
+                "select localtimestamp(0) + (g * 200 + i.id % 200) * interval '1 hour', " +
+                "localtimestamp(0) + (g * 200 + i.id % 200) * interval '1 hour' + interval '30 minutes', " +
+                "i.id, ?, 'WAITING' from items i cross join generate_series(1, 10) g where i.owner_id = ?",
+                booker, owner);
+        jdbcTemplate.execute("analyze");
+    }
+
+    @AfterAll
+    void cleanUp() {
+        jdbcTemplate.update("delete from users where id in (?, ?)", owner, booker);
+    }
+
+    @ParameterizedTest(name = "page of {0}")
+    @ValueSource(ints = {20, 100})
+    void bookerPage(int size) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        Supplier<List<BookingDtoOut>> entities = () -> readOnly.execute(status -> {
+            User user = entityManager.find(User.class, booker);
+            return entityManager.createQuery("select b from Booking b where b.booker = :booker " +
+                            "order by b.start desc, b.id desc", Booking.class)
+                    .setParameter("booker", user)
+                    .setMaxResults(size)
+                    .getResultList().stream()
+                    .map(BookingMapper::toBookingDtoOut)
+                    .collect(Collectors.toList());
+        });
+        Supplier<List<BookingDtoOut>> rows = () -> bookingService.getBookingOwnerByStatus(booker, BookingState.ALL,
+                0, size);
+
+        Measurement before = measure(entities);
+        Measurement after = measure(rows);
+        log.info("Page of {} bookings: entities {} ms, {} KB; rows {} ms, {} KB", size,
+                String.format("%.2f", before.millis), before.bytes / 1024,
+                String.format("%.2f", after.millis), after.bytes / 1024);
+
+        assertThat(ids(rows.get()), equalTo(ids(entities.get())));
+        assertThat(after.bytes, lessThan(before.bytes));
+    }
+
+    private static List<Long> ids(List<BookingDtoOut> page) {
+        return page.stream().map(BookingDtoOut::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Median time of a page and the mean bytes allocated by the current thread for one.
+     */
+    private static Measurement measure(Supplier<List<BookingDtoOut>> page) {
+        for (int i = 0; i < WARMUP; i++) {
+            page.get();
+        }
+        long[] nanos = new long[RUNS];
+        long threadId = Thread.currentThread().getId();
+        long allocated = THREADS.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            page.get();
+            nanos[i] = System.nanoTime() - start;
+        }
+        allocated = THREADS.getThreadAllocatedBytes(threadId) - allocated;
+        Arrays.sort(nanos);
+        return new Measurement(nanos[RUNS / 2] / 1_000_000.0, allocated / RUNS);
+    }
+
+    private static class Measurement {
+        private final double millis;
+        private final long bytes;
+
+        private Measurement(double millis, long bytes) {
+            this.millis = millis;
+            this.bytes = bytes;
+        }
+    }
+}
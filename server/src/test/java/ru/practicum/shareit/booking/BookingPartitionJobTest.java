@@ -0,0 +1,106 @@
+package ru.practicum.shareit.booking;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class BookingPartitionJobTest {
+    private final JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+    private final BookingPartitionProperties properties = new BookingPartitionProperties();
+    private final BookingPartitionJob job = new BookingPartitionJob(jdbcTemplate,
+            new TransactionTemplate(transactionManager), properties);
+
+    private final YearMonth current = YearMonth.now();
+
+    @Test
+    void createMissingPartitions() {
+        properties.setMonthsAhead(2);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class)))
+                .thenReturn(List.of("bookings_default", BookingPartitionJob.partitionName(current)));
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), anyString()))
+                .thenReturn(false);
+
+        job.maintainPartitions();
+
+        String next = BookingPartitionJob.partitionName(current.plusMonths(1));
+        verify(jdbcTemplate).execute("create table " + next +
+                " (like bookings including defaults including constraints)");
+        verify(jdbcTemplate).execute("alter table bookings attach partition " + next + " for values from ('" +
+                current.plusMonths(1).atDay(1).atStartOfDay() + "') to ('" +
+                current.plusMonths(2).atDay(1).atStartOfDay() + "')");
+        verify(jdbcTemplate).update(contains("insert into " + next), eq(current.plusMonths(1).atDay(1).atStartOfDay()),
+                eq(current.plusMonths(2).atDay(1).atStartOfDay()));
+        verify(jdbcTemplate).execute("create table " + BookingPartitionJob.partitionName(current.plusMonths(2)) +
+                " (like bookings including defaults including constraints)");
+        verify(jdbcTemplate, never()).execute(contains("create table " +
+                BookingPartitionJob.partitionName(current)));
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void skipUnattachedTable() {
+        properties.setMonthsAhead(0);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class)))
+                .thenReturn(List.of("bookings_default"));
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), anyString()))
+                .thenReturn(true);
+
+        job.maintainPartitions();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void archiveOldPartitions() {
+        properties.setMonthsAhead(0);
+        properties.setArchiveEnabled(true);
+        properties.setArchiveAfterMonths(12);
+        String old = BookingPartitionJob.partitionName(current.minusMonths(13));
+        String horizon = BookingPartitionJob.partitionName(current.minusMonths(12));
+        String recent = BookingPartitionJob.partitionName(current.minusMonths(11));
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class)))
+                .thenReturn(List.of(recent, old, horizon, BookingPartitionJob.partitionName(current)));
+        List<String> statements = new ArrayList<>();
+        doAnswer(invocation -> statements.add(invocation.getArgument(0)))
+                .when(jdbcTemplate).execute(anyString());
+        doAnswer(invocation -> statements.add(invocation.getArgument(0)) ? 1 : 0)
+                .when(jdbcTemplate).update(anyString());
+
+        job.maintainPartitions();
+
+        assertThat(statements, hasSize(4));
+        assertThat(statements.get(0), equalTo("alter table bookings detach partition " + old));
+        assertThat(statements.get(1), allOf(startsWith("update booking_counters"),
+                containsString("from " + old + " b")));
+        assertThat(statements.get(2), equalTo("alter table bookings detach partition " + horizon));
+        assertThat(statements.get(3), allOf(startsWith("update booking_counters"),
+                containsString("from " + horizon + " b")));
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void disabled() {
+        properties.setEnabled(false);
+
+        job.maintainPartitions();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
@@ -1,5 +1,7 @@
 package ru.practicum.shareit.booking;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -8,33 +10,58 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import ru.practicum.shareit.CommonService;
+import ru.practicum.shareit.PageCursor;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
 import ru.practicum.shareit.booking.dto.BookingDtoIn;
 import ru.practicum.shareit.booking.dto.BookingDtoOut;
+import ru.practicum.shareit.exception.IdViolationException;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.exception.PreconditionFailedException;
 import ru.practicum.shareit.exception.ValidatorException;
+import ru.practicum.shareit.item.ItemAvailabilityIndex;
+import ru.practicum.shareit.item.ItemCalendarCache;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserDto;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class BookingServiceImplTest {
     private final BookingRepository bookingRepository = Mockito.mock(BookingRepository.class);
     private final CommonService commonService = Mockito.mock(CommonService.class);
-    private BookingService bookingService = new BookingServiceImpl(bookingRepository, commonService);
+    private final ItemAvailabilityIndex availabilityIndex = Mockito.mock(ItemAvailabilityIndex.class);
+    private final ItemCalendarCache calendarCache = Mockito.mock(ItemCalendarCache.class);
+    private final BookingCounterRepository bookingCounterRepository = Mockito.mock(BookingCounterRepository.class);
+    private BookingService bookingService = new BookingServiceImpl(bookingRepository, commonService,
+            availabilityIndex, calendarCache, bookingCounterRepository,
+            new ObjectMapper().registerModule(new JavaTimeModule()));
 
     private Booking booking;
+    private BookingRow bookingRow;
     private BookingDtoOut bookingDtoOut;
     private BookingDtoIn bookingDtoIn;
     private LocalDateTime start;
@@ -76,6 +103,8 @@ public class BookingServiceImplTest {
                 .booker(user)
                 .status(BookingStatus.WAITING)
                 .build();
+        bookingRow = new BookingRow(booking.getId(), start, end, booking.getStatus(), item.getId(), item.getName(),
+                item.getDescription(), item.getAvailable(), null, user.getId(), user.getName(), user.getEmail());
         bookingDtoOut = BookingDtoOut.builder()
                 .id(booking.getId())
                 .start(booking.getStart())
@@ -97,7 +126,7 @@ public class BookingServiceImplTest {
                 .thenReturn(user);
         when(commonService.getInDbItem(anyLong()))
                 .thenReturn(item);
-        when(bookingRepository.save(any(Booking.class)))
+        when(bookingRepository.saveAndFlush(any(Booking.class)))
                 .thenReturn(booking);
 
         BookingDtoOut testBookingDtoOut = bookingService.createBooking(bookingDtoIn, 10L);
@@ -157,7 +186,11 @@ public class BookingServiceImplTest {
         verify(commonService, times(5))
                 .getInDbItem(anyLong());
         verify(bookingRepository, times(1))
-                .save(any(Booking.class));
+                .saveAndFlush(any(Booking.class));
+        verify(bookingCounterRepository, times(1))
+                .add(user.getId(), "BOOKER", "WAITING", 1L);
+        verify(bookingCounterRepository, times(1))
+                .add(user.getId(), "OWNER", "WAITING", 1L);
     }
 
     @Test
@@ -166,11 +199,11 @@ public class BookingServiceImplTest {
                 .thenReturn(Optional.ofNullable(booking));
         when(commonService.getInDBUser(anyLong()))
                 .thenReturn(user);
-        when(bookingRepository.save(any(Booking.class)))
+        when(bookingRepository.saveAndFlush(any(Booking.class)))
                 .thenReturn(booking);
 
         bookingDtoOut.setStatus(BookingStatus.APPROVED);
-        BookingDtoOut testBookingDtoOut = bookingService.patchBooking(user.getId(), booking.getId(), true);
+        BookingDtoOut testBookingDtoOut = bookingService.patchBooking(user.getId(), booking.getId(), true, null);
         assertThat(testBookingDtoOut.getId(), equalTo(bookingDtoOut.getId()));
         assertThat(testBookingDtoOut.getStart(), equalTo(bookingDtoOut.getStart()));
         assertThat(testBookingDtoOut.getEnd(), equalTo(bookingDtoOut.getEnd()));
@@ -185,7 +218,7 @@ public class BookingServiceImplTest {
         when(commonService.getInDBUser(anyLong()))
                 .thenReturn(user1);
         try {
-            BookingDtoOut testBookingDtoOut1 = bookingService.patchBooking(user1.getId(), booking.getId(), true);
+            BookingDtoOut testBookingDtoOut1 = bookingService.patchBooking(user1.getId(), booking.getId(), true, null);
         } catch (NotFoundException e) {
             assertThat(e.getMessage(), equalTo("Not found. User id with id of owner is not equal."));
         }
@@ -209,7 +242,7 @@ public class BookingServiceImplTest {
         when(bookingRepository.findById(anyLong()))
                 .thenReturn(Optional.ofNullable(booking1));
         try {
-            BookingDtoOut testBookingDtoOut1 = bookingService.patchBooking(user.getId(), booking.getId(), true);
+            BookingDtoOut testBookingDtoOut1 = bookingService.patchBooking(user.getId(), booking.getId(), true, null);
         } catch (ValidatorException e) {
             assertThat(e.getMessage(), equalTo("Bad request. Item is not available."));
         }
@@ -225,17 +258,319 @@ public class BookingServiceImplTest {
         when(bookingRepository.findById(anyLong()))
                 .thenReturn(Optional.ofNullable(booking2));
         try {
-            BookingDtoOut testBookingDtoOut1 = bookingService.patchBooking(user.getId(), booking.getId(), true);
+            BookingDtoOut testBookingDtoOut1 = bookingService.patchBooking(user.getId(), booking.getId(), true, null);
         } catch (ValidatorException e) {
             assertThat(e.getMessage(), equalTo("Bad request. Booking is already approved."));
         }
 
         verify(bookingRepository, times(4))
                 .findById(anyLong());
+        verify(availabilityIndex, times(1))
+                .onBookingChanged(booking);
+        verify(calendarCache, times(1))
+                .evict(item.getId());
         verify(commonService, times(4))
                 .getInDBUser(anyLong());
         verify(bookingRepository, times(1))
-                .save(any(Booking.class));
+                .saveAndFlush(any(Booking.class));
+        verify(bookingCounterRepository, times(1))
+                .add(user.getId(), "BOOKER", "WAITING", -1L);
+        verify(bookingCounterRepository, times(1))
+                .add(user.getId(), "BOOKER", "APPROVED", 1L);
+        verify(bookingCounterRepository, times(1))
+                .add(user.getId(), "OWNER", "WAITING", -1L);
+        verify(bookingCounterRepository, times(1))
+                .add(user.getId(), "OWNER", "APPROVED", 1L);
+    }
+
+    @Test
+    void patchExpiredBooking() {
+        booking.setStatus(BookingStatus.EXPIRED);
+        when(bookingRepository.findById(anyLong()))
+                .thenReturn(Optional.ofNullable(booking));
+        when(commonService.getInDBUser(anyLong()))
+                .thenReturn(user);
+        try {
+            bookingService.patchBooking(user.getId(), booking.getId(), true, null);
+        } catch (ValidatorException e) {
+            assertThat(e.getMessage(), equalTo("Bad request. Booking is expired."));
+        }
+
+        verify(bookingRepository, never())
+                .saveAndFlush(any(Booking.class));
+    }
+
+    @Test
+    void patchBookingWithStaleVersion() {
+        booking.setVersion(3L);
+        when(bookingRepository.findById(anyLong()))
+                .thenReturn(Optional.ofNullable(booking));
+        when(commonService.getInDBUser(anyLong()))
+                .thenReturn(user);
+        try {
+            bookingService.patchBooking(user.getId(), booking.getId(), true, 2L);
+        } catch (PreconditionFailedException e) {
+            assertThat(e.getMessage(), equalTo("Precondition failed. Booking version is 3."));
+        }
+
+        verify(bookingRepository, never())
+                .saveAndFlush(any(Booking.class));
+    }
+
+    @Test
+    void bookingOverlapsApproved() {
+        when(commonService.getInDBUser(anyLong()))
+                .thenReturn(user);
+        when(commonService.getInDbItem(anyLong()))
+                .thenReturn(item);
+        when(bookingRepository.existsApprovedOverlap(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class),
+                anyLong()))
+                .thenReturn(true);
+        try {
+            bookingService.createBooking(bookingDtoIn, 10L);
+        } catch (IdViolationException e) {
+            assertThat(e.getMessage(), equalTo("Conflict. Item is already booked for this time."));
+        }
+
+        when(bookingRepository.findById(anyLong()))
+                .thenReturn(Optional.ofNullable(booking));
+        try {
+            bookingService.patchBooking(user.getId(), booking.getId(), true, null);
+        } catch (IdViolationException e) {
+            assertThat(e.getMessage(), equalTo("Conflict. Item is already booked for this time."));
+        }
+
+        when(bookingRepository.saveAndFlush(any(Booking.class)))
+                .thenReturn(booking);
+        BookingDtoOut rejected = bookingService.patchBooking(user.getId(), booking.getId(), false, null);
+        assertThat(rejected.getStatus(), equalTo(BookingStatus.REJECTED));
+
+        verify(bookingRepository, times(1))
+                .existsApprovedOverlap(item.getId(), start, end, 0L);
+        verify(bookingRepository, times(1))
+                .existsApprovedOverlap(item.getId(), start, end, booking.getId());
+        verify(bookingRepository, times(2))
+                .lockItems(List.of(item.getId()));
+        verify(bookingRepository, times(1))
+                .saveAndFlush(any(Booking.class));
+    }
+
+    @Test
+    void createBookings() {
+        User booker = User.builder()
+                .id(10L)
+                .name("Booker")
+                .build();
+        LocalDateTime busyStart = start.plusDays(1);
+        LocalDateTime busyEnd = busyStart.plusHours(1);
+        BookingInterval busy = new BookingInterval() {
+            public Long getId() {
+                return 7L;
+            }
+
+            public Long getItemId() {
+                return item.getId();
+            }
+
+            public LocalDateTime getStart() {
+                return busyStart;
+            }
+
+            public LocalDateTime getEnd() {
+                return busyEnd;
+            }
+        };
+        List<BookingDtoIn> bookingDtoIns = List.of(
+                bookingDtoIn,
+                BookingDtoIn.builder().start(start).end(end).item(99L).build(),
+                BookingDtoIn.builder().start(busyStart.plusMinutes(30)).end(busyEnd.plusMinutes(30))
+                        .item(item.getId()).build(),
+                BookingDtoIn.builder().start(null).end(end).item(item.getId()).build());
+        when(commonService.getInDBUser(anyLong()))
+                .thenReturn(booker);
+        when(commonService.getInDbItems(anyCollection()))
+                .thenReturn(Map.of(item.getId(), item));
+        when(bookingRepository.findIntervals(anyCollection(), any(BookingStatus.class), any(LocalDateTime.class),
+                any(LocalDateTime.class)))
+                .thenReturn(List.of(busy));
+        when(bookingRepository.saveAll(anyList()))
+                .thenAnswer(invocation -> {
+                    List<Booking> saved = invocation.getArgument(0);
+                    saved.forEach(b -> b.setId(51L));
+                    return saved;
+                });
+
+        List<BookingBatchResultDto> results = bookingService.createBookings(bookingDtoIns, booker.getId());
+        assertThat(results, hasSize(4));
+        assertThat(results.get(0).getError(), nullValue());
+        assertThat(results.get(0).getBooking().getId(), equalTo(51L));
+        assertThat(results.get(0).getBooking().getStatus(), equalTo(BookingStatus.WAITING));
+        assertThat(results.get(0).getBooking().getItem().getComments(), nullValue());
+        assertThat(results.get(1).getError(), equalTo("Item not found in base."));
+        assertThat(results.get(2).getError(), equalTo("Conflict. Item is already booked for this time."));
+        assertThat(results.get(3).getError(), equalTo("Bad request. Booker or start or end is null."));
+        assertThat(results.get(3).getIndex(), equalTo(3));
+
+        verify(commonService, times(1))
+                .getInDbItems(Set.of(item.getId(), 99L));
+        verify(bookingRepository, times(1))
+                .lockItems(Set.of(item.getId()));
+        verify(bookingRepository, times(1))
+                .findIntervals(Set.of(item.getId()), BookingStatus.APPROVED, start, busyEnd.plusMinutes(30));
+        verify(bookingRepository, times(1))
+                .saveAll(argThat(bookings -> ((List<Booking>) bookings).size() == 1));
+        verify(bookingRepository, never())
+                .saveAndFlush(any(Booking.class));
+    }
+
+    @Test
+    void decideBookings() {
+        LocalDateTime later = start.plusDays(2);
+        BookingRow first = new BookingRow(1L, start, start.plusHours(1), BookingStatus.WAITING, item.getId(),
+                item.getName(), null, true, null, 10L, "Booker", null);
+        BookingRow overlapping = new BookingRow(2L, start.plusMinutes(30), start.plusMinutes(90), BookingStatus.WAITING,
+                item.getId(), item.getName(), null, true, null, 10L, "Booker", null);
+        BookingRow approved = new BookingRow(3L, later, later.plusHours(1), BookingStatus.APPROVED, item.getId(),
+                item.getName(), null, true, null, 10L, "Booker", null);
+        BookingRow freed = new BookingRow(4L, later.plusMinutes(30), later.plusMinutes(90), BookingStatus.WAITING,
+                item.getId(), item.getName(), null, true, null, 10L, "Booker", null);
+        BookingInterval approvedInterval = new BookingInterval() {
+            public Long getId() {
+                return approved.getId();
+            }
+
+            public Long getItemId() {
+                return item.getId();
+            }
+
+            public LocalDateTime getStart() {
+                return approved.getStart();
+            }
+
+            public LocalDateTime getEnd() {
+                return approved.getEnd();
+            }
+        };
+        List<BookingDecisionDto> decisions = List.of(
+                new BookingDecisionDto(1L, true),
+                new BookingDecisionDto(2L, true),
+                new BookingDecisionDto(3L, false),
+                new BookingDecisionDto(4L, true),
+                new BookingDecisionDto(99L, true),
+                new BookingDecisionDto(1L, false));
+        when(commonService.getInDBUser(anyLong()))
+                .thenReturn(user);
+        when(bookingRepository.findByIdsAndOwner(anyCollection(), any(User.class)))
+                .thenReturn(List.of(first, overlapping, approved, freed));
+        when(bookingRepository.findIntervals(anyCollection(), any(BookingStatus.class), any(LocalDateTime.class),
+                any(LocalDateTime.class)))
+                .thenReturn(List.of(approvedInterval));
+        when(bookingRepository.updateStatus(anyCollection(), any(BookingStatus.class)))
+                .thenAnswer(invocation -> invocation.<Collection<Long>>getArgument(0).size());
+
+        List<BookingBatchResultDto> results = bookingService.decideBookings(user.getId(), decisions);
+        assertThat(results, hasSize(6));
+        assertThat(results.get(0).getBooking().getStatus(), equalTo(BookingStatus.APPROVED));
+        assertThat(results.get(1).getError(), equalTo("Conflict. Item is already booked for this time."));
+        assertThat(results.get(2).getBooking().getStatus(), equalTo(BookingStatus.REJECTED));
+        assertThat(results.get(3).getBooking().getId(), equalTo(freed.getId()));
+        assertThat(results.get(3).getBooking().getStatus(), equalTo(BookingStatus.APPROVED));
+        assertThat(results.get(4).getError(), equalTo("Not found. Booking not found in base."));
+        assertThat(results.get(5).getError(), equalTo("Bad request. Booking is listed twice."));
+
+        verify(bookingRepository, times(1))
+                .lockItemsOfBookings(Set.of(1L, 2L, 3L, 4L, 99L), user.getId());
+        verify(bookingRepository, times(1))
+                .lockBookings(Set.of(1L, 2L, 3L, 4L, 99L), user.getId());
+        verify(bookingRepository, times(1))
+                .findByIdsAndOwner(Set.of(1L, 2L, 3L, 4L, 99L), user);
+        verify(bookingRepository, times(1))
+                .updateStatus(Set.of(3L), BookingStatus.REJECTED);
+        verify(bookingRepository, times(1))
+                .updateStatus(Set.of(1L, 4L), BookingStatus.APPROVED);
+        verify(availabilityIndex, times(1))
+                .onBookingChanged(approved, BookingStatus.REJECTED);
+        verify(availabilityIndex, times(1))
+                .onBookingChanged(freed, BookingStatus.APPROVED);
+        verify(calendarCache, times(1))
+                .evict(item.getId());
+        verify(bookingRepository, never())
+                .findById(anyLong());
+    }
+
+    @Test
+    void decideBookingsKeepsIntervalOfInvalidRejection() {
+        BookingRow approved = new BookingRow(3L, start, start.plusHours(1), BookingStatus.APPROVED, item.getId(),
+                item.getName(), null, false, null, 10L, "Booker", null);
+        BookingRow waiting = new BookingRow(4L, start.plusMinutes(30), start.plusMinutes(90), BookingStatus.WAITING,
+                item.getId(), item.getName(), null, true, null, 10L, "Booker", null);
+        BookingInterval approvedInterval = new BookingInterval() {
+            public Long getId() {
+                return approved.getId();
+            }
+
+            public Long getItemId() {
+                return item.getId();
+            }
+
+            public LocalDateTime getStart() {
+                return approved.getStart();
+            }
+
+            public LocalDateTime getEnd() {
+                return approved.getEnd();
+            }
+        };
+        when(commonService.getInDBUser(anyLong()))
+                .thenReturn(user);
+        when(bookingRepository.findByIdsAndOwner(anyCollection(), any(User.class)))
+                .thenReturn(List.of(approved, waiting));
+        when(bookingRepository.findIntervals(anyCollection(), any(BookingStatus.class), any(LocalDateTime.class),
+                any(LocalDateTime.class)))
+                .thenReturn(List.of(approvedInterval));
+
+        List<BookingBatchResultDto> results = bookingService.decideBookings(user.getId(),
+                List.of(new BookingDecisionDto(3L, false), new BookingDecisionDto(4L, true)));
+        assertThat(results.get(0).getError(), equalTo("Bad request. Item is not available."));
+        assertThat(results.get(1).getError(), equalTo("Conflict. Item is already booked for this time."));
+
+        verify(bookingRepository, never())
+                .updateStatus(anyCollection(), any(BookingStatus.class));
+    }
+
+    @Test
+    void decideBookingsWithoutBookingIds() {
+        when(commonService.getInDBUser(anyLong()))
+                .thenReturn(user);
+
+        List<BookingBatchResultDto> results = bookingService.decideBookings(user.getId(),
+                Arrays.asList(new BookingDecisionDto(null, true), null));
+        assertThat(results.get(0).getError(), equalTo("Not found. Booking not found in base."));
+        assertThat(results.get(1).getError(), equalTo("Bad request. Decision is null."));
+
+        verify(bookingRepository, never())
+                .lockBookings(anyCollection(), anyLong());
+        verify(bookingRepository, never())
+                .findByIdsAndOwner(anyCollection(), any(User.class));
+    }
+
+    @Test
+    void decideBookingsOfChangedBooking() {
+        BookingRow waiting = new BookingRow(4L, start, start.plusHours(1), BookingStatus.WAITING, item.getId(),
+                item.getName(), null, true, null, 10L, "Booker", null);
+        when(commonService.getInDBUser(anyLong()))
+                .thenReturn(user);
+        when(bookingRepository.findByIdsAndOwner(anyCollection(), any(User.class)))
+                .thenReturn(List.of(waiting));
+        when(bookingRepository.updateStatus(anyCollection(), any(BookingStatus.class)))
+                .thenReturn(0);
+
+        IdViolationException e = assertThrows(IdViolationException.class,
+                () -> bookingService.decideBookings(user.getId(), List.of(new BookingDecisionDto(4L, false))));
+        assertThat(e.getMessage(), equalTo("Conflict. Booking was changed by another request."));
+
+        verify(bookingCounterRepository, never())
+                .add(anyLong(), anyString(), anyString(), anyLong());
     }
 
     @Test
@@ -273,28 +608,106 @@ public class BookingServiceImplTest {
                 .getInDBUser(anyLong());
     }
 
+    @Test
+    void exportBookings() {
+        when(commonService.getInDBUser(anyLong()))
+                .thenReturn(user);
+        BookingRow otherRow = new BookingRow(2L, start, end, BookingStatus.APPROVED, item.getId(), item.getName(),
+                item.getDescription(), item.getAvailable(), null, user.getId(), user.getName(), user.getEmail());
+        when(bookingRepository.streamByBooker(any(User.class)))
+                .thenReturn(Stream.of(bookingRow, otherRow));
+        when(bookingRepository.streamByOwner(any(User.class)))
+                .thenReturn(Stream.empty());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bookingService.exportBookerBookings(user.getId(), out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines.length, equalTo(2));
+        assertThat(lines[0].startsWith("{\"id\":1,"), equalTo(true));
+        assertThat(lines[1].contains("\"status\":\"APPROVED\""), equalTo(true));
+
+        ByteArrayOutputStream empty = new ByteArrayOutputStream();
+        bookingService.exportOwnerBookings(user.getId(), empty);
+        assertThat(empty.size(), equalTo(0));
+
+        verify(bookingRepository, times(1))
+                .streamByBooker(user);
+        verify(bookingRepository, times(1))
+                .streamByOwner(user);
+    }
+
+    @Test
+    void countBookings() {
+        when(commonService.getInDBUser(anyLong()))
+                .thenReturn(user);
+        List<BookingCounter> counters = List.of(
+                new BookingCounter(user.getId(), BookingCounter.Role.BOOKER, BookingStatus.WAITING, 2L),
+                new BookingCounter(user.getId(), BookingCounter.Role.BOOKER, BookingStatus.REJECTED, 3L),
+                new BookingCounter(user.getId(), BookingCounter.Role.BOOKER, BookingStatus.APPROVED, 5L));
+        when(bookingCounterRepository.findAllByUserIdAndRole(anyLong(), any(BookingCounter.Role.class)))
+                .thenReturn(counters);
+        BookingTimeCounts unfinished = new BookingTimeCounts() {
+            public long getUnfinished() {
+                return 4;
+            }
+
+            public long getFuture() {
+                return 2;
+            }
+
+            public long getCurrent() {
+                return 1;
+            }
+
+            public long getRejected() {
+                return 1;
+            }
+        };
+        when(bookingRepository.countUnfinishedByBooker(anyLong(), any(LocalDateTime.class)))
+                .thenReturn(unfinished);
+        when(bookingRepository.countUnfinishedByOwner(anyLong(), any(LocalDateTime.class)))
+                .thenReturn(unfinished);
+
+        Map<BookingState, Long> booker = bookingService.countBookerBookings(user.getId());
+        assertThat(booker.get(BookingState.ALL), equalTo(10L));
+        assertThat(booker.get(BookingState.CURRENT), equalTo(1L));
+        assertThat(booker.get(BookingState.FUTURE), equalTo(2L));
+        assertThat(booker.get(BookingState.WAITING), equalTo(2L));
+        assertThat(booker.get(BookingState.REJECTED), equalTo(3L));
+        assertThat(booker.get(BookingState.PAST), equalTo(4L));
+
+        Map<BookingState, Long> owner = bookingService.countOwnerBookings(user.getId());
+        assertThat(owner.get(BookingState.PAST), equalTo(6L));
+
+        verify(bookingCounterRepository, times(1))
+                .findAllByUserIdAndRole(user.getId(), BookingCounter.Role.BOOKER);
+        verify(bookingCounterRepository, times(1))
+                .findAllByUserIdAndRole(user.getId(), BookingCounter.Role.OWNER);
+    }
+
     @Test
     void getBookingOwnerByStatus() {
         Pageable pageable = PageRequest.of(0, 10);
         List<BookingDtoOut> bookingDtoOuts = List.of(bookingDtoOut);
-        List<Booking> bookings = List.of(booking);
+        List<BookingRow> bookings = List.of(bookingRow);
         when(commonService.getInDBUser(anyLong()))
                 .thenReturn(user);
         when(commonService.getPagination(anyInt(), anyInt(), any()))
                 .thenReturn(pageable);
-        when(bookingRepository.findAllByBookerOrderByStartDesc(any(User.class), any(Pageable.class)))
+        when(bookingRepository.findAllByBookerAfter(
+                any(User.class), any(LocalDateTime.class), anyLong(), any(Pageable.class)))
                 .thenReturn(bookings);
-        when(bookingRepository.findAllByBookerAndStartBeforeAndEndAfterOrderByStartDesc(
-                any(User.class), any(LocalDateTime.class), any(LocalDateTime.class), any(Pageable.class)))
+        when(bookingRepository.findCurrentByBookerAfter(
+                any(User.class), any(LocalDateTime.class), any(LocalDateTime.class), anyLong(), any(Pageable.class)))
                 .thenReturn(bookings);
-        when(bookingRepository.findAllByBookerAndStartAfterOrderByStartDesc(
-                any(User.class), any(LocalDateTime.class), any(Pageable.class)))
+        when(bookingRepository.findFutureByBookerAfter(
+                any(User.class), any(LocalDateTime.class), any(LocalDateTime.class), anyLong(), any(Pageable.class)))
                 .thenReturn(bookings);
-        when(bookingRepository.findAllByBookerAndStatusLikeOrderByStartDesc(
-                any(User.class), any(BookingStatus.class), any(Pageable.class)))
+        when(bookingRepository.findByBookerAndStatusAfter(
+                any(User.class), any(BookingStatus.class), any(LocalDateTime.class), anyLong(), any(Pageable.class)))
                 .thenReturn(bookings);
-        when(bookingRepository.findAllByBookerAndEndBeforeAndStatusNot(
-                any(User.class), any(LocalDateTime.class), any(BookingStatus.class), any(Pageable.class)))
+        when(bookingRepository.findPastByBookerAfter(any(User.class), any(LocalDateTime.class),
+                any(BookingStatus.class), any(LocalDateTime.class), anyLong(), any(Pageable.class)))
                 .thenReturn(bookings);
 
         List<BookingDtoOut> testBookingDtoOut = bookingService.getBookingOwnerByStatus(
@@ -303,7 +716,10 @@ public class BookingServiceImplTest {
         assertThat(testBookingDtoOut.get(0).getId(), equalTo(bookingDtoOuts.get(0).getId()));
         assertThat(testBookingDtoOut.get(0).getStart(), equalTo(bookingDtoOuts.get(0).getStart()));
         assertThat(testBookingDtoOut.get(0).getEnd(), equalTo(bookingDtoOuts.get(0).getEnd()));
-        assertThat(testBookingDtoOut.get(0).getItem(), equalTo(bookingDtoOuts.get(0).getItem()));
+        assertThat(testBookingDtoOut.get(0).getItem().getId(), equalTo(bookingDtoOuts.get(0).getItem().getId()));
+        assertThat(testBookingDtoOut.get(0).getItem().getName(), equalTo(bookingDtoOuts.get(0).getItem().getName()));
+        assertThat(testBookingDtoOut.get(0).getItem().getOwner(), nullValue());
+        assertThat(testBookingDtoOut.get(0).getItem().getComments(), nullValue());
         assertThat(testBookingDtoOut.get(0).getBooker(), equalTo(bookingDtoOuts.get(0).getBooker()));
         assertThat(testBookingDtoOut.get(0).getStatus(), equalTo(bookingDtoOuts.get(0).getStatus()));
 
@@ -337,12 +753,25 @@ public class BookingServiceImplTest {
     void getBookingItemsByStatus() {
         Pageable pageable = PageRequest.of(0, 10);
         List<BookingDtoOut> bookingDtoOuts = List.of(bookingDtoOut);
-        List<Booking> bookings = List.of(booking);
+        List<BookingRow> bookings = List.of(bookingRow);
         when(commonService.getInDBUser(anyLong()))
                 .thenReturn(user);
         when(commonService.getPagination(anyInt(), anyInt(), any()))
                 .thenReturn(pageable);
-        when(bookingRepository.findAllBookingOfUserInItem(anyLong(), any(Pageable.class)))
+        when(bookingRepository.findAllByOwnerAfter(
+                any(User.class), any(LocalDateTime.class), anyLong(), any(Pageable.class)))
+                .thenReturn(bookings);
+        when(bookingRepository.findCurrentByOwnerAfter(
+                any(User.class), any(LocalDateTime.class), any(LocalDateTime.class), anyLong(), any(Pageable.class)))
+                .thenReturn(bookings);
+        when(bookingRepository.findFutureByOwnerAfter(
+                any(User.class), any(LocalDateTime.class), any(LocalDateTime.class), anyLong(), any(Pageable.class)))
+                .thenReturn(bookings);
+        when(bookingRepository.findByOwnerAndStatusAfter(
+                any(User.class), any(BookingStatus.class), any(LocalDateTime.class), anyLong(), any(Pageable.class)))
+                .thenReturn(bookings);
+        when(bookingRepository.findPastByOwnerAfter(
+                any(User.class), any(LocalDateTime.class), any(LocalDateTime.class), anyLong(), any(Pageable.class)))
                 .thenReturn(bookings);
 
         List<BookingDtoOut> testBookingDtoOut = bookingService.getBookingItemsByStatus(
@@ -351,32 +780,29 @@ public class BookingServiceImplTest {
         assertThat(testBookingDtoOut.get(0).getId(), equalTo(bookingDtoOuts.get(0).getId()));
         assertThat(testBookingDtoOut.get(0).getStart(), equalTo(bookingDtoOuts.get(0).getStart()));
         assertThat(testBookingDtoOut.get(0).getEnd(), equalTo(bookingDtoOuts.get(0).getEnd()));
-        assertThat(testBookingDtoOut.get(0).getItem(), equalTo(bookingDtoOuts.get(0).getItem()));
+        assertThat(testBookingDtoOut.get(0).getItem().getId(), equalTo(bookingDtoOuts.get(0).getItem().getId()));
+        assertThat(testBookingDtoOut.get(0).getItem().getName(), equalTo(bookingDtoOuts.get(0).getItem().getName()));
+        assertThat(testBookingDtoOut.get(0).getItem().getOwner(), nullValue());
+        assertThat(testBookingDtoOut.get(0).getItem().getComments(), nullValue());
         assertThat(testBookingDtoOut.get(0).getBooker(), equalTo(bookingDtoOuts.get(0).getBooker()));
         assertThat(testBookingDtoOut.get(0).getStatus(), equalTo(bookingDtoOuts.get(0).getStatus()));
 
-        bookings.get(0).setStart(start.minusMinutes(10));
         List<BookingDtoOut> testBookingDtoOut1 = bookingService.getBookingItemsByStatus(
                 user.getId(), BookingState.CURRENT, 0, 10);
         assertThat(testBookingDtoOut1, hasSize(bookingDtoOuts.size()));
 
-        bookings.get(0).setStart(start.plusMinutes(10));
         List<BookingDtoOut> testBookingDtoOut2 = bookingService.getBookingItemsByStatus(
                 user.getId(), BookingState.FUTURE, 0, 10);
         assertThat(testBookingDtoOut2, hasSize(bookingDtoOuts.size()));
 
-        bookings.get(0).setStatus(BookingStatus.WAITING);
         List<BookingDtoOut> testBookingDtoOut3 = bookingService.getBookingItemsByStatus(
                 user.getId(), BookingState.WAITING, 0, 10);
         assertThat(testBookingDtoOut3, hasSize(bookingDtoOuts.size()));
 
-        bookings.get(0).setStatus(BookingStatus.REJECTED);
         List<BookingDtoOut> testBookingDtoOut4 = bookingService.getBookingItemsByStatus(
                 user.getId(), BookingState.REJECTED, 0, 10);
         assertThat(testBookingDtoOut4, hasSize(bookingDtoOuts.size()));
 
-        bookings.get(0).setStart(start.minusMinutes(20));
-        bookings.get(0).setEnd(end.minusMinutes(15));
         List<BookingDtoOut> testBookingDtoOut5 = bookingService.getBookingItemsByStatus(
                 user.getId(), BookingState.PAST, 0, 10);
         assertThat(testBookingDtoOut5, hasSize(bookingDtoOuts.size()));
@@ -385,5 +811,38 @@ public class BookingServiceImplTest {
                 .getInDBUser(anyLong());
         verify(commonService, times(6))
                 .getPagination(anyInt(), anyInt(), any());
+        PageCursor first = PageCursor.first();
+        verify(bookingRepository, times(1))
+                .findByOwnerAndStatusAfter(user, BookingStatus.WAITING, first.getKey(), first.getId(), pageable);
+        verify(bookingRepository, times(1))
+                .findByOwnerAndStatusAfter(user, BookingStatus.REJECTED, first.getKey(), first.getId(), pageable);
+    }
+
+    @Test
+    void getBookingsAfterCursor() {
+        Pageable pageable = PageRequest.of(0, 10);
+        PageCursor after = PageCursor.of(start.plusDays(1), 5L);
+        when(commonService.getInDBUser(anyLong()))
+                .thenReturn(user);
+        when(commonService.getSeekPagination(anyInt()))
+                .thenReturn(pageable);
+        when(bookingRepository.findAllByBookerAfter(user, after.getKey(), after.getId(), pageable))
+                .thenReturn(List.of(bookingRow));
+        when(bookingRepository.findAllByOwnerAfter(user, after.getKey(), after.getId(), pageable))
+                .thenReturn(List.of(bookingRow));
+
+        List<BookingDtoOut> testBookerPage = bookingService.getBookingOwnerByStatusAfter(
+                user.getId(), BookingState.ALL, after, 10);
+        assertThat(testBookerPage, hasSize(1));
+        assertThat(testBookerPage.get(0).getId(), equalTo(booking.getId()));
+
+        List<BookingDtoOut> testOwnerPage = bookingService.getBookingItemsByStatusAfter(
+                user.getId(), BookingState.ALL, after, 10);
+        assertThat(testOwnerPage, hasSize(1));
+
+        verify(commonService, times(2))
+                .getSeekPagination(10);
+        verify(commonService, never())
+                .getPagination(anyInt(), anyInt(), any());
     }
 }
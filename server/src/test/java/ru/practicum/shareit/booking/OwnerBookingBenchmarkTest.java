@@ -0,0 +1,174 @@
+package ru.practicum.shareit.booking;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingDtoOut;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Compares the first page of GET /bookings/owner for an owner with 100 000 bookings on 100 items: the path before
+ * the owner queries, one page of all owner bookings filtered by state in Java, against the owner query of the state.
+ * Logs the median time of each and the rows left on the page. Runs only when SHAREIT_EXPLAIN_DB_URL is set, in the
+ * same context as StatementCountTest; the seeded owner and booker are deleted afterwards.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show_sql=false",
+        "shareit.booking.expiry.enabled=false",
+        "shareit.booking.partitions.enabled=false"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfEnvironmentVariable(named = "SHAREIT_EXPLAIN_DB_URL", matches = ".+")
+public class OwnerBookingBenchmarkTest {
+    private static final int PAGE_SIZE = 20;
+    private static final int WARMUP = 5;
+    private static final int RUNS = 20;
+    /**
+     * The query of BookingRepository.findAllBookingOfUserInItem the owner page was read with before.
+     */
+    private static final String PREVIOUS_QUERY = "select bookings.* from bookings left join items " +
+            "on bookings.item_id = items.id where items.owner_id = ?1 order by bookings.end_date desc";
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Long owner;
+    private Long booker;
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        String url = System.getenv("SHAREIT_EXPLAIN_DB_URL");
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.username",
+                () -> Objects.requireNonNullElse(System.getenv("SHAREIT_EXPLAIN_DB_USER"), "postgres"));
+        registry.add("spring.datasource.password",
+                () -> Objects.requireNonNullElse(System.getenv("SHAREIT_EXPLAIN_DB_PASSWORD"), "postgres"));
+        if (url != null && url.startsWith("jdbc:tc:")) {
+            registry.add("spring.datasource.driver-class-name",
+                    () -> "org.testcontainers.jdbc.ContainerDatabaseDriver");
+        }
+    }
+
+    @BeforeAll
+    void seed() {
+        // default ids, so that the sequences stay ahead of the rows for the other tests of the context
+        owner = jdbcTemplate.queryForObject("insert into users (name, email) " +
+                "values ('owner', 'benchmark-owner@mail.com') returning id", Long.class);
+        booker = jdbcTemplate.queryForObject("insert into users (name, email) " +
+                "values ('booker', 'benchmark-booker@mail.com') returning id", Long.class);
+        jdbcTemplate.update("insert into items (name, description, is_available, owner_id) " +
+                "select 'item' || g, 'description' || g, true, ? from generate_series(1, 100) g", owner);
+        // one booking a day per item from 500 days back, twelve hours long and starting at a different hour per
+        // item, so that every state has bookings
+        jdbcTemplate.update("insert into bookings (start_date, end_date, item_id, booker_id, status) " +
+                "select s.start_date, s.start_date + interval '12 hours', s.item_id, ?, " +
+                "(array['WAITING', 'APPROVED', 'REJECTED', 'EXPIRED'])[(s.g + s.item_id) % 4 + 1] " +
+                "from (select i.id item_id, g, date_trunc('day', localtimestamp) + (g - 500) * interval '1 day' " +
+                "+ i.id % 24 * interval '1 hour' start_date " +
+                "from items i cross join generate_series(1, 1000) g where i.owner_id = ?) s", booker, owner);
+        jdbcTemplate.execute("analyze bookings");
+        jdbcTemplate.execute("analyze items");
+    }
+
+    @AfterAll
+    void cleanUp() {
+        jdbcTemplate.update("delete from users where id in (?, ?)", owner, booker);
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookingState.class)
+    void firstPage(BookingState state) {
+        Predicate<BookingDtoOut> matches = matcher(state, LocalDateTime.now());
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        Supplier<List<BookingDtoOut>> previous = () -> readOnly.execute(status -> {
+            entityManager.clear();
+            @SuppressWarnings("unchecked")
+            List<Booking> page = entityManager.createNativeQuery(PREVIOUS_QUERY, Booking.class)
+                    .setParameter(1, owner)
+                    .setMaxResults(PAGE_SIZE)
+                    .getResultList();
+            return page.stream().map(BookingMapper::toBookingDtoOut).filter(matches).collect(Collectors.toList());
+        });
+        Supplier<List<BookingDtoOut>> current = () -> bookingService.getBookingItemsByStatus(owner, state, 0,
+                PAGE_SIZE);
+
+        double previousMillis = medianMillis(previous);
+        double currentMillis = medianMillis(current);
+        List<BookingDtoOut> previousPage = previous.get();
+        List<BookingDtoOut> currentPage = current.get();
+        log.info("{} bookings of the owner, first page: filtered in Java {} ms, {} rows; owner query {} ms, {} rows",
+                state, String.format("%.2f", previousMillis), previousPage.size(),
+                String.format("%.2f", currentMillis), currentPage.size());
+
+        assertThat(currentPage.size(), equalTo(PAGE_SIZE));
+        assertThat(currentPage.stream().map(matches::test).collect(Collectors.toList()), everyItem(equalTo(true)));
+        if (state != BookingState.ALL && state != BookingState.FUTURE) {
+            assertThat(previousPage.size(), lessThan(PAGE_SIZE));
+        }
+    }
+
+    private static Predicate<BookingDtoOut> matcher(BookingState state, LocalDateTime now) {
+        switch (state) {
+            case CURRENT:
+                return b -> b.getStart().isBefore(now) && b.getEnd().isAfter(now);
+            case FUTURE:
+                return b -> b.getStart().isAfter(now);
+            case WAITING:
+                return b -> b.getStatus() == BookingStatus.WAITING;
+            case REJECTED:
+                return b -> b.getStatus() == BookingStatus.REJECTED;
+            case PAST:
+                return b -> b.getEnd().isBefore(now);
+            default:
+                return b -> true;
+        }
+    }
+
+    private static double medianMillis(Supplier<List<BookingDtoOut>> page) {
+        for (int i = 0; i < WARMUP; i++) {
+            page.get();
+        }
+        long[] nanos = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            page.get();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[RUNS / 2] / 1_000_000.0;
+    }
+}
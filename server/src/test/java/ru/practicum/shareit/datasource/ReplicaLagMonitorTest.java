@@ -0,0 +1,75 @@
+package ru.practicum.shareit.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class ReplicaLagMonitorTest {
+    private final EmbeddedDatabase replica = new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+    private final ReplicaProperties properties = new ReplicaProperties();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, properties);
+
+    @BeforeEach
+    void bind() {
+        monitor.bindTo(meterRegistry);
+    }
+
+    @AfterEach
+    void shutdown() {
+        replica.shutdown();
+    }
+
+    @Test
+    void compareLagWithMaximum() {
+        properties.setMaxLag(Duration.ofSeconds(10));
+        properties.setLagQuery("select 12.5");
+
+        monitor.check();
+        assertThat(monitor.isAvailable(), equalTo(false));
+        assertThat(meterRegistry.get(ReplicaLagMonitor.REPLICA_LAG).gauge().value(), equalTo(12.5));
+        assertThat(meterRegistry.get(ReplicaLagMonitor.REPLICA_AVAILABLE).gauge().value(), equalTo(0.0));
+
+        properties.setLagQuery("select 10");
+        monitor.check();
+        assertThat(monitor.isAvailable(), equalTo(true));
+    }
+
+    @Test
+    void ignoreLagWithoutMaximum() {
+        properties.setLagQuery("select 3600");
+
+        monitor.check();
+
+        assertThat(monitor.isAvailable(), equalTo(true));
+        assertThat(monitor.getLagSeconds(), equalTo(3600.0));
+    }
+
+    @Test
+    void takeOutUntilReplicaAnswers() {
+        properties.setLagQuery("select no_such_column");
+        monitor.check();
+        assertThat(monitor.isAvailable(), equalTo(false));
+
+        properties.setLagQuery("select 0");
+        monitor.check();
+        assertThat(monitor.isAvailable(), equalTo(true));
+
+        monitor.markDown(new SQLException("Connection refused"));
+        assertThat(monitor.isAvailable(), equalTo(false));
+    }
+}
@@ -0,0 +1,167 @@
+package ru.practicum.shareit.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Routes between two embedded databases that tell which one answered.
+ */
+public class ReplicaRoutingDataSourceTest {
+    private final EmbeddedDatabase primary = database("primary");
+    private final EmbeddedDatabase replica = database("replica");
+    private final ReplicaProperties properties = new ReplicaProperties();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void shutdown() {
+        primary.shutdown();
+        replica.shutdown();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplica() {
+        DataSource dataSource = routing(monitor(replica), replica);
+
+        assertThat(pool(dataSource, true), equalTo("replica"));
+        assertThat(pool(dataSource, false), equalTo("primary"));
+        assertThat(new JdbcTemplate(dataSource).queryForObject("select name from pool", String.class),
+                equalTo("primary"));
+        assertThat(meterRegistry.get(ReplicaRoutingDataSource.CONNECTIONS).tag("pool", "replica")
+                .functionCounter().count(), equalTo(1.0));
+    }
+
+    @Test
+    void fallBackToPrimaryWhenReplicaIsDown() {
+        DataSource down = new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/missing");
+        DataSource dataSource = routing(monitor(down), down);
+
+        assertThat(pool(dataSource, true), equalTo("primary"));
+        assertThat(pool(dataSource, true), equalTo("primary"));
+        assertThat(meterRegistry.get(ReplicaRoutingDataSource.FALLBACKS).functionCounter().count(), equalTo(1.0));
+    }
+
+    @Test
+    void stayOnPrimaryWhileReplicaLags() {
+        properties.setMaxLag(Duration.ofSeconds(10));
+        properties.setLagQuery("select 30");
+        ReplicaLagMonitor monitor = monitor(replica);
+        DataSource dataSource = routing(monitor, replica);
+
+        monitor.check();
+        assertThat(pool(dataSource, true), equalTo("primary"));
+
+        properties.setLagQuery("select 5");
+        monitor.check();
+        assertThat(pool(dataSource, true), equalTo("replica"));
+    }
+
+    @Test
+    void readOwnWritesFromPrimary() throws Exception {
+        properties.setReadAfterWrite(Duration.ofHours(1));
+        DataSource dataSource = routing(monitor(replica), replica);
+
+        assertThat(asClient("1", () -> pool(dataSource, true)), equalTo("replica"));
+        assertThat(asClient("1", () -> pool(dataSource, false)), equalTo("primary"));
+        assertThat(asClient("1", () -> pool(dataSource, true)), equalTo("primary"));
+        assertThat(asClient("2", () -> pool(dataSource, true)), equalTo("replica"));
+        assertThat(asClient(null, () -> pool(dataSource, true)), equalTo("replica"));
+        assertThat(pool(dataSource, true), equalTo("replica"));
+
+        asClient(null, () -> pool(dataSource, false));
+        assertThat(asClient(null, () -> pool(dataSource, true)), equalTo("primary"));
+        assertThat(asClient("2", () -> pool(dataSource, true)), equalTo("replica"));
+    }
+
+    @Test
+    void writesOutsideRequestsOrWindowKeepReadsOnReplica() throws Exception {
+        properties.setReadAfterWrite(Duration.ofHours(1));
+        DataSource dataSource = routing(monitor(replica), replica);
+        pool(dataSource, false);
+        assertThat(asClient("1", () -> pool(dataSource, true)), equalTo("replica"));
+
+        properties.setReadAfterWrite(Duration.ZERO);
+        DataSource withoutWindow = routing(monitor(replica), replica);
+        asClient("1", () -> pool(withoutWindow, false));
+        assertThat(asClient("1", () -> pool(withoutWindow, true)), equalTo("replica"));
+    }
+
+    @Test
+    void flagReplicaTransactions() {
+        DataSource dataSource = routing(monitor(replica), replica);
+
+        assertThat(replicaTransaction(dataSource, true), equalTo(true));
+        assertThat(replicaTransaction(dataSource, false), equalTo(false));
+        assertThat(ReplicaRoutingDataSource.isReplicaTransaction(), equalTo(false));
+    }
+
+    private ReplicaLagMonitor monitor(DataSource replicaDataSource) {
+        return new ReplicaLagMonitor(replicaDataSource, properties);
+    }
+
+    private DataSource routing(ReplicaLagMonitor monitor, DataSource replicaDataSource) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicaDataSource, monitor,
+                properties);
+        routing.bindTo(meterRegistry);
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private static String pool(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> new JdbcTemplate(dataSource)
+                .queryForObject("select name from pool", String.class));
+    }
+
+    private static boolean replicaTransaction(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(readOnly);
+        return Boolean.TRUE.equals(transaction.execute(status -> {
+            new JdbcTemplate(dataSource).queryForObject("select name from pool", String.class);
+            return ReplicaRoutingDataSource.isReplicaTransaction();
+        }));
+    }
+
+    /**
+     * Runs the query inside a request of the client, null for a request without the user header.
+     */
+    private static String asClient(String userId, Supplier<String> query) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/items");
+        if (userId != null) {
+            request.addHeader("X-Sharer-User-Id", userId);
+        }
+        AtomicReference<String> result = new AtomicReference<>();
+        new ReadAfterWriteFilter().doFilter(request, new MockHttpServletResponse(),
+                (req, resp) -> result.set(query.get()));
+        return result.get();
+    }
+
+    private static EmbeddedDatabase database(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        new JdbcTemplate(database).execute("create table pool (name varchar(16))");
+        new JdbcTemplate(database).update("insert into pool values (?)", name);
+        return database;
+    }
+}
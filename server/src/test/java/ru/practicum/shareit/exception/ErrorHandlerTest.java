@@ -2,6 +2,7 @@ package ru.practicum.shareit.exception;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.ServletRequestBindingException;
@@ -29,6 +30,18 @@ public class ErrorHandlerTest {
         assertThat(response.getStatusCode(), equalTo(HttpStatus.CONFLICT));
     }
 
+    @Test
+    void concurrentUpdateHandler() {
+        ResponseEntity<?> response = handler.concurrentUpdateHandler(new OptimisticLockingFailureException(""));
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.CONFLICT));
+    }
+
+    @Test
+    void preconditionFailedHandler() {
+        ResponseEntity<?> response = handler.preconditionFailedHandler(new PreconditionFailedException(""));
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.PRECONDITION_FAILED));
+    }
+
     @Test
     void notFoundHandler() {
         ResponseEntity<?> response = handler.notFoundHandler(new NotFoundException(""));
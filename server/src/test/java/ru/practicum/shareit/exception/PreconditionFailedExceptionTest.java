@@ -0,0 +1,16 @@
+package ru.practicum.shareit.exception;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class PreconditionFailedExceptionTest {
+    @Test
+    void PreconditionFailedException() {
+        String s = "Precondition failed.";
+        PreconditionFailedException exception = new PreconditionFailedException(s);
+
+        assertThat(exception.getMessage(), equalTo(s));
+    }
+}
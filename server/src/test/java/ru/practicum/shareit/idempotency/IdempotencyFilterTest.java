@@ -0,0 +1,194 @@
+package ru.practicum.shareit.idempotency;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class IdempotencyFilterTest {
+    private final IdempotencyKeyRepository idempotencyKeyRepository = Mockito.mock(IdempotencyKeyRepository.class);
+    private final IdempotencyProperties properties = new IdempotencyProperties();
+    private final IdempotencyFilter filter = new IdempotencyFilter(idempotencyKeyRepository, properties);
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private int status = 200;
+
+    @Test
+    void replayResponse() throws Exception {
+        when(idempotencyKeyRepository.reserve(anyLong(), anyString(), anyString(), any(), any()))
+                .thenReturn(1);
+
+        MockHttpServletResponse response = perform(request("/bookings", "key-1", "{\"itemId\":1}"));
+        assertThat(response.getStatus(), equalTo(200));
+        assertThat(response.getContentAsString(), equalTo("created {\"itemId\":1}"));
+
+        MockHttpServletResponse testResponse = perform(request("/bookings", "key-1", "{\"itemId\":1}"));
+        assertThat(testResponse.getStatus(), equalTo(200));
+        assertThat(testResponse.getContentType(), equalTo(MediaType.APPLICATION_JSON_VALUE));
+        assertThat(testResponse.getContentAsString(), equalTo("created {\"itemId\":1}"));
+        assertThat(testResponse.getHeader(IdempotencyFilter.REPLAYED_HEADER), equalTo("true"));
+
+        assertThat(executions.get(), equalTo(1));
+        verify(idempotencyKeyRepository, times(1))
+                .reserve(eq(1L), eq("key-1"), anyString(), any(), any());
+        verify(idempotencyKeyRepository, times(1))
+                .complete(eq(1L), eq("key-1"), eq(200), eq(MediaType.APPLICATION_JSON_VALUE),
+                        eq("created {\"itemId\":1}".getBytes(StandardCharsets.UTF_8)), any());
+    }
+
+    @Test
+    void replayStoredResponse() throws Exception {
+        when(idempotencyKeyRepository.reserve(anyLong(), anyString(), anyString(), any(), any()))
+                .thenReturn(1, 0);
+        perform(request("/items", "key-1", "{\"name\":\"Drill\"}"));
+        ArgumentCaptor<String> requestHash = ArgumentCaptor.forClass(String.class);
+        verify(idempotencyKeyRepository).reserve(anyLong(), anyString(), requestHash.capture(), any(), any());
+        when(idempotencyKeyRepository.findById(new IdempotencyKey.Key(1L, "key-1")))
+                .thenReturn(Optional.of(new IdempotencyKey(1L, "key-1", requestHash.getValue(), 201, null,
+                        "stored".getBytes(StandardCharsets.UTF_8), LocalDateTime.now().plusHours(1))));
+
+        MockHttpServletResponse testResponse = new MockHttpServletResponse();
+        new IdempotencyFilter(idempotencyKeyRepository, properties)
+                .doFilter(request("/items", "key-1", "{\"name\":\"Drill\"}"), testResponse, chain());
+
+        assertThat(testResponse.getStatus(), equalTo(201));
+        assertThat(testResponse.getContentAsString(), equalTo("stored"));
+        assertThat(executions.get(), equalTo(1));
+    }
+
+    @Test
+    void rejectDifferentRequest() throws Exception {
+        when(idempotencyKeyRepository.reserve(anyLong(), anyString(), anyString(), any(), any()))
+                .thenReturn(1);
+        perform(request("/requests", "key-1", "{\"description\":\"first\"}"));
+
+        MockHttpServletResponse testResponse = perform(request("/requests", "key-1", "{\"description\":\"second\"}"));
+
+        assertThat(testResponse.getStatus(), equalTo(422));
+        assertThat(executions.get(), equalTo(1));
+    }
+
+    @Test
+    void rejectRequestInProgress() throws Exception {
+        when(idempotencyKeyRepository.reserve(anyLong(), anyString(), anyString(), any(), any()))
+                .thenReturn(0);
+        when(idempotencyKeyRepository.findById(any()))
+                .thenReturn(Optional.of(new IdempotencyKey(1L, "key-1", "hash", null, null, null,
+                        LocalDateTime.now().plusMinutes(1))));
+
+        MockHttpServletResponse testResponse = perform(request("/bookings", "key-1", "{}"));
+
+        assertThat(testResponse.getStatus(), equalTo(409));
+        assertThat(executions.get(), equalTo(0));
+    }
+
+    @Test
+    void releaseKeyOfServerError() throws Exception {
+        status = 500;
+        when(idempotencyKeyRepository.reserve(anyLong(), anyString(), anyString(), any(), any()))
+                .thenReturn(1);
+
+        perform(request("/bookings", "key-1", "{}"));
+        perform(request("/bookings", "key-1", "{}"));
+
+        assertThat(executions.get(), equalTo(2));
+        verify(idempotencyKeyRepository, times(2)).release(1L, "key-1");
+        verify(idempotencyKeyRepository, never())
+                .complete(anyLong(), anyString(), anyInt(), any(), any(), any());
+    }
+
+    @Test
+    void readBodyThroughReadListener() throws Exception {
+        when(idempotencyKeyRepository.reserve(anyLong(), anyString(), anyString(), any(), any()))
+                .thenReturn(1);
+        StringBuilder events = new StringBuilder();
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                ServletInputStream in = req.getInputStream();
+                in.setReadListener(new ReadListener() {
+                    @Override
+                    public void onDataAvailable() throws IOException {
+                        events.append("data:").append(StreamUtils.copyToString(in, StandardCharsets.UTF_8));
+                    }
+
+                    @Override
+                    public void onAllDataRead() {
+                        events.append(";done");
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        events.append(";error");
+                    }
+                });
+                resp.setStatus(status);
+            }
+        });
+
+        filter.doFilter(request("/bookings", "key-1", "{\"itemId\":1}"), new MockHttpServletResponse(), chain);
+
+        assertThat(events.toString(), equalTo("data:{\"itemId\":1};done"));
+    }
+
+    @Test
+    void passThroughWithoutKey() throws Exception {
+        perform(request("/bookings", null, "{}"));
+        perform(request("/users", "key-1", "{}"));
+
+        assertThat(executions.get(), equalTo(2));
+        verifyNoInteractions(idempotencyKeyRepository);
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain());
+        return response;
+    }
+
+    private MockFilterChain chain() {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                executions.incrementAndGet();
+                String body = StreamUtils.copyToString(req.getInputStream(), StandardCharsets.UTF_8);
+                resp.setStatus(status);
+                resp.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                resp.getOutputStream().write(("created " + body).getBytes(StandardCharsets.UTF_8));
+            }
+        });
+    }
+
+    private static MockHttpServletRequest request(String path, String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.addHeader("X-Sharer-User-Id", "1");
+        if (key != null) {
+            request.addHeader(IdempotencyFilter.HEADER, key);
+        }
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
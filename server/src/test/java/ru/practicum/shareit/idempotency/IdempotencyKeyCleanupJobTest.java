@@ -0,0 +1,38 @@
+package ru.practicum.shareit.idempotency;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class IdempotencyKeyCleanupJobTest {
+    private final IdempotencyKeyRepository idempotencyKeyRepository = Mockito.mock(IdempotencyKeyRepository.class);
+    private final IdempotencyProperties properties = new IdempotencyProperties();
+    private final IdempotencyKeyCleanupJob job = new IdempotencyKeyCleanupJob(idempotencyKeyRepository, properties);
+
+    @Test
+    void deleteInChunks() {
+        properties.setCleanupChunkSize(2);
+        when(idempotencyKeyRepository.deleteExpired(any(LocalDateTime.class), anyInt()))
+                .thenReturn(2, 1);
+
+        LocalDateTime before = LocalDateTime.now();
+        job.deleteExpiredKeys();
+
+        verify(idempotencyKeyRepository, times(2))
+                .deleteExpired(argThat(now -> !now.isBefore(before)), eq(2));
+    }
+
+    @Test
+    void disabled() {
+        properties.setEnabled(false);
+
+        job.deleteExpiredKeys();
+
+        verifyNoInteractions(idempotencyKeyRepository);
+    }
+}
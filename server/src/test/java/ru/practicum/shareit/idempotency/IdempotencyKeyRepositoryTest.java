@@ -0,0 +1,66 @@
+package ru.practicum.shareit.idempotency;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.practicum.shareit.datasource.ReplicaRoutingDataSource;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Reads idempotency keys with the replica enabled, pointed at the primary database, and counts the connections each
+ * pool hands out. Runs only when SHAREIT_EXPLAIN_DB_URL is set, like StatementCountTest.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show_sql=false",
+        "shareit.booking.expiry.enabled=false",
+        "shareit.booking.partitions.enabled=false",
+        "shareit.datasource.replica.enabled=true"})
+@EnabledIfEnvironmentVariable(named = "SHAREIT_EXPLAIN_DB_URL", matches = "jdbc:postgresql:.+")
+public class IdempotencyKeyRepositoryTest {
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        String url = System.getenv("SHAREIT_EXPLAIN_DB_URL");
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("shareit.datasource.replica.url", () -> url);
+        registry.add("spring.datasource.username",
+                () -> Objects.requireNonNullElse(System.getenv("SHAREIT_EXPLAIN_DB_USER"), "postgres"));
+        registry.add("spring.datasource.password",
+                () -> Objects.requireNonNullElse(System.getenv("SHAREIT_EXPLAIN_DB_PASSWORD"), "postgres"));
+    }
+
+    @Test
+    void findByIdReadsPrimary() {
+        LocalDateTime now = LocalDateTime.now();
+        idempotencyKeyRepository.reserve(1L, "primary-key", "hash", now, now.plusMinutes(1));
+        idempotencyKeyRepository.complete(1L, "primary-key", 200, "application/json", new byte[0],
+                now.plusMinutes(1));
+        double replicaConnections = replicaConnections();
+
+        IdempotencyKey stored = idempotencyKeyRepository.findById(new IdempotencyKey.Key(1L, "primary-key"))
+                .orElseThrow();
+        assertThat(stored.isCompleted(), equalTo(true));
+        assertThat(replicaConnections(), equalTo(replicaConnections));
+
+        idempotencyKeyRepository.count();
+        assertThat(replicaConnections(), equalTo(replicaConnections + 1));
+    }
+
+    private double replicaConnections() {
+        return meterRegistry.get(ReplicaRoutingDataSource.CONNECTIONS).tag("pool", "replica")
+                .functionCounter().count();
+    }
+}
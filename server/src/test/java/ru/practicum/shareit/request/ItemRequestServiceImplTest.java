@@ -7,8 +7,8 @@ import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import ru.practicum.shareit.CommonService;
+import ru.practicum.shareit.PageCursor;
 import ru.practicum.shareit.exception.ValidatorException;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.request.dto.ItemRequestDtoIn;
@@ -17,6 +17,7 @@ import ru.practicum.shareit.user.User;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -65,12 +66,12 @@ public class ItemRequestServiceImplTest {
 
     @Test
     void createRequest() {
-        when(requestRepository.save(any(ItemRequest.class)))
+        when(requestRepository.saveAndFlush(any(ItemRequest.class)))
                 .thenReturn(request);
         when(commonService.getInDBUser(anyLong()))
                 .thenReturn(user);
-        when(commonService.getItemsByRequest(anyLong()))
-                .thenReturn(items);
+        when(commonService.getItemsByRequests(anyCollection()))
+                .thenReturn(Map.of(request.getId(), items));
         ItemRequestDtoOut testRequestOut = requestService.createRequest(1L, time, requestDtoIn);
         assertThat(testRequestOut.getId(), equalTo(requestDtoOut.getId()));
         assertThat(testRequestOut.getDescription(), equalTo(requestDtoOut.getDescription()));
@@ -94,11 +95,11 @@ public class ItemRequestServiceImplTest {
         }
 
         verify(requestRepository, times(1))
-                .save(any(ItemRequest.class));
+                .saveAndFlush(any(ItemRequest.class));
         verify(commonService, times(3))
                 .getInDBUser(anyLong());
         verify(commonService, times(1))
-                .getItemsByRequest(anyLong());
+                .getItemsByRequests(anyCollection());
     }
 
     @Test
@@ -107,8 +108,8 @@ public class ItemRequestServiceImplTest {
                 .thenReturn(user);
         when(requestRepository.findAllByRequestor(any(User.class)))
                 .thenReturn(Set.of(request));
-        when(commonService.getItemsByRequest(anyLong()))
-                .thenReturn(items);
+        when(commonService.getItemsByRequests(anyCollection()))
+                .thenReturn(Map.of(request.getId(), items));
 
         Set<ItemRequestDtoOut> requestDtoOuts = Set.of(requestDtoOut);
         Set<ItemRequestDtoOut> testRequestOut = requestService.getRequests(1L);
@@ -127,20 +128,21 @@ public class ItemRequestServiceImplTest {
         verify(commonService, times(1))
                 .getInDBUser(anyLong());
         verify(commonService, times(1))
-                .getItemsByRequest(anyLong());
+                .getItemsByRequests(anyCollection());
     }
 
     @Test
     void getRequestsPage() {
-        Pageable pageable = PageRequest.of(0, 10, Sort.by("created"));
+        Pageable pageable = PageRequest.of(0, 10);
         when(commonService.getInDBUser(anyLong()))
                 .thenReturn(user);
-        when(requestRepository.findByRequestorNot(any(User.class), any(Pageable.class)))
+        when(requestRepository.findByRequestorNotAfter(
+                any(User.class), any(LocalDateTime.class), anyLong(), any(Pageable.class)))
                 .thenReturn(List.of(request));
-        when(commonService.getPagination(anyInt(), anyInt(), anyString()))
+        when(commonService.getPagination(anyInt(), anyInt(), any()))
                 .thenReturn(pageable);
-        when(commonService.getItemsByRequest(anyLong()))
-                .thenReturn(items);
+        when(commonService.getItemsByRequests(anyCollection()))
+                .thenReturn(Map.of(request.getId(), items));
 
         Set<ItemRequestDtoOut> requestDtoOuts = Set.of(requestDtoOut);
         Set<ItemRequestDtoOut> testRequestOut = requestService.getRequestsPage(1L, 0, 10);
@@ -155,23 +157,73 @@ public class ItemRequestServiceImplTest {
         }
 
         verify(requestRepository, times(1))
-                .findByRequestorNot(any(User.class), any(Pageable.class));
+                .findByRequestorNotAfter(any(User.class), any(LocalDateTime.class), anyLong(), any(Pageable.class));
         verify(commonService, times(1))
                 .getInDBUser(anyLong());
         verify(commonService, times(1))
-                .getItemsByRequest(anyLong());
+                .getItemsByRequests(anyCollection());
         verify(commonService, times(1))
                 .getPagination(anyInt(), anyInt(), any());
     }
 
+    @Test
+    void getRequestsPageFetchesItemsOnce() {
+        List<ItemRequest> requests = List.of(
+                ItemRequest.builder().id(1L).description("First").created(time).build(),
+                ItemRequest.builder().id(2L).description("Second").created(time).build(),
+                ItemRequest.builder().id(3L).description("Third").created(time).build());
+        when(commonService.getInDBUser(anyLong()))
+                .thenReturn(user);
+        when(commonService.getPagination(anyInt(), anyInt(), any()))
+                .thenReturn(PageRequest.of(0, 3));
+        when(requestRepository.findByRequestorNotAfter(any(User.class), any(LocalDateTime.class), anyLong(),
+                any(Pageable.class)))
+                .thenReturn(requests);
+        when(commonService.getItemsByRequests(List.of(1L, 2L, 3L)))
+                .thenReturn(Map.of(2L, items));
+
+        List<ItemRequestDtoOut> testRequestOut = List.copyOf(requestService.getRequestsPage(1L, 0, 3));
+        assertThat(testRequestOut, hasSize(3));
+        assertThat(testRequestOut.get(0).getItems(), hasSize(0));
+        assertThat(testRequestOut.get(1).getItems(), equalTo(items));
+        assertThat(testRequestOut.get(2).getItems(), hasSize(0));
+
+        verify(commonService, times(1))
+                .getItemsByRequests(anyCollection());
+    }
+
+    @Test
+    void getRequestsPageAfter() {
+        Pageable pageable = PageRequest.of(0, 10);
+        PageCursor after = PageCursor.of(time, 7L);
+        when(commonService.getInDBUser(anyLong()))
+                .thenReturn(user);
+        when(commonService.getSeekPagination(anyInt()))
+                .thenReturn(pageable);
+        when(requestRepository.findByRequestorNotAfter(user, time, 7L, pageable))
+                .thenReturn(List.of(request));
+        when(commonService.getItemsByRequests(anyCollection()))
+                .thenReturn(Map.of(request.getId(), items));
+
+        List<ItemRequestDtoOut> testRequestOut = requestService.getRequestsPageAfter(1L, after, 10);
+        assertThat(testRequestOut, hasSize(1));
+        assertThat(testRequestOut.get(0).getId(), equalTo(requestDtoOut.getId()));
+        assertThat(testRequestOut.get(0).getItems(), equalTo(requestDtoOut.getItems()));
+
+        verify(commonService, times(1))
+                .getSeekPagination(10);
+        verify(requestRepository, times(1))
+                .findByRequestorNotAfter(user, time, 7L, pageable);
+    }
+
     @Test
     void getRequestById() {
         when(commonService.getInDBUser(anyLong()))
                 .thenReturn(user);
         when(requestRepository.findById(anyLong()))
                 .thenReturn(Optional.ofNullable(request));
-        when(commonService.getItemsByRequest(anyLong()))
-                .thenReturn(items);
+        when(commonService.getItemsByRequests(anyCollection()))
+                .thenReturn(Map.of(request.getId(), items));
 
         ItemRequestDtoOut testRequestOut = requestService.getRequestById(1L, 1L);
         assertThat(testRequestOut.getId(), equalTo(requestDtoOut.getId()));
@@ -184,6 +236,6 @@ public class ItemRequestServiceImplTest {
         verify(requestRepository, times(1))
                 .findById(anyLong());
         verify(commonService, times(1))
-                .getItemsByRequest(anyLong());
+                .getItemsByRequests(anyCollection());
     }
 }
@@ -11,9 +11,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.practicum.shareit.idempotency.IdempotencyKeyRepository;
+import ru.practicum.shareit.idempotency.IdempotencyProperties;
 
 import java.nio.charset.StandardCharsets;
 import java.util.List;
@@ -28,9 +31,12 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 
 @WebMvcTest(controllers = UserController.class)
+@Import(IdempotencyProperties.class)
 public class UserControllerTest {
     @MockBean
     private UserService userService;
+    @MockBean
+    private IdempotencyKeyRepository idempotencyKeyRepository;
     @Autowired
     private ObjectMapper mapper;
     @Autowired
@@ -3,10 +3,19 @@ package ru.practicum.shareit.user;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.practicum.shareit.CommonService;
+import ru.practicum.shareit.booking.BookingInterval;
+import ru.practicum.shareit.booking.BookingCounterRepository;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
 import ru.practicum.shareit.exception.ValidatorException;
+import ru.practicum.shareit.item.ItemAvailabilityIndex;
+import ru.practicum.shareit.item.ItemCalendarCache;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.ItemSearchIndex;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -22,8 +31,16 @@ import static org.mockito.Mockito.when;
 public class UserServiceImplTest {
     private final UserRepository userRepository = Mockito.mock(UserRepository.class);
     private final CommonService commonService = Mockito.mock(CommonService.class);
+    private final ItemRepository itemRepository = Mockito.mock(ItemRepository.class);
+    private final BookingRepository bookingRepository = Mockito.mock(BookingRepository.class);
+    private final BookingCounterRepository bookingCounterRepository =
+            Mockito.mock(BookingCounterRepository.class);
+    private final ItemSearchIndex searchIndex = Mockito.mock(ItemSearchIndex.class);
+    private final ItemAvailabilityIndex availabilityIndex = Mockito.mock(ItemAvailabilityIndex.class);
+    private final ItemCalendarCache calendarCache = Mockito.mock(ItemCalendarCache.class);
 
-    private final UserService userService = new UserServiceImpl(userRepository, commonService);
+    private final UserService userService = new UserServiceImpl(userRepository, commonService, itemRepository,
+            bookingRepository, bookingCounterRepository, searchIndex, availabilityIndex, calendarCache);
     private User user;
     private UserDto userDto;
 
@@ -55,7 +72,7 @@ public class UserServiceImplTest {
 
     @Test
     public void createUser() {
-        when(userRepository.save(any(User.class)))
+        when(userRepository.saveAndFlush(any(User.class)))
                 .thenReturn(user);
         UserDto testUserDto = userService.createUser(userDto);
         assertThat(testUserDto.getId(), equalTo(userDto.getId()));
@@ -84,7 +101,7 @@ public class UserServiceImplTest {
         }
 
         verify(userRepository, Mockito.times(1))
-                .save(any(User.class));
+                .saveAndFlush(any(User.class));
     }
 
     @Test
@@ -93,22 +110,43 @@ public class UserServiceImplTest {
                 .thenReturn(user);
         user.setName("Test2");
         userDto.setName("Test2");
-        when(userRepository.save(any(User.class)))
+        when(userRepository.saveAndFlush(any(User.class)))
                 .thenReturn(user);
         UserDto testUserDto = userService.patchUser(userDto, 1L);
         assertThat(testUserDto.getName(), equalTo(userDto.getName()));
         verify(userRepository, Mockito.times(1))
-                .save(any(User.class));
+                .saveAndFlush(any(User.class));
         verify(commonService, Mockito.times(1))
                 .getInDBUser(anyLong());
+        verify(commonService, Mockito.times(1))
+                .evictUser(1L);
     }
 
     @Test
     public void deleteUser() {
+        BookingInterval booking = Mockito.mock(BookingInterval.class);
+        when(booking.getItemId()).thenReturn(7L);
+        when(itemRepository.findIdsByOwner(1L)).thenReturn(List.of(3L, 4L));
+        when(bookingRepository.findIntervalsOfBooker(1L, BookingStatus.APPROVED)).thenReturn(List.of(booking));
         Mockito.doNothing().when(userRepository).deleteById(anyLong());
         userService.deleteUser(1L);
         verify(userRepository, Mockito.times(1))
                 .deleteById(anyLong());
+        verify(commonService, Mockito.times(1))
+                .evictUser(1L);
+        verify(commonService, Mockito.times(1))
+                .evictItems();
+        verify(searchIndex).delete(3L);
+        verify(searchIndex).delete(4L);
+        verify(availabilityIndex).removeItem(3L);
+        verify(availabilityIndex).removeItem(4L);
+        verify(availabilityIndex).removeBooking(booking);
+        verify(calendarCache).evict(7L);
+        InOrder order = Mockito.inOrder(userRepository, bookingRepository, bookingCounterRepository);
+        order.verify(userRepository).lockUser(1L);
+        order.verify(bookingRepository).lockItems(List.of(3L, 4L));
+        order.verify(bookingCounterRepository).subtractBookingsOfUser(1L);
+        order.verify(userRepository).deleteById(1L);
     }
 
     @Test